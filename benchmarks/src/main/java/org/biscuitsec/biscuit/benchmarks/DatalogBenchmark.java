@@ -0,0 +1,74 @@
+package org.biscuitsec.biscuit.benchmarks;
+
+import org.biscuitsec.biscuit.datalog.Origin;
+import org.biscuitsec.biscuit.datalog.Rule;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.datalog.SymbolTable;
+import org.biscuitsec.biscuit.datalog.TemporarySymbolTable;
+import org.biscuitsec.biscuit.datalog.Term;
+import org.biscuitsec.biscuit.datalog.TrustedOrigins;
+import org.biscuitsec.biscuit.datalog.World;
+import org.biscuitsec.biscuit.datalog.expressions.Expression;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.builder.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Datalog engine without the token layer: {@link World#run(RunLimits, SymbolTable)}
+ * and {@link Expression#evaluate(Map, TemporarySymbolTable)}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatalogBenchmark {
+    @Param({"5", "10", "20"})
+    public int size;
+
+    private SymbolTable symbols;
+    private World world;
+    private RunLimits limits;
+    private Expression expression;
+    private Map<Long, Term> variables;
+
+    @Setup
+    public void setup() {
+        this.symbols = new SymbolTable();
+        this.limits = new RunLimits(1_000_000, 10_000, Duration.ofSeconds(60));
+
+        this.world = new World();
+        for (int i = 0; i < this.size; i++) {
+            this.world.add_fact(new Origin(0), Parser.fact("edge(" + i + ", " + (i + 1) + ")").get()._2.convert(this.symbols));
+        }
+        TrustedOrigins scope = new TrustedOrigins(0);
+        this.world.add_rule(0L, scope, Parser.rule("path($x, $y) <- edge($x, $y)").get()._2.convert(this.symbols));
+        this.world.add_rule(0L, scope, Parser.rule("path($x, $z) <- path($x, $y), edge($y, $z)").get()._2.convert(this.symbols));
+
+        Rule rule = Parser.rule("expr($a, $s) <- value($a, $s), "
+                + "$a + 1 > 2 && $s.starts_with(\"abc\") && [1, 2, 3].contains($a) && $s.matches(\"^abc[a-z]+$\")")
+                .get()._2.convert(this.symbols);
+        this.expression = rule.expressions().get(0);
+        this.variables = new HashMap<>();
+        this.variables.put(this.symbols.get("a").get(), new Term.Integer(2));
+        this.variables.put(this.symbols.get("s").get(), this.symbols.add("abcdef"));
+    }
+
+    @Benchmark
+    public World worldRun() throws Error {
+        World w = new World(this.world);
+        w.run(this.limits, this.symbols);
+        return w;
+    }
+
+    @Benchmark
+    public Term evaluateExpression() throws Error.Execution {
+        return this.expression.evaluate(this.variables, new TemporarySymbolTable(this.symbols));
+    }
+}
@@ -0,0 +1,108 @@
+package org.biscuitsec.biscuit.benchmarks;
+
+import biscuit.format.schema.Schema;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.PublicKey;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Authorizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the sample tokens of the test suite, from {@code src/test/resources/samples}
+ */
+final class Samples {
+    private static final JsonObject SAMPLES = load();
+
+    private Samples() {
+    }
+
+    static PublicKey rootPublicKey() {
+        return new PublicKey(Schema.PublicKey.Algorithm.Ed25519, SAMPLES.get("root_public_key").getAsString());
+    }
+
+    static KeyPair rootKeyPair() {
+        return KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, SAMPLES.get("root_private_key").getAsString());
+    }
+
+    static byte[] token(String filename) {
+        try (InputStream in = resource("samples/" + filename)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Authorizer code of the sample's validation, preferring a successful one
+     */
+    static List<String> authorizerCode(String filename) {
+        for (JsonElement t : SAMPLES.getAsJsonArray("testcases")) {
+            JsonObject testCase = t.getAsJsonObject();
+            if (!testCase.get("filename").getAsString().equals(filename)) {
+                continue;
+            }
+
+            JsonObject validation = null;
+            for (Map.Entry<String, JsonElement> v : testCase.getAsJsonObject("validations").entrySet()) {
+                JsonObject candidate = v.getValue().getAsJsonObject();
+                if (validation == null || candidate.getAsJsonObject("result").has("Ok")) {
+                    validation = candidate;
+                }
+            }
+
+            List<String> code = new ArrayList<>();
+            if (validation != null) {
+                for (String s : validation.get("authorizer_code").getAsString().split(";")) {
+                    s = s.trim();
+                    if (!s.isEmpty()) {
+                        code.add(s);
+                    }
+                }
+            }
+            return code;
+        }
+        throw new IllegalArgumentException("unknown sample " + filename);
+    }
+
+    /**
+     * Adds authorizer code returned by {@link #authorizerCode(String)}
+     */
+    static void addCode(Authorizer authorizer, List<String> code) throws Error.Parser {
+        for (String s : code) {
+            if (s.startsWith("check if") || s.startsWith("check all")) {
+                authorizer.add_check(s);
+            } else if (s.startsWith("allow if") || s.startsWith("deny if")) {
+                authorizer.add_policy(s);
+            } else if (!s.startsWith("revocation_id")) {
+                authorizer.add_fact(s);
+            }
+        }
+    }
+
+    private static JsonObject load() {
+        try (InputStream in = resource("samples/samples.json")) {
+            return JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream resource(String name) {
+        InputStream in = Samples.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("missing resource " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,105 @@
+package org.biscuitsec.biscuit.benchmarks;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.PublicKey;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Authorizer;
+import org.biscuitsec.biscuit.token.Biscuit;
+import org.biscuitsec.biscuit.token.UnverifiedBiscuit;
+import org.biscuitsec.biscuit.token.builder.Block;
+import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, verification, authorization and attenuation of the sample tokens
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplesBenchmark {
+    @Param({
+            "test001_basic.bc",
+            "test017_expressions.bc",
+            "test022_default_symbols.bc",
+            "test024_third_party.bc",
+            "test026_public_keys_interning.bc",
+            "test028_expressions_v4.bc",
+            "test036_secp256r1.bc",
+    })
+    public String sample;
+
+    private byte[] data;
+    private PublicKey root;
+    private Biscuit token;
+    private SerializedBiscuit serialized;
+    private List<String> authorizerCode;
+    private RunLimits limits;
+    private SecureRandom rng;
+    private KeyPair next;
+    private Block block;
+
+    @Setup
+    public void setup() throws Exception {
+        this.data = Samples.token(this.sample);
+        this.root = Samples.rootPublicKey();
+        this.token = Biscuit.from_bytes(this.data, this.root);
+        this.serialized = SerializedBiscuit.unsafe_deserialize(this.data);
+        this.authorizerCode = Samples.authorizerCode(this.sample);
+        this.limits = new RunLimits(1000, 100, Duration.ofSeconds(1));
+        this.rng = new SecureRandom();
+        this.next = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, this.rng);
+        this.block = new Block().add_check("check if time($time), $time < 2030-01-01T00:00:00Z");
+    }
+
+    @Benchmark
+    public Biscuit parse() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_bytes(this.data, this.root);
+    }
+
+    @Benchmark
+    public UnverifiedBiscuit parseUnverified() throws Error {
+        return UnverifiedBiscuit.from_bytes(this.data);
+    }
+
+    @Benchmark
+    public Object verify() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        return this.serialized.verify(this.root);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Error {
+        return this.token.serialize();
+    }
+
+    /**
+     * Authorization errors are part of the samples, they are returned instead of thrown
+     */
+    @Benchmark
+    public Object authorize() throws Error {
+        Authorizer authorizer = this.token.authorizer();
+        Samples.addCode(authorizer, this.authorizerCode);
+        try {
+            return authorizer.authorize(this.limits);
+        } catch (Error e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Biscuit attenuate() throws Error {
+        return this.token.attenuate(this.rng, this.next, this.block);
+    }
+}
@@ -0,0 +1,160 @@
+package org.biscuitsec.biscuit.benchmarks;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Authorizer;
+import org.biscuitsec.biscuit.token.Biscuit;
+import org.biscuitsec.biscuit.token.builder.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic workloads growing with {@code size}: number of blocks, number of facts,
+ * depth of recursive rules, number of regular expression matches and size of sets
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+    private static final int MAX_CHAIN_LENGTH = 20;
+
+    @Param({"1", "10", "100"})
+    public int size;
+
+    private KeyPair root;
+    private SecureRandom rng;
+    private KeyPair next;
+    private RunLimits limits;
+
+    private byte[] blocksData;
+    private Biscuit blocksToken;
+    private Block attenuationBlock;
+
+    private Biscuit factsToken;
+    private Biscuit recursiveToken;
+    private int chainLength;
+    private Biscuit regexToken;
+    private Biscuit setToken;
+
+    @Setup
+    public void setup() throws Exception {
+        this.rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        this.root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, this.rng);
+        this.next = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, this.rng);
+        this.limits = new RunLimits(1_000_000, 10_000, Duration.ofSeconds(60));
+
+        // N attenuation blocks
+        Biscuit b = Biscuit.builder(this.rng, this.root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build();
+        for (int i = 0; i < this.size; i++) {
+            b = b.attenuate(this.rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, this.rng),
+                    new Block()
+                            .add_fact("attenuation(" + i + ")")
+                            .add_check("check if resource(\"file1\"), operation(\"read\")"));
+        }
+        this.blocksToken = b;
+        this.blocksData = b.serialize();
+        this.attenuationBlock = new Block().add_check("check if time($time), $time < 2030-01-01T00:00:00Z");
+
+        // N facts
+        org.biscuitsec.biscuit.token.builder.Biscuit facts = Biscuit.builder(this.rng, this.root);
+        for (int i = 0; i < this.size; i++) {
+            facts.add_authority_fact("right(\"file" + i + "\", \"read\")");
+        }
+        this.factsToken = facts.build();
+
+        // recursive rules over a chain of edges. Every iteration derives all the paths again,
+        // so the chain is capped to keep the benchmark within its time limit
+        this.chainLength = Math.min(this.size, MAX_CHAIN_LENGTH);
+        org.biscuitsec.biscuit.token.builder.Biscuit recursive = Biscuit.builder(this.rng, this.root);
+        for (int i = 0; i < this.chainLength; i++) {
+            recursive.add_authority_fact("edge(" + i + ", " + (i + 1) + ")");
+        }
+        recursive.add_authority_rule("path($x, $y) <- edge($x, $y)");
+        recursive.add_authority_rule("path($x, $z) <- path($x, $y), edge($y, $z)");
+        this.recursiveToken = recursive.build();
+
+        // N regular expression matches
+        org.biscuitsec.biscuit.token.builder.Biscuit regex = Biscuit.builder(this.rng, this.root);
+        for (int i = 0; i < this.size; i++) {
+            regex.add_authority_fact("resource(\"/folder" + i + "/file" + i + ".txt\")");
+        }
+        regex.add_authority_check("check all resource($r), $r.matches(\"^/folder[0-9]+/file[0-9]+[.]txt$\")");
+        this.regexToken = regex.build();
+
+        // set of N elements
+        StringBuilder set = new StringBuilder("allowed([");
+        for (int i = 0; i < this.size; i++) {
+            if (i > 0) {
+                set.append(", ");
+            }
+            set.append("\"op").append(i).append('"');
+        }
+        set.append("])");
+        this.setToken = Biscuit.builder(this.rng, this.root)
+                .add_authority_fact(set.toString())
+                .add_authority_check("check if allowed($set), operation($op), $set.contains($op)")
+                .build();
+    }
+
+    @Benchmark
+    public Biscuit parseBlocks() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_bytes(this.blocksData, this.root.public_key());
+    }
+
+    @Benchmark
+    public Biscuit attenuateBlocks() throws Error {
+        return this.blocksToken.attenuate(this.rng, this.next, this.attenuationBlock);
+    }
+
+    @Benchmark
+    public Long authorizeBlocks() throws Error {
+        Authorizer authorizer = this.blocksToken.authorizer();
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_fact("operation(\"read\")");
+        authorizer.add_policy("allow if right(\"file1\", \"read\")");
+        return authorizer.authorize(this.limits);
+    }
+
+    @Benchmark
+    public Long authorizeFacts() throws Error {
+        Authorizer authorizer = this.factsToken.authorizer();
+        authorizer.add_fact("resource(\"file" + (this.size - 1) + "\")");
+        authorizer.add_policy("allow if resource($r), right($r, \"read\")");
+        return authorizer.authorize(this.limits);
+    }
+
+    @Benchmark
+    public Long authorizeRecursive() throws Error {
+        Authorizer authorizer = this.recursiveToken.authorizer();
+        authorizer.add_policy("allow if path(0, " + this.chainLength + ")");
+        return authorizer.authorize(this.limits);
+    }
+
+    @Benchmark
+    public Long authorizeRegex() throws Error {
+        Authorizer authorizer = this.regexToken.authorizer();
+        authorizer.add_policy("allow if true");
+        return authorizer.authorize(this.limits);
+    }
+
+    @Benchmark
+    public Long authorizeLargeSet() throws Error {
+        Authorizer authorizer = this.setToken.authorizer();
+        authorizer.add_fact("operation(\"op" + (this.size - 1) + "\")");
+        authorizer.add_policy("allow if true");
+        return authorizer.authorize(this.limits);
+    }
+}
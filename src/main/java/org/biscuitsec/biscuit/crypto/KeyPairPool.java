@@ -0,0 +1,128 @@
+package org.biscuitsec.biscuit.crypto;
+
+import biscuit.format.schema.Schema.PublicKey.Algorithm;
+
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Ephemeral key pairs generated ahead of time by a background thread
+ * <p>
+ * The pool holds up to a fixed number of key pairs for each of its algorithms. Each key pair taken
+ * from the pool is replaced in the background. When no key pair is ready, it is generated on the
+ * calling thread.
+ * <p>
+ * The pool registered with {@link #set_default(KeyPairPool)} provides the ephemeral key pairs of new
+ * tokens, attenuated tokens and token templates. The random number generators given to those methods
+ * are then only used when the pool has no key pair ready.
+ */
+public final class KeyPairPool implements AutoCloseable {
+    private static final SecureRandom RNG = new SecureRandom();
+    private static volatile KeyPairPool defaultPool;
+
+    private final Map<Algorithm, ArrayBlockingQueue<KeyPair>> keys = new EnumMap<>(Algorithm.class);
+    // one entry for each key pair to generate, so that each queue and its pending entries add up to the capacity
+    private final LinkedBlockingQueue<Algorithm> refill = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool and starts its thread
+     *
+     * @param capacity   number of key pairs kept for each algorithm
+     * @param algorithms the algorithms of the key pairs
+     */
+    public KeyPairPool(int capacity, Algorithm... algorithms) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("the capacity must be positive");
+        }
+        for (Algorithm algorithm : algorithms) {
+            this.keys.put(algorithm, new ArrayBlockingQueue<>(capacity));
+            for (int i = 0; i < capacity; i++) {
+                this.refill.add(algorithm);
+            }
+        }
+
+        this.thread = new Thread(this::run, "biscuit-keypair-pool");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        try {
+            while (!this.closed) {
+                Algorithm algorithm = this.refill.take();
+                this.keys.get(algorithm).offer(KeyPair.generate(algorithm, RNG));
+            }
+        } catch (InterruptedException e) {
+            // the pool is closed
+        }
+    }
+
+    /**
+     * Takes a key pair from the pool, or generates it if none is ready
+     */
+    public KeyPair take(Algorithm algorithm) {
+        ArrayBlockingQueue<KeyPair> queue = this.keys.get(algorithm);
+        KeyPair keyPair = queue == null ? null : queue.poll();
+        if (keyPair == null) {
+            return KeyPair.generate(algorithm, RNG);
+        }
+        if (!this.closed) {
+            this.refill.offer(algorithm);
+        }
+        return keyPair;
+    }
+
+    /**
+     * @return the number of key pairs ready for this algorithm
+     */
+    public int available(Algorithm algorithm) {
+        ArrayBlockingQueue<KeyPair> queue = this.keys.get(algorithm);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Stops the background thread. The key pairs already generated can still be taken.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.thread.interrupt();
+    }
+
+    /**
+     * @param pool the pool used for ephemeral key pairs, or null to generate them when they are needed
+     */
+    public static void set_default(KeyPairPool pool) {
+        defaultPool = pool;
+    }
+
+    /**
+     * @return the current default pool, or null
+     */
+    public static KeyPairPool get_default() {
+        return defaultPool;
+    }
+
+    /**
+     * Ephemeral key pair from the default pool, or generated with a shared random number generator
+     */
+    public static KeyPair ephemeral(Algorithm algorithm) {
+        return ephemeral(algorithm, RNG);
+    }
+
+    /**
+     * Ephemeral key pair from the default pool, or generated with this random number generator
+     */
+    public static KeyPair ephemeral(Algorithm algorithm, SecureRandom rng) {
+        KeyPairPool pool = defaultPool;
+        if (pool != null && pool.keys.containsKey(algorithm)) {
+            return pool.take(algorithm);
+        }
+        return KeyPair.generate(algorithm, rng);
+    }
+}
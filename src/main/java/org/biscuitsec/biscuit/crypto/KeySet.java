@@ -0,0 +1,232 @@
+package org.biscuitsec.biscuit.crypto;
+
+import biscuit.format.schema.Schema.PublicKey.Algorithm;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.vavr.control.Option;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Root keys indexed by key id, that can be rotated while tokens are verified
+ * <p>
+ * The keys are decoded when they are loaded. A lookup reads an immutable array without locking,
+ * and {@link #rotate(Map, Option)} or {@link #reload(Path)} replace the whole set at once.
+ * <p>
+ * Tokens without a root key id are verified with the default key, if there is one.
+ * <p>
+ * A key set can be loaded from a JSON file:
+ * <pre>
+ * {
+ *   "default": 1,
+ *   "keys": [
+ *     { "kid": 1, "alg": "ed25519", "key": "&lt;hex&gt;" },
+ *     { "kid": 2, "alg": "secp256r1", "key": "&lt;hex&gt;" }
+ *   ]
+ * }
+ * </pre>
+ */
+public final class KeySet implements KeyDelegate {
+    private volatile Keys keys;
+    private volatile Path file;
+    private volatile FileTime lastModified;
+    private volatile Option<IOException> lastReloadError = Option.none();
+
+    /**
+     * @param keys         the public keys by key id
+     * @param defaultKeyId id of the key used for tokens without a root key id
+     */
+    public KeySet(Map<Integer, PublicKey> keys, Option<Integer> defaultKeyId) {
+        this.keys = new Keys(keys, defaultKeyId);
+    }
+
+    public static KeySet from_file(Path file) throws IOException {
+        KeySet keySet = new KeySet(Collections.emptyMap(), Option.none());
+        keySet.reload(file);
+        return keySet;
+    }
+
+    @Override
+    public Option<PublicKey> root_key(Option<Integer> key_id) {
+        Keys k = this.keys;
+        if (key_id.isEmpty()) {
+            return k.defaultKey;
+        }
+        return k.get(key_id.get());
+    }
+
+    /**
+     * @return the public keys by key id
+     */
+    public Map<Integer, PublicKey> keys() {
+        return this.keys.map;
+    }
+
+    /**
+     * Replaces the keys
+     */
+    public void rotate(Map<Integer, PublicKey> keys, Option<Integer> defaultKeyId) {
+        this.keys = new Keys(keys, defaultKeyId);
+    }
+
+    /**
+     * Replaces the keys with the content of a file, and remembers the file for {@link #reload_if_modified()}
+     * <p>
+     * If the file cannot be read or is invalid, the keys are not modified.
+     */
+    public synchronized void reload(Path file) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        Keys k;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            k = parse(reader);
+        }
+        this.keys = k;
+        this.file = file;
+        this.lastModified = modified;
+        this.lastReloadError = Option.none();
+    }
+
+    /**
+     * Reloads the file given to {@link #reload(Path)} if its modification time changed
+     *
+     * @return true if the keys were reloaded
+     */
+    public synchronized boolean reload_if_modified() throws IOException {
+        Path f = this.file;
+        if (f == null || Files.getLastModifiedTime(f).equals(this.lastModified)) {
+            return false;
+        }
+        reload(f);
+        return true;
+    }
+
+    /**
+     * Checks the file for modifications periodically on the executor
+     * <p>
+     * A file that cannot be read or is invalid leaves the current keys in place, and the error is
+     * available from {@link #last_reload_error()} until the next successful reload.
+     */
+    public ScheduledFuture<?> schedule_reload(ScheduledExecutorService executor, Duration period) {
+        long nanos = period.toNanos();
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                reload_if_modified();
+            } catch (IOException e) {
+                this.lastReloadError = Option.some(e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Option<IOException> last_reload_error() {
+        return this.lastReloadError;
+    }
+
+    static Keys parse(Reader reader) throws IOException {
+        try {
+            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+            Option<Integer> defaultKeyId = Option.none();
+            if (root.has("default") && !root.get("default").isJsonNull()) {
+                defaultKeyId = Option.some(root.get("default").getAsInt());
+            }
+
+            Map<Integer, PublicKey> keys = new TreeMap<>();
+            JsonArray array = root.getAsJsonArray("keys");
+            if (array == null) {
+                throw new IOException("invalid key set: missing keys");
+            }
+            for (JsonElement e : array) {
+                JsonObject key = e.getAsJsonObject();
+                int kid = key.get("kid").getAsInt();
+                Algorithm algorithm = algorithm(key.get("alg").getAsString());
+                if (keys.put(kid, new PublicKey(algorithm, key.get("key").getAsString())) != null) {
+                    throw new IOException("invalid key set: duplicate key id " + kid);
+                }
+            }
+            return new Keys(keys, defaultKeyId);
+        } catch (RuntimeException e) {
+            throw new IOException("invalid key set: " + e.getMessage(), e);
+        }
+    }
+
+    private static Algorithm algorithm(String alg) {
+        switch (alg.toLowerCase()) {
+            case "ed25519":
+                return Algorithm.Ed25519;
+            case "secp256r1":
+                return Algorithm.SECP256R1;
+            default:
+                throw new IllegalArgumentException("unsupported algorithm " + alg);
+        }
+    }
+
+    /**
+     * Immutable set of keys
+     * <p>
+     * When the ids are small compared to the number of keys, the keys are stored at the index of their id.
+     * Otherwise, the ids are sorted and searched.
+     */
+    static final class Keys {
+        private static final Option<PublicKey> NONE = Option.none();
+
+        final Map<Integer, PublicKey> map;
+        final Option<PublicKey> defaultKey;
+        private final Option<PublicKey>[] byId;
+        private final int[] ids;
+        private final Option<PublicKey>[] sorted;
+
+        @SuppressWarnings("unchecked")
+        Keys(Map<Integer, PublicKey> keys, Option<Integer> defaultKeyId) {
+            TreeMap<Integer, PublicKey> map = new TreeMap<>(keys);
+            this.map = Collections.unmodifiableMap(map);
+            if (defaultKeyId.isDefined() && !map.containsKey(defaultKeyId.get())) {
+                throw new IllegalArgumentException("unknown default key id " + defaultKeyId.get());
+            }
+            this.defaultKey = defaultKeyId.map(map::get);
+
+            int max = map.isEmpty() ? -1 : map.lastKey();
+            boolean dense = map.isEmpty() || (map.firstKey() >= 0 && max <= 2 * map.size() + 16);
+            if (dense) {
+                this.byId = new Option[max + 1];
+                Arrays.fill(this.byId, NONE);
+                for (Map.Entry<Integer, PublicKey> e : map.entrySet()) {
+                    this.byId[e.getKey()] = Option.some(e.getValue());
+                }
+                this.ids = null;
+                this.sorted = null;
+            } else {
+                this.byId = null;
+                this.ids = new int[map.size()];
+                this.sorted = new Option[map.size()];
+                int i = 0;
+                for (Map.Entry<Integer, PublicKey> e : map.entrySet()) {
+                    this.ids[i] = e.getKey();
+                    this.sorted[i] = Option.some(e.getValue());
+                    i++;
+                }
+            }
+        }
+
+        Option<PublicKey> get(int id) {
+            if (this.byId != null) {
+                return id >= 0 && id < this.byId.length ? this.byId[id] : NONE;
+            }
+            int index = Arrays.binarySearch(this.ids, id);
+            return index >= 0 ? this.sorted[index] : NONE;
+        }
+    }
+}
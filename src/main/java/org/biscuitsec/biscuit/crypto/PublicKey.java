@@ -5,7 +5,7 @@ import biscuit.format.schema.Schema.PublicKey.Algorithm;
 import net.i2p.crypto.eddsa.EdDSAPublicKey;
 import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.token.builder.Utils;
-import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
 
 import java.util.Optional;
@@ -62,7 +62,7 @@ public class PublicKey {
 
     public Schema.PublicKey serialize() {
         Schema.PublicKey.Builder publicKey = Schema.PublicKey.newBuilder();
-        publicKey.setKey(ByteString.copyFrom(this.toBytes()));
+        publicKey.setKey(UnsafeByteOperations.unsafeWrap(this.toBytes()));
         publicKey.setAlgorithm(this.algorithm);
         return publicKey.build();
     }
@@ -15,6 +15,8 @@ public final class Combinator implements Serializable, Iterator<Tuple2<Origin, M
    private final Iterator<Tuple2<Origin, Fact>> currentFacts;
    private Combinator currentIt;
    private final SymbolTable symbols;
+   private final ExecutionStats stats;
+   private final Deadline deadline;
 
    private Origin currentOrigin;
 
@@ -67,9 +69,16 @@ public final class Combinator implements Serializable, Iterator<Tuple2<Origin, M
             Predicate predicate = this.predicates.get(0);
 
             while (true) {
-               // we iterate over the facts that match the current predicate
+               // we iterate over the facts that match the current predicate,
+               // the caller checks the deadline once the iteration stops
+               if (this.deadline != null && this.deadline.expired()) {
+                  return Option.none();
+               }
                if (this.currentFacts.hasNext()) {
                   final Tuple2<Origin, Fact> t = this.currentFacts.next();
+                  if (this.stats != null) {
+                     this.stats.combinatorCandidates++;
+                  }
                   Origin currentOrigin = t._1.clone();
                   Fact fact = t._2;
 
@@ -111,7 +120,7 @@ public final class Combinator implements Serializable, Iterator<Tuple2<Origin, M
                      this.currentOrigin = currentOrigin;
                      // we found a matching fact, we create a new combinator over the rest of the predicates
                      // no need to copy all the expressions at all levels
-                     this.currentIt = new Combinator(vars, predicates.subList(1, predicates.size()), this.allFacts, this.symbols);
+                     this.currentIt = new Combinator(vars, predicates.subList(1, predicates.size()), this.allFacts, this.allFacts, this.symbols, this.stats, this.deadline);
                   }
                   break;
 
@@ -140,12 +149,36 @@ public final class Combinator implements Serializable, Iterator<Tuple2<Origin, M
 
    public Combinator(final MatchedVariables variables, final List<Predicate> predicates,
                      Supplier<Stream<Tuple2<Origin, Fact>>> all_facts, final SymbolTable symbols) {
+      this(variables, predicates, all_facts, symbols, null);
+   }
+
+   /**
+    * @param stats counts the facts examined, can be null
+    */
+   public Combinator(final MatchedVariables variables, final List<Predicate> predicates,
+                     Supplier<Stream<Tuple2<Origin, Fact>>> all_facts, final SymbolTable symbols,
+                     final ExecutionStats stats) {
+      this(variables, predicates, all_facts, all_facts, symbols, stats, null);
+   }
+
+   /**
+    * @param first_facts facts matched against the first predicate
+    * @param all_facts   facts matched against the other predicates
+    * @param stats       counts the facts examined, can be null
+    * @param deadline    ends the iteration once expired, can be null
+    */
+   public Combinator(final MatchedVariables variables, final List<Predicate> predicates,
+                     Supplier<Stream<Tuple2<Origin, Fact>>> first_facts,
+                     Supplier<Stream<Tuple2<Origin, Fact>>> all_facts, final SymbolTable symbols,
+                     final ExecutionStats stats, final Deadline deadline) {
       this.variables = variables;
       this.allFacts = all_facts;
       this.currentIt = null;
       this.predicates = predicates;
-      this.currentFacts = all_facts.get().filter((tuple) -> tuple._2.match_predicate(predicates.get(0))).iterator();
+      this.currentFacts = first_facts.get().filter((tuple) -> tuple._2.match_predicate(predicates.get(0))).iterator();
       this.symbols = symbols;
+      this.stats = stats;
+      this.deadline = deadline;
       this.currentOrigin = null;
       this.nextElement = null;
    }
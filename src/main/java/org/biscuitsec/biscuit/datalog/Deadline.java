@@ -0,0 +1,68 @@
+package org.biscuitsec.biscuit.datalog;
+
+import org.biscuitsec.biscuit.error.Error;
+
+import java.time.Duration;
+
+/**
+ * Time limit of a Datalog evaluation, based on {@link System#nanoTime()}
+ * <p>
+ * The clock is read on the first call to {@link #expired()}, then once every {@link #CHECK_INTERVAL}
+ * calls, so it can be checked for each fact. Once expired, it stays expired.
+ * <p>
+ * This class is not thread safe, each thread uses its own {@link #fork()}
+ */
+public final class Deadline {
+    /**
+     * Number of calls to {@link #expired()} between two reads of the clock
+     */
+    public static final int CHECK_INTERVAL = 128;
+
+    private final long start;
+    private final long nanos;
+    private int countdown = 1;
+    private boolean expired;
+
+    private Deadline(long start, long nanos) {
+        this.start = start;
+        this.nanos = nanos;
+    }
+
+    public static Deadline after(Duration duration) {
+        long nanos;
+        try {
+            nanos = Math.max(0, duration.toNanos());
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+        return new Deadline(System.nanoTime(), nanos);
+    }
+
+    /**
+     * @return true if the time limit is reached
+     */
+    public boolean expired() {
+        if (!this.expired && --this.countdown <= 0) {
+            this.countdown = CHECK_INTERVAL;
+            this.expired = System.nanoTime() - this.start >= this.nanos;
+        }
+        return this.expired;
+    }
+
+    public void check() throws Error.Timeout {
+        if (expired()) {
+            throw new Error.Timeout();
+        }
+    }
+
+    /**
+     * Creates a deadline with the same time limit, to be used by another thread
+     *
+     * @return
+     */
+    public Deadline fork() {
+        Deadline d = new Deadline(this.start, this.nanos);
+        d.expired = this.expired;
+        return d;
+    }
+}
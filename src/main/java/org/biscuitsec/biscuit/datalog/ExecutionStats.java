@@ -0,0 +1,68 @@
+package org.biscuitsec.biscuit.datalog;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Counters and timings collected during a Datalog evaluation
+ * <p>
+ * Collection is enabled by passing an instance to {@link World#run(RunLimits, SymbolTable, ExecutionStats)}
+ * and to the query methods. When they receive null, nothing is measured.
+ * <p>
+ * This class is not thread safe
+ */
+public final class ExecutionStats {
+    /**
+     * Time spent in a rule during World.run, and number of facts it generated,
+     * including the ones that were already known
+     */
+    public static final class RuleTiming {
+        public final Rule rule;
+        public final long origin;
+        public long nanos;
+        public long facts;
+
+        RuleTiming(Rule rule, long origin) {
+            this.rule = rule;
+            this.origin = origin;
+        }
+    }
+
+    public int iterations;
+    public long combinatorCandidates;
+    public long regexEvaluations;
+    private final IdentityHashMap<Rule, RuleTiming> ruleIndex = new IdentityHashMap<>();
+    private final List<RuleTiming> rules = new ArrayList<>();
+
+    /**
+     * Timings of each rule, in the order they were first evaluated
+     *
+     * @return
+     */
+    public List<RuleTiming> rules() {
+        return this.rules;
+    }
+
+    /**
+     * Adds the values collected by another instance, like the ones used by parallel tasks
+     */
+    public void merge(ExecutionStats other) {
+        this.combinatorCandidates += other.combinatorCandidates;
+        this.regexEvaluations += other.regexEvaluations;
+        for (RuleTiming t : other.rules) {
+            recordRule(t.rule, t.origin, t.nanos, t.facts);
+        }
+    }
+
+    void recordRule(Rule rule, long origin, long nanos, long facts) {
+        RuleTiming timing = this.ruleIndex.get(rule);
+        if (timing == null) {
+            timing = new RuleTiming(rule, origin);
+            this.ruleIndex.put(rule, timing);
+            this.rules.add(timing);
+        }
+        timing.nanos += nanos;
+        timing.facts += facts;
+    }
+}
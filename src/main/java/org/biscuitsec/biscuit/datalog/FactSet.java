@@ -28,6 +28,20 @@ public class FactSet {
         facts.get(origin).add(fact);
     }
 
+    public void add_all(Origin origin, Collection<Fact> facts) {
+        HashSet<Fact> h = this.facts.get(origin);
+        if (h == null) {
+            this.facts.put(origin, new HashSet<>(facts));
+        } else {
+            h.addAll(facts);
+        }
+    }
+
+    public boolean contains(Origin origin, Fact fact) {
+        HashSet<Fact> h = facts.get(origin);
+        return h != null && h.contains(fact);
+    }
+
     public int size() {
         int size = 0;
         for(HashSet<Fact> h: facts.values()) {
@@ -57,7 +71,7 @@ public class FactSet {
             }
         }
     }
-    public Stream stream(TrustedOrigins blockIds) {
+    public Stream<Tuple2<Origin, Fact>> stream(TrustedOrigins blockIds) {
         return facts.entrySet()
                 .stream()
                 .filter(entry -> {
@@ -11,6 +11,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -41,9 +42,56 @@ public final class Rule implements Serializable {
 
    public Stream<Either<Error, Tuple2<Origin, Fact>>> apply(
            final Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier, Long ruleOrigin, SymbolTable symbols) {
-      MatchedVariables variables = variablesSet();
+      return apply(factsSupplier, ruleOrigin, symbols, null, null);
+   }
+
+   /**
+    * @param stats    execution statistics, can be null
+    * @param deadline stops the enumeration of facts once expired, can be null
+    */
+   public Stream<Either<Error, Tuple2<Origin, Fact>>> apply(
+           final Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier, Long ruleOrigin, SymbolTable symbols,
+           ExecutionStats stats, Deadline deadline) {
+      return generate(new Combinator(variablesSet(), this.body, factsSupplier, factsSupplier, symbols, stats, deadline),
+              ruleOrigin, symbols, stats);
+   }
+
+   /**
+    * Applies the rule only to the combinations of facts that contain at least one of the new facts
+    * <p>
+    * Each body predicate that can match a new fact is joined first against the new facts,
+    * then the rest of the body is joined against all the facts. A combination containing
+    * multiple new facts can be generated more than once.
+    *
+    * @param newFactsSupplier facts added since the rule was last applied
+    * @param factsSupplier    all the facts, including the new ones
+    * @param newPredicates    names of the new facts' predicates
+    * @param stats            execution statistics, can be null
+    * @param deadline         stops the enumeration of facts once expired, can be null
+    */
+   public Stream<Either<Error, Tuple2<Origin, Fact>>> apply_incremental(
+           final Supplier<Stream<Tuple2<Origin, Fact>>> newFactsSupplier,
+           final Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier, Set<Long> newPredicates,
+           Long ruleOrigin, SymbolTable symbols, ExecutionStats stats, Deadline deadline) {
+      return IntStream.range(0, this.body.size())
+              .filter(i -> newPredicates.contains(this.body.get(i).name()))
+              .boxed()
+              .flatMap(i -> {
+                 List<Predicate> reordered = new ArrayList<>(this.body.size());
+                 reordered.add(this.body.get(i));
+                 for (int j = 0; j < this.body.size(); j++) {
+                    if (j != i) {
+                       reordered.add(this.body.get(j));
+                    }
+                 }
+                 Combinator combinator = new Combinator(variablesSet(), reordered, newFactsSupplier, factsSupplier,
+                         symbols, stats, deadline);
+                 return generate(combinator, ruleOrigin, symbols, stats);
+              });
+   }
 
-      Combinator combinator = new Combinator(variables, this.body, factsSupplier, symbols);
+   private Stream<Either<Error, Tuple2<Origin, Fact>>> generate(Combinator combinator, Long ruleOrigin,
+                                                              SymbolTable symbols, ExecutionStats stats) {
       Spliterator<Tuple2<Origin, Map<Long, Term>>> splitItr = Spliterators
               .spliteratorUnknownSize(combinator, Spliterator.ORDERED);
       Stream<Tuple2<Origin, Map<Long, Term>>> stream = StreamSupport.stream(splitItr, false);
@@ -55,7 +103,7 @@ public final class Rule implements Serializable {
                  TemporarySymbolTable temporarySymbols = new TemporarySymbolTable(symbols);
                  for (Expression e : this.expressions) {
                     try {
-                       Term term = e.evaluate(generatedVariables, temporarySymbols);
+                       Term term = e.evaluate(generatedVariables, temporarySymbols, stats);
 
                        if (term instanceof Term.Bool) {
                           Term.Bool b = (Term.Bool) term;
@@ -108,6 +156,15 @@ public final class Rule implements Serializable {
 
    // do not produce new facts, only find one matching set of facts
    public boolean find_match(final FactSet facts, Long origin, TrustedOrigins scope, SymbolTable symbols) throws Error {
+      return find_match(facts, origin, scope, symbols, null, null);
+   }
+
+   /**
+    * @param deadline checked while enumerating the facts, can be null
+    * @throws Error.Timeout if the deadline expired
+    */
+   public boolean find_match(final FactSet facts, Long origin, TrustedOrigins scope, SymbolTable symbols,
+                             ExecutionStats stats, Deadline deadline) throws Error {
       MatchedVariables variables = variablesSet();
 
       if(this.body.isEmpty()) {
@@ -115,11 +172,14 @@ public final class Rule implements Serializable {
       }
 
       Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier = () -> facts.stream(scope);
-      Stream<Either<Error, Tuple2<Origin, Fact>>> stream = this.apply(factsSupplier, origin, symbols);
+      Stream<Either<Error, Tuple2<Origin, Fact>>> stream = this.apply(factsSupplier, origin, symbols, stats, deadline);
 
       Iterator<Either<Error, Tuple2<Origin, Fact>>> it = stream.iterator();
 
       if(!it.hasNext()) {
+         if (deadline != null) {
+            deadline.check();
+         }
          return false;
       }
 
@@ -133,6 +193,15 @@ public final class Rule implements Serializable {
 
    // verifies that the expressions return true for every matching set of facts
    public boolean check_match_all(final FactSet facts, TrustedOrigins scope, SymbolTable symbols) throws Error {
+      return check_match_all(facts, scope, symbols, null, null);
+   }
+
+   /**
+    * @param deadline checked while enumerating the facts, can be null
+    * @throws Error.Timeout if the deadline expired
+    */
+   public boolean check_match_all(final FactSet facts, TrustedOrigins scope, SymbolTable symbols,
+                                  ExecutionStats stats, Deadline deadline) throws Error {
       MatchedVariables variables = variablesSet();
 
       if(this.body.isEmpty()) {
@@ -140,7 +209,8 @@ public final class Rule implements Serializable {
       }
 
       Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier = () -> facts.stream(scope);
-      Combinator combinator = new Combinator(variables, this.body, factsSupplier, symbols);
+      Combinator combinator = new Combinator(variables, this.body, factsSupplier, factsSupplier, symbols, stats,
+              deadline);
       boolean found = false;
 
        for (Combinator it = combinator; it.hasNext(); ) {
@@ -151,7 +221,7 @@ public final class Rule implements Serializable {
            TemporarySymbolTable temporarySymbols = new TemporarySymbolTable(symbols);
            for (Expression e : this.expressions) {
 
-              Term term = e.evaluate(generatedVariables, temporarySymbols);
+              Term term = e.evaluate(generatedVariables, temporarySymbols, stats);
               if (term instanceof Term.Bool) {
                  Term.Bool b = (Term.Bool) term;
                  if (!b.value()) {
@@ -163,6 +233,10 @@ public final class Rule implements Serializable {
               }
            }
        }
+      // the enumeration stops early when the deadline expires
+      if (deadline != null) {
+         deadline.check();
+      }
       return found;
    }
 
@@ -243,6 +317,34 @@ public final class Rule implements Serializable {
       }
    }
 
+   /**
+    * Checks that the variables of the head and expressions appear in the body's predicates
+    */
+   public boolean validate_variables() {
+      Set<Long> free = new HashSet<>();
+      for (Term t : this.head.terms()) {
+         if (t instanceof Term.Variable) {
+            free.add(((Term.Variable) t).value());
+         }
+      }
+      for (Expression e : this.expressions) {
+         for (org.biscuitsec.biscuit.datalog.expressions.Op op : e.getOps()) {
+            if (op instanceof org.biscuitsec.biscuit.datalog.expressions.Op.Value
+                    && ((org.biscuitsec.biscuit.datalog.expressions.Op.Value) op).getValue() instanceof Term.Variable) {
+               free.add(((Term.Variable) ((org.biscuitsec.biscuit.datalog.expressions.Op.Value) op).getValue()).value());
+            }
+         }
+      }
+      for (Predicate p : this.body) {
+         for (Term t : p.terms()) {
+            if (t instanceof Term.Variable) {
+               free.remove(((Term.Variable) t).value());
+            }
+         }
+      }
+      return free.isEmpty();
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -13,11 +13,7 @@ public class RuleSet {
     }
 
     public void add(Long origin, TrustedOrigins scope, Rule rule) {
-        if (!rules.containsKey(scope)) {
-            rules.put(scope, List.of(new Tuple2<>(origin, rule)));
-        } else {
-            rules.get(scope).add(new Tuple2<>(origin, rule));
-        }
+        rules.computeIfAbsent(scope, k -> new ArrayList<>()).add(new Tuple2<>(origin, rule));
     }
 
     public RuleSet clone() {
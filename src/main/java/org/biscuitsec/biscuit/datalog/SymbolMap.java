@@ -0,0 +1,186 @@
+package org.biscuitsec.biscuit.datalog;
+
+import org.biscuitsec.biscuit.crypto.PublicKey;
+import org.biscuitsec.biscuit.datalog.expressions.Expression;
+import org.biscuitsec.biscuit.datalog.expressions.Op;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates the symbol and public key ids of Datalog elements from a symbol table to another
+ * <p>
+ * A symbol is inserted in the target table the first time it is translated, then its id is read
+ * from an array. The default symbols have the same id in every table.
+ * <p>
+ * Variables can be replaced by values that already use the target table's ids.
+ * <p>
+ * This class is not thread safe, because it modifies the target table
+ */
+public final class SymbolMap {
+    private static final long UNKNOWN = -1;
+
+    private final SymbolTable from;
+    private final SymbolTable to;
+    private final long[] symbols;
+    private final long[] publicKeys;
+    private final Map<Long, Term> variables;
+    private final boolean identity;
+
+    public SymbolMap(SymbolTable from, SymbolTable to) {
+        this(from, to, null);
+    }
+
+    /**
+     * @param variables values of the variables, by symbol id in the source table, or null
+     */
+    public SymbolMap(SymbolTable from, SymbolTable to, Map<Long, Term> variables) {
+        this.from = from;
+        this.to = to;
+        this.symbols = new long[from.symbols.size()];
+        this.publicKeys = new long[from.publicKeys().size()];
+        this.variables = variables;
+        Arrays.fill(this.symbols, UNKNOWN);
+        Arrays.fill(this.publicKeys, UNKNOWN);
+        this.identity = variables == null
+                && starts_with(to.symbols, from.symbols)
+                && starts_with(to.publicKeys(), from.publicKeys());
+    }
+
+    private static <T> boolean starts_with(List<T> list, List<T> prefix) {
+        return list == prefix || (list.size() >= prefix.size() && list.subList(0, prefix.size()).equals(prefix));
+    }
+
+    /**
+     * @return true if the ids are the same in both tables, as when the target table was copied
+     * from the source table. The elements are then returned without copying them.
+     */
+    public boolean is_identity() {
+        return this.identity;
+    }
+
+    public long symbol(long id) {
+        if (id < SymbolTable.DEFAULT_SYMBOLS_OFFSET) {
+            return id;
+        }
+
+        long index = id - SymbolTable.DEFAULT_SYMBOLS_OFFSET;
+        if (index >= this.symbols.length) {
+            return this.to.insert(this.from.print_symbol((int) id));
+        }
+
+        long translated = this.symbols[(int) index];
+        if (translated == UNKNOWN) {
+            translated = this.to.insert(this.from.symbols.get((int) index));
+            this.symbols[(int) index] = translated;
+        }
+        return translated;
+    }
+
+    public long publicKey(long id) {
+        if (id < 0 || id >= this.from.publicKeys().size()) {
+            throw new IllegalArgumentException("unknown public key id: " + id);
+        }
+        if (id >= this.publicKeys.length) {
+            return this.to.insert(this.from.publicKeys().get((int) id));
+        }
+
+        long translated = this.publicKeys[(int) id];
+        if (translated == UNKNOWN) {
+            PublicKey pk = this.from.publicKeys().get((int) id);
+            translated = this.to.insert(pk);
+            this.publicKeys[(int) id] = translated;
+        }
+        return translated;
+    }
+
+    public Term term(Term t) {
+        if (t instanceof Term.Str) {
+            return new Term.Str(symbol(((Term.Str) t).value()));
+        } else if (t instanceof Term.Variable) {
+            long id = ((Term.Variable) t).value();
+            if (this.variables != null) {
+                Term value = this.variables.get(id);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return new Term.Variable(symbol(id));
+        } else if (t instanceof Term.Set) {
+            HashSet<Term> values = new HashSet<>();
+            for (Term v : ((Term.Set) t).value()) {
+                values.add(term(v));
+            }
+            return new Term.Set(values);
+        } else {
+            return t;
+        }
+    }
+
+    public Predicate predicate(Predicate p) {
+        List<Term> terms = new ArrayList<>(p.terms().size());
+        for (Term t : p.terms()) {
+            terms.add(term(t));
+        }
+        return new Predicate(symbol(p.name()), terms);
+    }
+
+    public Fact fact(Fact f) {
+        if (this.identity) {
+            return f;
+        }
+        return new Fact(predicate(f.predicate()));
+    }
+
+    public Expression expression(Expression e) {
+        ArrayList<Op> ops = new ArrayList<>(e.getOps().size());
+        for (Op op : e.getOps()) {
+            if (op instanceof Op.Value) {
+                ops.add(new Op.Value(term(((Op.Value) op).getValue())));
+            } else {
+                ops.add(op);
+            }
+        }
+        return new Expression(ops);
+    }
+
+    public Scope scope(Scope s) {
+        if (s.kind() == Scope.Kind.PublicKey) {
+            return Scope.publicKey(publicKey(s.publicKey()));
+        }
+        return s;
+    }
+
+    public Rule rule(Rule r) {
+        if (this.identity) {
+            return r;
+        }
+        List<Predicate> body = new ArrayList<>(r.body().size());
+        for (Predicate p : r.body()) {
+            body.add(predicate(p));
+        }
+        List<Expression> expressions = new ArrayList<>(r.expressions().size());
+        for (Expression e : r.expressions()) {
+            expressions.add(expression(e));
+        }
+        List<Scope> scopes = new ArrayList<>(r.scopes().size());
+        for (Scope s : r.scopes()) {
+            scopes.add(scope(s));
+        }
+        return new Rule(predicate(r.head()), body, expressions, scopes);
+    }
+
+    public Check check(Check c) {
+        if (this.identity) {
+            return c;
+        }
+        List<Rule> queries = new ArrayList<>(c.queries().size());
+        for (Rule q : c.queries()) {
+            queries.add(rule(q));
+        }
+        return new Check(c.kind(), queries);
+    }
+}
@@ -10,6 +10,7 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -77,6 +78,39 @@ public final class SymbolTable implements Serializable {
         }
     }
 
+    /**
+     * Index of the symbols, to insert many of them without searching the table for each one
+     * <p>
+     * The table must not be modified by other means while the index is used
+     */
+    public final class Index {
+        private final HashMap<String, Long> ids;
+
+        private Index() {
+            this.ids = new HashMap<>((defaultSymbols.size() + symbols.size()) * 2);
+            for (int i = 0; i < defaultSymbols.size(); i++) {
+                this.ids.put(defaultSymbols.get(i), (long) i);
+            }
+            for (int i = 0; i < symbols.size(); i++) {
+                this.ids.putIfAbsent(symbols.get(i), (long) i + DEFAULT_SYMBOLS_OFFSET);
+            }
+        }
+
+        public long insert(final String symbol) {
+            Long id = this.ids.get(symbol);
+            if (id == null) {
+                symbols.add(symbol);
+                id = (long) symbols.size() - 1 + DEFAULT_SYMBOLS_OFFSET;
+                this.ids.put(symbol, id);
+            }
+            return id;
+        }
+    }
+
+    public Index index() {
+        return new Index();
+    }
+
     public int currentOffset() {
         return this.symbols.size();
     }
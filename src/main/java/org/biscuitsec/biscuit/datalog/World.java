@@ -5,26 +5,75 @@ import io.vavr.Tuple2;
 import io.vavr.control.Either;
 
 import java.io.Serializable;
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class World implements Serializable {
    private final FactSet facts;
    private final RuleSet rules;
+   // facts added since the last complete run, only their consequences are generated by the next one
+   private FactSet pendingFacts;
+   private boolean saturated;
+   // number of iterations of the last run
+   private int iterations;
 
    public void add_fact(final Origin origin, final Fact fact) {
+      if (this.saturated && !this.facts.contains(origin, fact)) {
+         this.pendingFacts.add(origin, fact);
+      }
       this.facts.add(origin, fact);
    }
 
 
+   public void add_facts(final Origin origin, final Collection<Fact> facts) {
+      if (this.saturated) {
+         for (Fact fact : facts) {
+            if (!this.facts.contains(origin, fact)) {
+               this.pendingFacts.add(origin, fact);
+            }
+         }
+      }
+      this.facts.add_all(origin, facts);
+   }
+
    public void add_rule(Long origin, TrustedOrigins scope, Rule rule) {
       this.rules.add(origin, scope, rule);
+      this.saturated = false;
    }
 
    public void clearRules() {
       this.rules.clear();
+      this.saturated = false;
+   }
+
+   /**
+    * Indicates that the facts already contain all the consequences of the rules, like when
+    * they are restored from a snapshot, so the next run only evaluates the facts added after this call
+    */
+   public void mark_saturated() {
+      this.saturated = true;
+      this.pendingFacts = new FactSet();
+   }
+
+   /**
+    * Like {@link #mark_saturated()}, keeping the iteration count of the run that generated the facts
+    */
+   public void mark_saturated(int iterations) {
+      mark_saturated();
+      this.iterations = iterations;
+   }
+
+   /**
+    * @return the number of iterations of the last run that evaluated the rules
+    */
+   public int iterations() {
+      return this.iterations;
    }
 
    public void run(final SymbolTable symbols) throws Error {
@@ -32,37 +81,85 @@ public class World implements Serializable {
    }
 
    public void run(RunLimits limits, final SymbolTable symbols) throws Error {
+      this.run(limits, symbols, null);
+   }
+
+   /**
+    * Generates facts from the rules until no new fact can be found
+    * <p>
+    * Only the first iteration applies the rules to all the facts, the following ones
+    * only look for combinations containing facts generated by the previous iteration.
+    * If the world was already saturated by a previous run, the first iteration only
+    * considers the facts added since then, and there is nothing to do if there are none.
+    *
+    * @param stats execution statistics, can be null
+    */
+   public void run(RunLimits limits, final SymbolTable symbols, ExecutionStats stats) throws Error {
+      this.run(limits, symbols, stats, null);
+   }
+
+   /**
+    * Generates facts from the rules until no new fact can be found, see {@link #run(RunLimits, SymbolTable, ExecutionStats)}
+    * <p>
+    * With a pool, the rules of each iteration are evaluated in parallel: they all read the facts
+    * known at the start of the iteration and write in their own buffer, and the buffers are merged
+    * in rule order at the end of the iteration. If several rules fail, the error of the first one
+    * in that order is thrown, and the rules after it are interrupted.
+    *
+    * @param stats execution statistics, can be null
+    * @param pool  evaluates the rules in parallel, can be null
+    */
+   public void run(RunLimits limits, final SymbolTable symbols, ExecutionStats stats, ForkJoinPool pool) throws Error {
       int iterations = 0;
-      Instant limit = Instant.now().plus(limits.maxTime);
+      Deadline deadline = Deadline.after(limits.maxTime);
+
+      FactSet delta = null;
+      if (this.saturated) {
+         if (this.pendingFacts.size() == 0) {
+            return;
+         }
+         delta = this.pendingFacts;
+      }
+      this.saturated = false;
+      this.pendingFacts = new FactSet();
+      this.iterations = 0;
 
       while(true) {
-         final FactSet newFacts = new FactSet();
-
-         for(Map.Entry<TrustedOrigins, List<Tuple2<Long, Rule>>> entry: this.rules.rules.entrySet()) {
-            for(Tuple2<Long, Rule> t: entry.getValue()) {
-               Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier = () -> this.facts.stream(entry.getKey());
-
-               Stream<Either<Error, Tuple2<Origin, Fact>>> stream =  t._2.apply(factsSupplier, t._1, symbols);
-                for (Iterator<Either<Error, Tuple2<Origin, Fact>>> it = stream.iterator(); it.hasNext(); ) {
-                    Either<Error, Tuple2<Origin, Fact>> res = it.next();
-                    if(Instant.now().compareTo(limit) >= 0) {
-                       throw new Error.Timeout();
-                    }
-
-                    if(res.isRight()) {
-                       Tuple2<Origin, Fact> t2 = res.get();
-                       newFacts.add(t2._1, t2._2);
-                    } else {
-                        throw res.getLeft();
-                    }
-                }
+         final FactSet currentDelta = delta;
+         final Set<Long> deltaPredicates = new HashSet<>();
+         if (currentDelta != null) {
+            currentDelta.stream().forEach(f -> deltaPredicates.add(f.predicate().name()));
+         }
+
+         final FactSet newFacts;
+         if (pool == null) {
+            newFacts = new FactSet();
+            for(Map.Entry<TrustedOrigins, List<Tuple2<Long, Rule>>> entry: this.rules.rules.entrySet()) {
+               for(Tuple2<Long, Rule> t: entry.getValue()) {
+                  apply_rule(entry.getKey(), t, currentDelta, deltaPredicates, symbols, stats, deadline, newFacts, () -> false);
+               }
             }
+         } else {
+            newFacts = apply_rules_parallel(currentDelta, deltaPredicates, symbols, stats, deadline, pool);
          }
 
-         final int len = this.facts.size();
-         this.facts.merge(newFacts);
+         this.iterations++;
+         if (stats != null) {
+            stats.iterations++;
+         }
 
-         if (this.facts.size() == len) {
+         delta = new FactSet();
+         for (Map.Entry<Origin, HashSet<Fact>> entry : newFacts.facts().entrySet()) {
+            for (Fact f : entry.getValue()) {
+               if (!this.facts.contains(entry.getKey(), f)) {
+                  this.facts.add(entry.getKey(), f);
+                  delta.add(entry.getKey(), f);
+               }
+            }
+         }
+
+         if (delta.size() == 0) {
+            this.saturated = true;
             return ;
          }
 
@@ -77,6 +174,117 @@ public class World implements Serializable {
       }
    }
 
+   /**
+    * Applies one rule to the facts, or to the new facts in incremental mode, and writes the results in out
+    */
+   private void apply_rule(TrustedOrigins scope, Tuple2<Long, Rule> t, FactSet delta, Set<Long> deltaPredicates,
+                           SymbolTable symbols, ExecutionStats stats, Deadline deadline, FactSet out,
+                           BooleanSupplier cancelled) throws Error {
+      Supplier<Stream<Tuple2<Origin, Fact>>> factsSupplier = () -> this.facts.stream(scope);
+      long start = stats != null ? System.nanoTime() : 0;
+      long generated = 0;
+
+      Stream<Either<Error, Tuple2<Origin, Fact>>> stream;
+      if (delta == null) {
+         stream = t._2.apply(factsSupplier, t._1, symbols, stats, deadline);
+      } else {
+         stream = t._2.apply_incremental(() -> delta.stream(scope), factsSupplier, deltaPredicates, t._1, symbols,
+                 stats, deadline);
+      }
+      for (Iterator<Either<Error, Tuple2<Origin, Fact>>> it = stream.iterator(); it.hasNext(); ) {
+         Either<Error, Tuple2<Origin, Fact>> res = it.next();
+         deadline.check();
+         if (cancelled.getAsBoolean()) {
+            return;
+         }
+
+         if(res.isRight()) {
+            Tuple2<Origin, Fact> t2 = res.get();
+            out.add(t2._1, t2._2);
+            generated++;
+         } else {
+            throw res.getLeft();
+         }
+      }
+      // the enumeration stops early when the deadline expires
+      deadline.check();
+
+      if (stats != null) {
+         stats.recordRule(t._2, t._1, System.nanoTime() - start, generated);
+      }
+   }
+
+   private FactSet apply_rules_parallel(FactSet delta, Set<Long> deltaPredicates, SymbolTable symbols,
+                                        ExecutionStats stats, Deadline deadline, ForkJoinPool pool) throws Error {
+      List<Tuple2<TrustedOrigins, Tuple2<Long, Rule>>> tasks = new ArrayList<>();
+      for(Map.Entry<TrustedOrigins, List<Tuple2<Long, Rule>>> entry: this.rules.rules.entrySet()) {
+         for(Tuple2<Long, Rule> t: entry.getValue()) {
+            tasks.add(new Tuple2<>(entry.getKey(), t));
+         }
+      }
+
+      // index of the first failed rule, the rules after it can stop early
+      AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+      FactSet[] results = new FactSet[tasks.size()];
+      ExecutionStats[] taskStats = new ExecutionStats[tasks.size()];
+      Exception[] errors = new Exception[tasks.size()];
+
+      if (tasks.size() < 2) {
+         FactSet out = new FactSet();
+         for (Tuple2<TrustedOrigins, Tuple2<Long, Rule>> task : tasks) {
+            apply_rule(task._1, task._2, delta, deltaPredicates, symbols, stats, deadline, out, () -> false);
+         }
+         return out;
+      }
+
+      List<ForkJoinTask<?>> forks = new ArrayList<>(tasks.size());
+      for (int i = 0; i < tasks.size(); i++) {
+         final int index = i;
+         forks.add(ForkJoinTask.adapt(() -> {
+            Tuple2<TrustedOrigins, Tuple2<Long, Rule>> task = tasks.get(index);
+            FactSet out = new FactSet();
+            ExecutionStats s = stats != null ? new ExecutionStats() : null;
+            try {
+               apply_rule(task._1, task._2, delta, deltaPredicates, symbols, s, deadline.fork(), out,
+                       () -> firstFailure.get() < index);
+            } catch (Error | RuntimeException e) {
+               errors[index] = e;
+               firstFailure.accumulateAndGet(index, Math::min);
+            }
+            results[index] = out;
+            taskStats[index] = s;
+         }));
+      }
+
+      try {
+         pool.submit(() -> ForkJoinTask.invokeAll(forks)).get();
+      } catch (InterruptedException e) {
+         // the evaluation did not complete in time for the caller
+         Thread.currentThread().interrupt();
+         throw new Error.Timeout();
+      } catch (ExecutionException e) {
+         throw new Error.InternalError();
+      }
+
+      FactSet newFacts = new FactSet();
+      for (int i = 0; i < tasks.size(); i++) {
+         if (errors[i] instanceof Error) {
+            throw (Error) errors[i];
+         } else if (errors[i] != null) {
+            throw (RuntimeException) errors[i];
+         }
+         newFacts.merge(results[i]);
+         if (stats != null) {
+            stats.merge(taskStats[i]);
+         }
+      }
+      return newFacts;
+   }
+
+   /**
+    * @return the facts, which must not be modified: facts added to it directly are not evaluated
+    * by the next incremental run, they have to go through {@link #add_fact(Origin, Fact)}
+    */
    public final FactSet facts() {
       return this.facts;
    }
@@ -107,29 +315,53 @@ public class World implements Serializable {
       return rule.find_match(this.facts, origin, scope, symbols);
    }
 
+   /**
+    * @param stats    execution statistics, can be null
+    * @param deadline checked while enumerating the facts, can be null
+    */
+   public final boolean query_match(final Rule rule, Long origin, TrustedOrigins scope, SymbolTable symbols,
+                                    ExecutionStats stats, Deadline deadline) throws Error {
+      return rule.find_match(this.facts, origin, scope, symbols, stats, deadline);
+   }
+
    public final boolean query_match_all(final Rule rule, TrustedOrigins scope, SymbolTable symbols) throws Error {
       return rule.check_match_all(this.facts, scope, symbols);
    }
 
+   /**
+    * @param stats    execution statistics, can be null
+    * @param deadline checked while enumerating the facts, can be null
+    */
+   public final boolean query_match_all(final Rule rule, TrustedOrigins scope, SymbolTable symbols,
+                                        ExecutionStats stats, Deadline deadline) throws Error {
+      return rule.check_match_all(this.facts, scope, symbols, stats, deadline);
+   }
+
 
    public World() {
       this.facts = new FactSet();
       this.rules = new RuleSet();
+      this.pendingFacts = new FactSet();
    }
 
    public World(FactSet facts) {
       this.facts = facts.clone();
       this.rules = new RuleSet();
+      this.pendingFacts = new FactSet();
    }
 
    public World(FactSet facts, RuleSet rules) {
       this.facts = facts.clone();
       this.rules = rules.clone();
+      this.pendingFacts = new FactSet();
    }
 
    public World(World w) {
       this.facts = w.facts.clone();
       this.rules = w.rules.clone();
+      this.pendingFacts = w.pendingFacts.clone();
+      this.saturated = w.saturated;
+      this.iterations = w.iterations;
    }
 
    public String print(SymbolTable symbol_table) {
@@ -1,6 +1,7 @@
 package org.biscuitsec.biscuit.datalog.expressions;
 
 import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.datalog.ExecutionStats;
 import org.biscuitsec.biscuit.datalog.TemporarySymbolTable;
 import org.biscuitsec.biscuit.datalog.Term;
 import org.biscuitsec.biscuit.datalog.SymbolTable;
@@ -26,8 +27,18 @@ public class Expression {
 
     //FIXME: should return a Result<Term, error::Expression>
     public Term evaluate(Map<Long, Term> variables, TemporarySymbolTable symbols) throws Error.Execution {
+        return evaluate(variables, symbols, null);
+    }
+
+    /**
+     * @param stats counts the regular expressions evaluated, can be null
+     */
+    public Term evaluate(Map<Long, Term> variables, TemporarySymbolTable symbols, ExecutionStats stats) throws Error.Execution {
         Deque<Term> stack = new ArrayDeque<Term>(16); //Default value
         for(Op op: ops){
+            if (stats != null && op instanceof Op.Binary && ((Op.Binary) op).getOp() == Op.BinaryOp.Regex) {
+                stats.regexEvaluations++;
+            }
             op.evaluate(stack,variables, symbols);
         }
         if(stack.size() == 1){
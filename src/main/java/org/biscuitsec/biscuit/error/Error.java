@@ -438,6 +438,40 @@ public class Error extends Exception {
             return new JsonPrimitive("Sealed");
         }
     }
+    public static class Revoked extends Error {
+        final public long block;
+
+        public Revoked(long block) {
+            this.block = block;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Revoked other = (Revoked) o;
+            return block == other.block;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(block);
+        }
+
+        @Override
+        public String toString() {
+            return "Err(Revoked{ block: " + block + " }";
+        }
+
+        @Override
+        public JsonElement toJson() {
+            JsonObject child = new JsonObject();
+            child.addProperty("block", this.block);
+            JsonObject jo = new JsonObject();
+            jo.add("Revoked", child);
+            return jo;
+        }
+    }
     public static class FailedLogic extends Error {
         final public LogicError error;
 
@@ -1,9 +1,11 @@
 package org.biscuitsec.biscuit.error;
 
 import com.google.gson.*;
+import io.vavr.Lazy;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public class FailedCheck {
 
@@ -12,12 +14,23 @@ public class FailedCheck {
     public static class FailedBlock extends FailedCheck {
         final public long block_id;
         final public long check_id;
-        final public String rule;
+        private final Lazy<String> rule;
 
         public FailedBlock(long block_id, long check_id, String rule) {
+            this(block_id, check_id, () -> rule);
+        }
+
+        /**
+         * @param rule prints the check, only called when the message is needed
+         */
+        public FailedBlock(long block_id, long check_id, Supplier<String> rule) {
             this.block_id = block_id;
             this.check_id = check_id;
-            this.rule = rule;
+            this.rule = Lazy.of(rule);
+        }
+
+        public String rule() {
+            return this.rule.get();
         }
 
         @Override
@@ -25,12 +38,12 @@ public class FailedCheck {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             FailedBlock b = (FailedBlock) o;
-            return block_id == b.block_id && check_id == b.check_id && rule.equals(b.rule);
+            return block_id == b.block_id && check_id == b.check_id && rule().equals(b.rule());
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(block_id, check_id, rule);
+            return Objects.hash(block_id, check_id, rule());
         }
 
         @Override
@@ -43,7 +56,7 @@ public class FailedCheck {
             JsonObject jo = new JsonObject();
             jo.addProperty("block_id", block_id);
             jo.addProperty("check_id", check_id);
-            jo.addProperty("rule", rule);
+            jo.addProperty("rule", rule());
             JsonObject block = new JsonObject();
             block.add("Block", jo);
             return block;
@@ -52,11 +65,22 @@ public class FailedCheck {
 
     public static class FailedAuthorizer extends FailedCheck {
         final public long check_id;
-        final public String rule;
+        private final Lazy<String> rule;
 
         public FailedAuthorizer(long check_id, String rule) {
+            this(check_id, () -> rule);
+        }
+
+        /**
+         * @param rule prints the check, only called when the message is needed
+         */
+        public FailedAuthorizer(long check_id, Supplier<String> rule) {
             this.check_id = check_id;
-            this.rule = rule;
+            this.rule = Lazy.of(rule);
+        }
+
+        public String rule() {
+            return this.rule.get();
         }
 
         @Override
@@ -64,25 +88,25 @@ public class FailedCheck {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             FailedAuthorizer b = (FailedAuthorizer) o;
-            return check_id == b.check_id && rule.equals(b.rule);
+            return check_id == b.check_id && rule().equals(b.rule());
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(check_id, rule);
+            return Objects.hash(check_id, rule());
         }
 
         @Override
         public String toString() {
             return "FailedCaveat.FailedAuthorizer { check_id: "+check_id+
-                    ", rule: "+rule+" }";
+                    ", rule: "+rule()+" }";
         }
 
         @Override
         public JsonElement toJson() {
             JsonObject jo = new JsonObject();
             jo.addProperty("check_id", check_id);
-            jo.addProperty("rule", rule);
+            jo.addProperty("rule", rule());
             JsonObject authorizer = new JsonObject();
             authorizer.add("Authorizer", jo);
             return authorizer;
@@ -265,6 +265,46 @@ public class LogicError {
         }
     }
 
+    /**
+     * Returned instead of {@link Unauthorized} by fail fast authorization, when a check
+     * failed or a deny policy matched. It does not list the failed checks.
+     */
+    public static class Rejected extends LogicError {
+        /**
+         * the matching deny policy, or none if a check failed
+         */
+        final public Option<MatchedPolicy> policy;
+
+        public Rejected(Option<MatchedPolicy> policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Rejected other = (Rejected) o;
+            return policy.equals(other.policy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(policy);
+        }
+
+        @Override
+        public String toString() {
+            return "Rejected( policy = " + policy.map(MatchedPolicy::toString).getOrElse("none") + " )";
+        }
+
+        @Override
+        public JsonElement toJson() {
+            JsonObject jo = new JsonObject();
+            jo.add("Rejected", policy.isDefined() ? policy.get().toJson() : JsonNull.INSTANCE);
+            return jo;
+        }
+    }
+
     public static class AuthorizerNotEmpty extends LogicError {
 
         public AuthorizerNotEmpty() {
@@ -296,6 +336,18 @@ public class LogicError {
                 this.nb = nb;
             }
 
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (o == null || getClass() != o.getClass()) return false;
+                return nb == ((Allow) o).nb;
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(getClass(), nb);
+            }
+
             @Override
             public String toString(){
                 return "Allow("+this.nb+")";
@@ -314,6 +366,18 @@ public class LogicError {
                 this.nb = nb;
             }
 
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (o == null || getClass() != o.getClass()) return false;
+                return nb == ((Deny) o).nb;
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(getClass(), nb);
+            }
+
             @Override
             public String toString(){
                 return "Deny("+this.nb+")";
@@ -0,0 +1,119 @@
+package org.biscuitsec.biscuit.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reference listener aggregating events in lock free counters and histograms
+ * <p>
+ * It can be registered directly, then read periodically to export the values
+ * to a metrics system:
+ * <pre>
+ * CountingMetricsListener metrics = new CountingMetricsListener();
+ * Metrics.set_listener(metrics);
+ * ...
+ * long failures = metrics.authorize.failures();
+ * long p99 = metrics.authorize.nanos.percentile(0.99);
+ * </pre>
+ */
+public class CountingMetricsListener implements MetricsListener {
+    /**
+     * Outcomes and durations of one kind of operation
+     */
+    public static final class Operation {
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        public final Histogram nanos = new Histogram();
+
+        void record(long nanos, Exception error) {
+            this.nanos.record(nanos);
+            if (error == null) {
+                this.successes.increment();
+            } else {
+                this.failures.increment();
+                this.errors.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+            }
+        }
+
+        public long successes() {
+            return this.successes.sum();
+        }
+
+        public long failures() {
+            return this.failures.sum();
+        }
+
+        /**
+         * Number of failures by exception class simple name, like "FailedLogic" or "Timeout"
+         *
+         * @return
+         */
+        public Map<String, Long> errors() {
+            TreeMap<String, Long> res = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> e : this.errors.entrySet()) {
+                res.put(e.getKey(), e.getValue().sum());
+            }
+            return res;
+        }
+
+        @Override
+        public String toString() {
+            return "successes=" + successes() + " failures=" + failures() + " errors=" + errors() + " nanos={" + nanos + "}";
+        }
+    }
+
+    /**
+     * Total time of parsing and verification
+     */
+    public final Operation parse = new Operation();
+    public final Histogram verifyNanos = new Histogram();
+    public final Histogram tokenBytes = new Histogram();
+    public final Histogram tokenBlocks = new Histogram();
+
+    public final Operation attenuate = new Operation();
+    public final Histogram blockBytes = new Histogram();
+
+    public final Operation seal = new Operation();
+
+    public final Operation authorize = new Operation();
+    public final Histogram datalogNanos = new Histogram();
+
+    @Override
+    public void parsed(int bytes, int blocks, long parseNanos, long verifyNanos, Exception error) {
+        this.parse.record(parseNanos + verifyNanos, error);
+        if (error == null) {
+            this.verifyNanos.record(verifyNanos);
+            this.tokenBytes.record(bytes);
+            this.tokenBlocks.record(blocks);
+        }
+    }
+
+    @Override
+    public void attenuated(int bytes, int blocks, long nanos, Exception error) {
+        this.attenuate.record(nanos, error);
+        if (error == null) {
+            this.blockBytes.record(bytes);
+        }
+    }
+
+    @Override
+    public void sealed(int blocks, long nanos, Exception error) {
+        this.seal.record(nanos, error);
+    }
+
+    @Override
+    public void authorized(int blocks, long datalogNanos, long totalNanos, Exception error) {
+        this.authorize.record(totalNanos, error);
+        this.datalogNanos.record(datalogNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "CountingMetricsListener {\n\tparse: " + parse + "\n\tverify: {" + verifyNanos +
+                "}\n\ttoken bytes: {" + tokenBytes + "}\n\tattenuate: " + attenuate +
+                "\n\tseal: " + seal + "\n\tauthorize: " + authorize + "\n\tdatalog: {" + datalogNanos + "}\n}";
+    }
+}
@@ -0,0 +1,108 @@
+package org.biscuitsec.biscuit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of positive values, with power of two buckets
+ * <p>
+ * Bucket i counts the values v where 2^(i-1) &lt;= v &lt; 2^i, bucket 0 counts the values &lt;= 0.
+ * Percentiles are approximated by the upper bound of their bucket.
+ */
+public final class Histogram {
+    public static final int BUCKETS = 65;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        int bucket = value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+        this.buckets.incrementAndGet(bucket);
+        this.count.increment();
+        if (value > 0) {
+            this.sum.add(value);
+            if (value > this.max.get()) {
+                this.max.accumulateAndGet(value, Math::max);
+            }
+        }
+    }
+
+    public long count() {
+        return this.count.sum();
+    }
+
+    public long sum() {
+        return this.sum.sum();
+    }
+
+    public long max() {
+        return this.max.get();
+    }
+
+    public double mean() {
+        long c = count();
+        return c == 0 ? 0 : (double) sum() / c;
+    }
+
+    /**
+     * Upper bound of the bucket containing the requested percentile
+     *
+     * @param p percentile, between 0 and 1
+     * @return
+     */
+    public long percentile(double p) {
+        long[] b = buckets();
+        long total = 0;
+        for (long c : b) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < b.length; i++) {
+            seen += b[i];
+            if (seen >= rank && b[i] != 0) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Copy of the bucket counts
+     *
+     * @return
+     */
+    public long[] buckets() {
+        long[] res = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            res[i] = this.buckets.get(i);
+        }
+        return res;
+    }
+
+    /**
+     * Largest value counted in a bucket
+     *
+     * @param bucket
+     * @return
+     */
+    public static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        return bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " mean=" + (long) mean() + " p50=" + percentile(0.5)
+                + " p99=" + percentile(0.99) + " max=" + max();
+    }
+}
@@ -0,0 +1,27 @@
+package org.biscuitsec.biscuit.metrics;
+
+/**
+ * Process wide registration of the {@link MetricsListener}
+ * <p>
+ * Without a listener, operations are not timed
+ */
+public final class Metrics {
+    private static volatile MetricsListener listener;
+
+    private Metrics() {
+    }
+
+    /**
+     * @param l the listener called on each event, or null to remove it
+     */
+    public static void set_listener(MetricsListener l) {
+        listener = l;
+    }
+
+    /**
+     * @return the current listener, or null
+     */
+    public static MetricsListener listener() {
+        return listener;
+    }
+}
@@ -0,0 +1,55 @@
+package org.biscuitsec.biscuit.metrics;
+
+/**
+ * Receives token lifecycle events, registered with {@link Metrics#set_listener(MetricsListener)}
+ * <p>
+ * Methods are called synchronously on the thread doing the operation, so they should be fast and
+ * must not throw. The error argument is null when the operation succeeded, otherwise it is the
+ * exception thrown or returned to the caller, usually a subclass of
+ * {@link org.biscuitsec.biscuit.error.Error}.
+ */
+public interface MetricsListener {
+    /**
+     * A token was deserialized and its signatures verified
+     *
+     * @param bytes       size of the serialized token, 0 if it could not be parsed
+     * @param blocks      number of blocks, including the authority block, 0 if it could not be parsed
+     * @param parseNanos  time spent decoding the protobuf message
+     * @param verifyNanos time spent verifying the signatures
+     * @param error
+     */
+    default void parsed(int bytes, int blocks, long parseNanos, long verifyNanos, Exception error) {
+    }
+
+    /**
+     * A block was signed and appended to a token
+     *
+     * @param bytes  size of the new serialized block, 0 on failure
+     * @param blocks number of blocks of the new token
+     * @param nanos
+     * @param error
+     */
+    default void attenuated(int bytes, int blocks, long nanos, Exception error) {
+    }
+
+    /**
+     * A token was sealed
+     *
+     * @param blocks
+     * @param nanos
+     * @param error
+     */
+    default void sealed(int blocks, long nanos, Exception error) {
+    }
+
+    /**
+     * An authorizer ran its checks and policies
+     *
+     * @param blocks       number of token blocks, 0 without a token
+     * @param datalogNanos time spent generating facts from rules
+     * @param totalNanos   time spent in authorize, including the Datalog evaluation
+     * @param error
+     */
+    default void authorized(int blocks, long datalogNanos, long totalNanos, Exception error) {
+    }
+}
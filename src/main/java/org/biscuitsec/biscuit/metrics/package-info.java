@@ -0,0 +1,4 @@
+/**
+ * Hooks reporting token lifecycle events to a metrics system
+ */
+package org.biscuitsec.biscuit.metrics;
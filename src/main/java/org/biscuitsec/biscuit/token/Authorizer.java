@@ -5,7 +5,11 @@ import org.biscuitsec.biscuit.datalog.*;
 import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.error.FailedCheck;
 import org.biscuitsec.biscuit.error.LogicError;
+import org.biscuitsec.biscuit.metrics.Metrics;
+import org.biscuitsec.biscuit.metrics.MetricsListener;
 import org.biscuitsec.biscuit.token.builder.*;
+import biscuit.format.schema.Schema;
+import com.google.protobuf.InvalidProtocolBufferException;
 import io.vavr.Tuple2;
 import io.vavr.control.Either;
 import io.vavr.control.Option;
@@ -13,9 +17,18 @@ import org.biscuitsec.biscuit.datalog.Scope;
 import org.biscuitsec.biscuit.token.builder.Check;
 import org.biscuitsec.biscuit.token.builder.Term;
 import org.biscuitsec.biscuit.token.builder.parser.Parser;
+import org.biscuitsec.biscuit.token.builder.parser.ParserCache;
+import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static io.vavr.API.Left;
@@ -32,6 +45,18 @@ public class Authorizer {
     HashMap<Long, List<Long>> publicKeyToBlockId;
     World world;
     SymbolTable symbols;
+    boolean executionReportEnabled;
+    Option<ExecutionReport> executionReport = Option.none();
+    private long datalogNanos;
+    RunLimits limits = new RunLimits();
+    ForkJoinPool rulePool;
+    Executor checkExecutor;
+    boolean failFast;
+    // checks and policies added from prepared statements, already converted, by index
+    Map<Integer, org.biscuitsec.biscuit.datalog.Check> preparedChecks = new HashMap<>();
+    Map<Integer, org.biscuitsec.biscuit.datalog.Check> preparedPolicies = new HashMap<>();
+    // symbol translations of the token's blocks, created by block_symbols
+    private SymbolMap[] blockSymbols;
 
     private Authorizer(Biscuit token, World w) throws Error.FailedLogic {
         this.token = token;
@@ -83,8 +108,16 @@ public class Authorizer {
     }
 
     public Authorizer clone() {
-        return new Authorizer(this.token, new ArrayList<>(this.checks), new ArrayList<>(this.policies),
+        Authorizer a = new Authorizer(this.token, new ArrayList<>(this.checks), new ArrayList<>(this.policies),
                 new World(this.world), new SymbolTable(this.symbols));
+        a.executionReportEnabled = this.executionReportEnabled;
+        a.limits = this.limits;
+        a.rulePool = this.rulePool;
+        a.checkExecutor = this.checkExecutor;
+        a.failFast = this.failFast;
+        a.preparedChecks = new HashMap<>(this.preparedChecks);
+        a.preparedPolicies = new HashMap<>(this.preparedPolicies);
+        return a;
     }
 
     public void update_on_token() throws Error.FailedLogic {
@@ -112,18 +145,15 @@ public class Authorizer {
                     this.publicKeyToBlockId
             );
 
+            SymbolMap authoritySymbols = block_symbols(0);
             for (org.biscuitsec.biscuit.datalog.Fact fact : token.authority.facts) {
-                org.biscuitsec.biscuit.datalog.Fact converted_fact = org.biscuitsec.biscuit.token.builder.Fact.convert_from(fact, token.symbols).convert(this.symbols);
-                world.add_fact(new Origin(0), converted_fact);
+                world.add_fact(new Origin(0), authoritySymbols.fact(fact));
             }
             for (org.biscuitsec.biscuit.datalog.Rule rule : token.authority.rules) {
-                org.biscuitsec.biscuit.token.builder.Rule _rule = org.biscuitsec.biscuit.token.builder.Rule.convert_from(rule, token.symbols);
-                org.biscuitsec.biscuit.datalog.Rule converted_rule = _rule.convert(this.symbols);
-
-                Either<String, org.biscuitsec.biscuit.token.builder.Rule> res = _rule.validate_variables();
-                if(res.isLeft()){
-                    throw new Error.FailedLogic(new LogicError.InvalidBlockRule(0, token.symbols.print_rule(converted_rule)));
+                if (!rule.validate_variables()) {
+                    throw new Error.FailedLogic(new LogicError.InvalidBlockRule(0, token.symbols.print_rule(rule)));
                 }
+                org.biscuitsec.biscuit.datalog.Rule converted_rule = authoritySymbols.rule(rule);
                 TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
                         converted_rule.scopes(),
                         authorityTrustedOrigins,
@@ -142,23 +172,15 @@ public class Authorizer {
                         this.publicKeyToBlockId
                 );
 
-                SymbolTable blockSymbols = token.symbols;
-
-                if(block.externalKey.isDefined()) {
-                    blockSymbols = new SymbolTable(block.symbols.symbols, block.publicKeys());
-                }
+                SymbolMap blockSymbols = block_symbols((int) (i + 1));
 
                 for (org.biscuitsec.biscuit.datalog.Fact fact : block.facts) {
-                    org.biscuitsec.biscuit.datalog.Fact converted_fact = org.biscuitsec.biscuit.token.builder.Fact.convert_from(fact, blockSymbols).convert(this.symbols);
-                    world.add_fact(new Origin(i + 1), converted_fact);
+                    world.add_fact(new Origin(i + 1), blockSymbols.fact(fact));
                 }
 
                 for (org.biscuitsec.biscuit.datalog.Rule rule : block.rules) {
-                    org.biscuitsec.biscuit.token.builder.Rule _rule = org.biscuitsec.biscuit.token.builder.Rule.convert_from(rule, blockSymbols);
-                    org.biscuitsec.biscuit.datalog.Rule converted_rule = _rule.convert(this.symbols);
-
-                    Either<String, org.biscuitsec.biscuit.token.builder.Rule> res = _rule.validate_variables();
-                    if (res.isLeft()) {
+                    org.biscuitsec.biscuit.datalog.Rule converted_rule = blockSymbols.rule(rule);
+                    if (!rule.validate_variables()) {
                         throw new Error.FailedLogic(new LogicError.InvalidBlockRule(0, this.symbols.print_rule(converted_rule)));
                     }
                     TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
@@ -173,6 +195,34 @@ public class Authorizer {
         }
     }
 
+    /**
+     * Translation of the symbol ids of a block to the authorizer's symbol table
+     * <p>
+     * The blocks without an external key use the token's symbol table. The translations are
+     * kept, since the block checks are converted again on each call to authorize.
+     *
+     * @param blockId 0 for the authority block
+     */
+    private SymbolMap block_symbols(int blockId) {
+        if (this.blockSymbols == null || this.blockSymbols.length != token.blocks.size() + 1) {
+            this.blockSymbols = new SymbolMap[token.blocks.size() + 1];
+        }
+
+        SymbolMap map = this.blockSymbols[blockId];
+        if (map == null) {
+            Block block = blockId == 0 ? token.authority : token.blocks.get(blockId - 1);
+            if (blockId > 0 && block.externalKey.isDefined()) {
+                map = new SymbolMap(new SymbolTable(block.symbols.symbols, block.publicKeys()), this.symbols);
+            } else if (blockId > 0) {
+                map = block_symbols(0);
+            } else {
+                map = new SymbolMap(token.symbols, this.symbols);
+            }
+            this.blockSymbols[blockId] = map;
+        }
+        return map;
+    }
+
     public Authorizer add_token(Biscuit token) throws Error.FailedLogic {
         if (this.token != null) {
             throw new Error.FailedLogic(new LogicError.AuthorizerNotEmpty());
@@ -201,6 +251,65 @@ public class Authorizer {
         return this.add_fact(t._2);
     }
 
+    /**
+     * Adds facts from rows of values, without creating builder objects
+     * <p>
+     * Each row contains the terms of a fact, as String, Long, Integer, Boolean, Date, Instant,
+     * byte[] or Set of those values.
+     *
+     * @param name name of the facts
+     * @param rows values of the facts
+     */
+    public Authorizer add_facts(String name, Iterator<Object[]> rows) {
+        SymbolTable.Index index = this.symbols.index();
+        long predicate = index.insert(name);
+
+        List<org.biscuitsec.biscuit.datalog.Fact> facts = new ArrayList<>();
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            List<org.biscuitsec.biscuit.datalog.Term> terms = new ArrayList<>(row.length);
+            for (Object value : row) {
+                terms.add(term(index, value));
+            }
+            facts.add(new org.biscuitsec.biscuit.datalog.Fact(predicate, terms));
+        }
+
+        world.add_facts(Origin.authorizer(), facts);
+        return this;
+    }
+
+    public Authorizer add_facts(String name, Iterable<Object[]> rows) {
+        return add_facts(name, rows.iterator());
+    }
+
+    private static org.biscuitsec.biscuit.datalog.Term term(SymbolTable.Index index, Object value) {
+        if (value instanceof String) {
+            return new org.biscuitsec.biscuit.datalog.Term.Str(index.insert((String) value));
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return new org.biscuitsec.biscuit.datalog.Term.Integer(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            return new org.biscuitsec.biscuit.datalog.Term.Bool((Boolean) value);
+        } else if (value instanceof Date) {
+            return new org.biscuitsec.biscuit.datalog.Term.Date(((Date) value).getTime() / 1000);
+        } else if (value instanceof Instant) {
+            return new org.biscuitsec.biscuit.datalog.Term.Date(((Instant) value).getEpochSecond());
+        } else if (value instanceof byte[]) {
+            return new org.biscuitsec.biscuit.datalog.Term.Bytes((byte[]) value);
+        } else if (value instanceof Set) {
+            HashSet<org.biscuitsec.biscuit.datalog.Term> values = new HashSet<>();
+            for (Object v : (Set<?>) value) {
+                // sets cannot contain sets
+                if (v instanceof Set) {
+                    throw new IllegalArgumentException("unsupported fact value: set inside a set");
+                }
+                values.add(term(index, v));
+            }
+            return new org.biscuitsec.biscuit.datalog.Term.Set(values);
+        } else {
+            throw new IllegalArgumentException("unsupported fact value: " + (value == null ? null : value.getClass().getName()));
+        }
+    }
+
     public Authorizer add_rule(org.biscuitsec.biscuit.token.builder.Rule rule) {
        org.biscuitsec.biscuit.datalog.Rule r = rule.convert(symbols);
         TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
@@ -223,16 +332,28 @@ public class Authorizer {
     }
 
     public Authorizer add_rule(String s) throws Error.Parser {
-        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule>> res =
-                Parser.rule(s);
+        return add_rule(parse_rule(s));
+    }
+
+    /**
+     * Adds a rule, with its variables set to the parameters
+     */
+    public Authorizer add_rule(String s, Map<String, Term> parameters) throws Error.Parser, Error.Language {
+        return add_rule(parse_rule(s, parameters));
+    }
+
+    private static org.biscuitsec.biscuit.token.builder.Rule parse_rule(String s) throws Error.Parser {
+        Either<org.biscuitsec.biscuit.token.builder.parser.Error, org.biscuitsec.biscuit.token.builder.Rule> res = ParserCache.RULES.get(s);
 
         if (res.isLeft()) {
             throw new Error.Parser(res.getLeft());
         }
 
-        Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule> t = res.get();
+        return res.get();
+    }
 
-        return add_rule(t._2);
+    private static org.biscuitsec.biscuit.token.builder.Rule parse_rule(String s, Map<String, Term> parameters) throws Error.Parser, Error.Language {
+        return org.biscuitsec.biscuit.token.builder.Rule.bind(List.of(parse_rule(s)), parameters).get(0);
     }
 
     public Authorizer add_check(org.biscuitsec.biscuit.token.builder.Check check) {
@@ -241,16 +362,40 @@ public class Authorizer {
     }
 
     public Authorizer add_check(String s) throws Error.Parser {
-        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Tuple2<String, org.biscuitsec.biscuit.token.builder.Check>> res =
-                Parser.check(s);
+        return add_check(parse_check(s));
+    }
+
+    /**
+     * Adds a check, with its variables set to the parameters
+     */
+    public Authorizer add_check(String s, Map<String, Term> parameters) throws Error.Parser, Error.Language {
+        return add_check(parse_check(s).bind(parameters));
+    }
+
+    /**
+     * Adds a prepared check with the values of its parameters
+     */
+    public Authorizer add_check(PreparedStatement.Bindings bindings) {
+        expect(bindings, PreparedStatement.Kind.Check);
+        this.preparedChecks.put(this.checks.size(), bindings.convert(this.symbols));
+        this.checks.add(bindings.check());
+        return this;
+    }
+
+    private static void expect(PreparedStatement.Bindings bindings, PreparedStatement.Kind kind) {
+        if (bindings.statement.kind != kind) {
+            throw new IllegalArgumentException("expected a prepared " + kind + ", got a " + bindings.statement.kind);
+        }
+    }
+
+    private static org.biscuitsec.biscuit.token.builder.Check parse_check(String s) throws Error.Parser {
+        Either<org.biscuitsec.biscuit.token.builder.parser.Error, org.biscuitsec.biscuit.token.builder.Check> res = ParserCache.CHECKS.get(s);
 
         if (res.isLeft()) {
             throw new Error.Parser(res.getLeft());
         }
 
-        Tuple2<String, org.biscuitsec.biscuit.token.builder.Check> t = res.get();
-
-        return add_check(t._2);
+        return res.get();
     }
 
     public Authorizer set_time() throws Error.Language {
@@ -307,17 +452,36 @@ public class Authorizer {
     }
 
     public Authorizer add_policy(String s) throws Error.Parser {
-        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Tuple2<String, Policy>> res =
-                Parser.policy(s);
+        this.policies.add(parse_policy(s));
+        return this;
+    }
+
+    /**
+     * Adds a policy, with its variables set to the parameters
+     */
+    public Authorizer add_policy(String s, Map<String, Term> parameters) throws Error.Parser, Error.Language {
+        this.policies.add(parse_policy(s).bind(parameters));
+        return this;
+    }
+
+    /**
+     * Adds a prepared policy with the values of its parameters
+     */
+    public Authorizer add_policy(PreparedStatement.Bindings bindings) {
+        expect(bindings, PreparedStatement.Kind.Policy);
+        this.preparedPolicies.put(this.policies.size(), bindings.convert(this.symbols));
+        this.policies.add(bindings.policy());
+        return this;
+    }
+
+    private static Policy parse_policy(String s) throws Error.Parser {
+        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Policy> res = ParserCache.POLICIES.get(s);
 
         if (res.isLeft()) {
             throw new Error.Parser(res.getLeft());
         }
 
-        Tuple2<String, Policy> t = res.get();
-
-        this.policies.add(t._2);
-        return this;
+        return res.get();
     }
 
     public Authorizer add_policy(Policy p) {
@@ -335,22 +499,35 @@ public class Authorizer {
     }
 
     public Set<org.biscuitsec.biscuit.token.builder.Fact> query(String s) throws Error {
-        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule>> res =
-                Parser.rule(s);
+        return query(parse_rule(s));
+    }
 
-        if (res.isLeft()) {
-            throw new Error.Parser(res.getLeft());
-        }
+    /**
+     * Runs a query, with its variables set to the parameters
+     */
+    public Set<org.biscuitsec.biscuit.token.builder.Fact> query(String s, Map<String, Term> parameters) throws Error {
+        return query(parse_rule(s, parameters));
+    }
 
-        Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule> t = res.get();
+    /**
+     * Runs a prepared query with the values of its parameters
+     */
+    public Set<org.biscuitsec.biscuit.token.builder.Fact> query(PreparedStatement.Bindings bindings) throws Error {
+        return query(bindings, new RunLimits());
+    }
 
-        return query(t._2);
+    public Set<org.biscuitsec.biscuit.token.builder.Fact> query(PreparedStatement.Bindings bindings, RunLimits limits) throws Error {
+        expect(bindings, PreparedStatement.Kind.Query);
+        world.run(limits, symbols, null, this.rulePool);
+        return query_rule(bindings.convert(this.symbols).queries().get(0));
     }
 
     public Set<org.biscuitsec.biscuit.token.builder.Fact> query(org.biscuitsec.biscuit.token.builder.Rule query, RunLimits limits) throws Error {
-        world.run(limits, symbols);
+        world.run(limits, symbols, null, this.rulePool);
+        return query_rule(query.convert(symbols));
+    }
 
-        org.biscuitsec.biscuit.datalog.Rule rule = query.convert(symbols);
+    private Set<org.biscuitsec.biscuit.token.builder.Fact> query_rule(org.biscuitsec.biscuit.datalog.Rule rule) throws Error {
         TrustedOrigins ruleTrustedorigins = TrustedOrigins.fromScopes(
                 rule.scopes(),
                 TrustedOrigins.defaultOrigins(),
@@ -371,66 +548,260 @@ public class Authorizer {
     }
 
     public Set<org.biscuitsec.biscuit.token.builder.Fact> query(String s, RunLimits limits) throws Error {
-        Either<org.biscuitsec.biscuit.token.builder.parser.Error, Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule>> res =
-                Parser.rule(s);
+        return query(parse_rule(s), limits);
+    }
 
-        if (res.isLeft()) {
-            throw new Error.Parser(res.getLeft());
-        }
+    public Long authorize() throws Error {
+        return this.authorize(this.limits);
+    }
+
+    /**
+     * Sets the limits used by {@link #authorize()}
+     *
+     * @param limits
+     * @return
+     */
+    public Authorizer set_limits(RunLimits limits) {
+        this.limits = limits;
+        return this;
+    }
 
-        Tuple2<String, org.biscuitsec.biscuit.token.builder.Rule> t = res.get();
+    public RunLimits limits() {
+        return this.limits;
+    }
 
-        return query(t._2, limits);
+    /**
+     * Evaluates the rules of each Datalog iteration in parallel on this pool
+     * <p>
+     * This helps with large rule sets, for small ones the synchronization costs more than
+     * the evaluation. The results do not depend on the pool.
+     *
+     * @param pool the pool, or null to evaluate the rules on the calling thread
+     * @return
+     */
+    public Authorizer set_rule_pool(ForkJoinPool pool) {
+        this.rulePool = pool;
+        return this;
     }
 
-    public Long authorize() throws Error {
-        return this.authorize(new RunLimits());
+    /**
+     * Evaluates the checks and policies in parallel on this executor, once the rules are applied
+     * <p>
+     * The failed checks are reported in the same order, and the first matching policy is the same
+     * as with a sequential evaluation. The policies after a matching one are cancelled.
+     *
+     * @param executor the executor, or null to evaluate the checks on the calling thread
+     * @return
+     */
+    public Authorizer set_check_executor(Executor executor) {
+        this.checkExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Stops authorization at the first failed check or matching deny policy
+     * <p>
+     * The remaining checks are not evaluated and the failed checks are not printed:
+     * authorize throws {@link LogicError.Rejected} instead of {@link LogicError.Unauthorized}.
+     * To get the list of failed checks, call authorize again after disabling this mode,
+     * the facts generated by the first call are reused.
+     *
+     * @param failFast
+     * @return
+     */
+    public Authorizer set_fail_fast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /**
+     * Collects execution statistics on the next calls to authorize
+     * <p>
+     * Without it, authorization does not measure anything
+     *
+     * @return
+     */
+    public Authorizer enable_execution_report() {
+        this.executionReportEnabled = true;
+        return this;
+    }
+
+    /**
+     * Statistics of the last call to authorize, if {@link #enable_execution_report()} was called before
+     *
+     * @return
+     */
+    public Option<ExecutionReport> execution_report() {
+        return this.executionReport;
     }
 
     public Long authorize(RunLimits limits) throws Error {
-        Instant timeLimit = Instant.now().plus(limits.maxTime);
+        MetricsListener listener = Metrics.listener();
+        if (listener == null) {
+            return authorize_reported(limits);
+        }
+
+        int blocks = this.token == null ? 0 : 1 + this.token.blocks.size();
+        this.datalogNanos = 0;
+        long start = System.nanoTime();
+        try {
+            Long res = authorize_reported(limits);
+            listener.authorized(blocks, this.datalogNanos, System.nanoTime() - start, null);
+            return res;
+        } catch (Error | RuntimeException e) {
+            listener.authorized(blocks, this.datalogNanos, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    private Long authorize_reported(RunLimits limits) throws Error {
+        if (!this.executionReportEnabled) {
+            return authorize(limits, null, null, null);
+        }
+
+        ExecutionStats stats = new ExecutionStats();
+        List<ExecutionReport.CheckTiming> checkTimings = new ArrayList<>();
+        List<ExecutionReport.CheckTiming> policyTimings = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            return authorize(limits, stats, checkTimings, policyTimings);
+        } finally {
+            this.executionReport = Option.some(new ExecutionReport(stats, this.world.facts(), this.symbols,
+                    checkTimings, policyTimings, System.nanoTime() - start));
+        }
+    }
+
+    private Long authorize(RunLimits limits, ExecutionStats stats, List<ExecutionReport.CheckTiming> checkTimings,
+                           List<ExecutionReport.CheckTiming> policyTimings) throws Error {
+        Deadline deadline = Deadline.after(limits.maxTime);
         List<FailedCheck> errors = new LinkedList<>();
         Option<Either<Integer, Integer>> policy_result = Option.none();
 
-        TrustedOrigins authorizerTrustedOrigins = this.authorizerTrustedOrigins();
+        long runStart = System.nanoTime();
+        try {
+            world.run(limits, symbols, stats, this.rulePool);
+        } finally {
+            this.datalogNanos = System.nanoTime() - runStart;
+        }
 
-        world.run(limits, symbols);
+        // converting adds symbols to the authorizer's table, so it is done before evaluating anything
+        List<PreparedCheck> prepared = this.prepare_checks();
+        Boolean[] results = new Boolean[prepared.size()];
+        long[] nanos = new long[prepared.size()];
+
+        if (this.checkExecutor == null) {
+            boolean matched = false;
+            for (int i = 0; i < prepared.size(); i++) {
+                PreparedCheck c = prepared.get(i);
+                if (c.isPolicy() && matched) {
+                    continue;
+                }
+                long start = stats != null ? System.nanoTime() : 0;
+                results[i] = evaluate(c, deadline, stats, () -> false);
+                nanos[i] = stats != null ? System.nanoTime() - start : 0;
+                matched |= c.isPolicy() && results[i];
+                if (rejects(c, results[i])) {
+                    break;
+                }
+            }
+        } else {
+            evaluate_parallel(prepared, deadline, stats, results, nanos);
+        }
 
-        for (int i = 0; i < this.checks.size(); i++) {
-            org.biscuitsec.biscuit.datalog.Check c = this.checks.get(i).convert(symbols);
-            boolean successful = false;
+        for (int i = 0; i < prepared.size(); i++) {
+            PreparedCheck c = prepared.get(i);
+            if (results[i] == null || (c.isPolicy() && policy_result.isDefined())) {
+                continue;
+            }
 
-            for (int j = 0; j < c.queries().size(); j++) {
-                boolean res = false;
-                org.biscuitsec.biscuit.datalog.Rule query = c.queries().get(j);
-                TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
-                        query.scopes(),
-                        authorizerTrustedOrigins,
-                        Long.MAX_VALUE,
-                        this.publicKeyToBlockId
-                );
-                switch (c.kind()) {
-                    case One:
-                        res = world.query_match(query, Long.MAX_VALUE, ruleTrustedOrigins, symbols);
-                        break;
-                    case All:
-                        res = world.query_match_all(query, ruleTrustedOrigins, symbols);
-                        break;
-                }
+            if (stats != null) {
+                (c.isPolicy() ? policyTimings : checkTimings).add(
+                        new ExecutionReport.CheckTiming(label(c), nanos[i], results[i]));
+            }
+
+            if (rejects(c, results[i])) {
+                throw new Error.FailedLogic(new LogicError.Rejected(c.isPolicy()
+                        ? Option.some(new LogicError.MatchedPolicy.Deny(c.index))
+                        : Option.none()));
+            }
 
-                if (Instant.now().compareTo(timeLimit) >= 0) {
-                    throw new Error.Timeout();
+            if (c.isPolicy()) {
+                if (results[i]) {
+                    if (this.policies.get(c.index).kind == Policy.Kind.Allow) {
+                        policy_result = Option.some(Right(c.index));
+                    } else {
+                        policy_result = Option.some(Left(c.index));
+                    }
                 }
+            } else if (!results[i]) {
+                // the check is printed only if the error message is used
+                SymbolTable symbols = this.symbols;
+                if (c.blockId == Long.MAX_VALUE) {
+                    errors.add(new FailedCheck.FailedAuthorizer(c.index, () -> symbols.print_check(c.check)));
+                } else {
+                    errors.add(new FailedCheck.FailedBlock(c.blockId, c.index, () -> symbols.print_check(c.check)));
+                }
+            }
+        }
 
-                if (res) {
-                    successful = true;
-                    break;
+        if (policy_result.isDefined()) {
+            Either<Integer, Integer> e = policy_result.get();
+            if (e.isRight()) {
+                if (errors.isEmpty()) {
+                    return e.get().longValue();
+                } else {
+                    throw new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Allow(e.get()), errors));
                 }
+            } else {
+                throw new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Deny(e.getLeft()), errors));
             }
+        } else {
+            throw new Error.FailedLogic(new LogicError.NoMatchingPolicy(errors));
+        }
+    }
+
+    /**
+     * A check or a policy converted to the authorizer's symbol table, with the origins trusted by each query
+     */
+    private static final class PreparedCheck {
+        /**
+         * Long.MAX_VALUE for the authorizer's checks and policies
+         */
+        final long blockId;
+        final int index;
+        final boolean policy;
+        final org.biscuitsec.biscuit.datalog.Check check;
+        final List<TrustedOrigins> trustedOrigins;
+
+        PreparedCheck(long blockId, int index, boolean policy, org.biscuitsec.biscuit.datalog.Check check,
+                      List<TrustedOrigins> trustedOrigins) {
+            this.blockId = blockId;
+            this.index = index;
+            this.policy = policy;
+            this.check = check;
+            this.trustedOrigins = trustedOrigins;
+        }
+
+        boolean isPolicy() {
+            return this.policy;
+        }
+    }
+
+    /**
+     * Converts the checks and policies in the order they are evaluated: authorizer checks,
+     * authority checks, policies, then the checks of the other blocks
+     */
+    private List<PreparedCheck> prepare_checks() {
+        List<PreparedCheck> prepared = new ArrayList<>();
+        TrustedOrigins authorizerTrustedOrigins = this.authorizerTrustedOrigins();
 
-            if (!successful) {
-                errors.add(new FailedCheck.FailedAuthorizer(i, symbols.print_check(c)));
+        for (int i = 0; i < this.checks.size(); i++) {
+            org.biscuitsec.biscuit.datalog.Check c = this.preparedChecks.get(i);
+            if (c == null) {
+                c = this.checks.get(i).convert(symbols);
             }
+            prepared.add(new PreparedCheck(Long.MAX_VALUE, i, false, c,
+                    trusted_origins(c.queries(), authorizerTrustedOrigins, Long.MAX_VALUE)));
         }
 
         if (token != null) {
@@ -439,75 +810,30 @@ public class Authorizer {
                     TrustedOrigins.defaultOrigins(),
                     0,
                     this.publicKeyToBlockId
-                );
+            );
 
+            SymbolMap authoritySymbols = block_symbols(0);
             for (int j = 0; j < token.authority.checks.size(); j++) {
-                boolean successful = false;
-
-                org.biscuitsec.biscuit.token.builder.Check c = org.biscuitsec.biscuit.token.builder.Check.convert_from(token.authority.checks.get(j), token.symbols);
-                org.biscuitsec.biscuit.datalog.Check check = c.convert(symbols);
-
-                for (int k = 0; k < check.queries().size(); k++) {
-                    boolean res = false;
-                    org.biscuitsec.biscuit.datalog.Rule query = check.queries().get(k);
-                    TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
-                            query.scopes(),
-                            authorityTrustedOrigins,
-                            0,
-                            this.publicKeyToBlockId
-                    );
-                    switch (check.kind()) {
-                        case One:
-                            res = world.query_match(query, (long)0, ruleTrustedOrigins, symbols);
-                            break;
-                        case All:
-                            res = world.query_match_all(query, ruleTrustedOrigins, symbols);
-                            break;
-                    }
-
-                    if (Instant.now().compareTo(timeLimit) >= 0) {
-                        throw new Error.Timeout();
-                    }
-
-                    if (res) {
-                        successful = true;
-                        break;
-                    }
-                }
-
-                if (!successful) {
-                    errors.add(new FailedCheck.FailedBlock(0, j, symbols.print_check(check)));
-                }
+                org.biscuitsec.biscuit.datalog.Check check = authoritySymbols.check(token.authority.checks.get(j));
+                prepared.add(new PreparedCheck(0, j, false, check,
+                        trusted_origins(check.queries(), authorityTrustedOrigins, 0)));
             }
         }
 
-        policies_test:
         for (int i = 0; i < this.policies.size(); i++) {
-            Policy policy = this.policies.get(i);
-
-            for (int j = 0; j < policy.queries.size(); j++) {
-                org.biscuitsec.biscuit.datalog.Rule query = policy.queries.get(j).convert(symbols);
-                TrustedOrigins policyTrustedOrigins = TrustedOrigins.fromScopes(
-                        query.scopes(),
-                        authorizerTrustedOrigins,
-                        Long.MAX_VALUE,
-                        this.publicKeyToBlockId
-                );
-                boolean res = world.query_match(query, Long.MAX_VALUE, policyTrustedOrigins, symbols);
-
-                if (Instant.now().compareTo(timeLimit) >= 0) {
-                    throw new Error.Timeout();
-                }
-
-                if (res) {
-                    if (this.policies.get(i).kind == Policy.Kind.Allow) {
-                        policy_result = Option.some(Right(i));
-                    } else {
-                        policy_result = Option.some(Left(i));
-                    }
-                    break policies_test;
+            List<org.biscuitsec.biscuit.datalog.Rule> queries;
+            org.biscuitsec.biscuit.datalog.Check preparedPolicy = this.preparedPolicies.get(i);
+            if (preparedPolicy != null) {
+                queries = preparedPolicy.queries();
+            } else {
+                queries = new ArrayList<>();
+                for (org.biscuitsec.biscuit.token.builder.Rule query : this.policies.get(i).queries) {
+                    queries.add(query.convert(symbols));
                 }
             }
+            prepared.add(new PreparedCheck(Long.MAX_VALUE, i, true,
+                    new org.biscuitsec.biscuit.datalog.Check(org.biscuitsec.biscuit.datalog.Check.Kind.One, queries),
+                    trusted_origins(queries, authorizerTrustedOrigins, Long.MAX_VALUE)));
         }
 
         if (token != null) {
@@ -519,66 +845,439 @@ public class Authorizer {
                         i+1,
                         this.publicKeyToBlockId
                 );
-                SymbolTable blockSymbols = token.symbols;
-                if(b.externalKey.isDefined()) {
-                    blockSymbols = new SymbolTable(b.symbols.symbols, b.publicKeys());
-                }
+                SymbolMap blockSymbols = block_symbols(i + 1);
 
                 for (int j = 0; j < b.checks.size(); j++) {
-                    boolean successful = false;
-
-                    org.biscuitsec.biscuit.token.builder.Check c = org.biscuitsec.biscuit.token.builder.Check.convert_from(b.checks.get(j), blockSymbols);
-                    org.biscuitsec.biscuit.datalog.Check check = c.convert(symbols);
-
-                    for (int k = 0; k < check.queries().size(); k++) {
-                        boolean res = false;
-                        org.biscuitsec.biscuit.datalog.Rule query = check.queries().get(k);
-                        TrustedOrigins ruleTrustedOrigins = TrustedOrigins.fromScopes(
-                                query.scopes(),
-                                blockTrustedOrigins,
-                                i+1,
-                                this.publicKeyToBlockId
-                        );
-                        switch (check.kind()) {
-                            case One:
-                                res = world.query_match(query, (long)i+1, ruleTrustedOrigins, symbols);
-                                break;
-                            case All:
-                                res = world.query_match_all(query, ruleTrustedOrigins, symbols);
-                                break;
-                        }
+                    org.biscuitsec.biscuit.datalog.Check check = blockSymbols.check(b.checks.get(j));
+                    prepared.add(new PreparedCheck(i + 1, j, false, check,
+                            trusted_origins(check.queries(), blockTrustedOrigins, i + 1)));
+                }
+            }
+        }
 
-                        if (Instant.now().compareTo(timeLimit) >= 0) {
-                            throw new Error.Timeout();
-                        }
+        return prepared;
+    }
+
+    private List<TrustedOrigins> trusted_origins(List<org.biscuitsec.biscuit.datalog.Rule> queries,
+                                                 TrustedOrigins defaultOrigins, long origin) {
+        List<TrustedOrigins> trustedOrigins = new ArrayList<>(queries.size());
+        for (org.biscuitsec.biscuit.datalog.Rule query : queries) {
+            trustedOrigins.add(TrustedOrigins.fromScopes(
+                    query.scopes(),
+                    defaultOrigins,
+                    origin,
+                    this.publicKeyToBlockId
+            ));
+        }
+        return trustedOrigins;
+    }
+
+    /**
+     * Evaluates the queries of a check or policy against the saturated world
+     *
+     * @param cancelled checked between queries, to stop once the result is not needed anymore
+     * @return true if one of the queries succeeded
+     */
+    private boolean evaluate(PreparedCheck c, Deadline deadline, ExecutionStats stats,
+                             BooleanSupplier cancelled) throws Error {
+        for (int j = 0; j < c.check.queries().size() && !cancelled.getAsBoolean(); j++) {
+            boolean res = false;
+            org.biscuitsec.biscuit.datalog.Rule query = c.check.queries().get(j);
+            TrustedOrigins ruleTrustedOrigins = c.trustedOrigins.get(j);
+            switch (c.check.kind()) {
+                case One:
+                    res = world.query_match(query, c.blockId, ruleTrustedOrigins, symbols, stats, deadline);
+                    break;
+                case All:
+                    res = world.query_match_all(query, ruleTrustedOrigins, symbols, stats, deadline);
+                    break;
+            }
 
-                        if (res) {
-                            successful = true;
-                            break;
+            deadline.check();
+
+            if (res) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates each check and policy as a separate task on the check executor
+     * <p>
+     * The results are the same as a sequential evaluation: once a policy matches, the following
+     * policies are cancelled, and once a task fails, the tasks after it are cancelled, so the
+     * error thrown is the first one in evaluation order
+     */
+    private void evaluate_parallel(List<PreparedCheck> prepared, Deadline deadline, ExecutionStats stats,
+                                   Boolean[] results, long[] nanos) throws Error {
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicInteger firstPolicy = new AtomicInteger(Integer.MAX_VALUE);
+        ExecutionStats[] taskStats = new ExecutionStats[prepared.size()];
+        Exception[] failures = new Exception[prepared.size()];
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[prepared.size()];
+        for (int i = 0; i < prepared.size(); i++) {
+            final int index = i;
+            final PreparedCheck c = prepared.get(i);
+            BooleanSupplier cancelled = () -> firstFailure.get() < index
+                    || (c.isPolicy() && firstPolicy.get() < c.index);
+
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                ExecutionStats s = stats != null ? new ExecutionStats() : null;
+                long start = System.nanoTime();
+                try {
+                    boolean res = evaluate(c, deadline.fork(), s, cancelled);
+                    if (!cancelled.getAsBoolean()) {
+                        results[index] = res;
+                        nanos[index] = System.nanoTime() - start;
+                        if (c.isPolicy() && res) {
+                            firstPolicy.accumulateAndGet(c.index, Math::min);
+                        } else if (rejects(c, res)) {
+                            firstFailure.accumulateAndGet(index, Math::min);
                         }
                     }
+                } catch (Error | RuntimeException e) {
+                    failures[index] = e;
+                    firstFailure.accumulateAndGet(index, Math::min);
+                }
+                taskStats[index] = s;
+            }, this.checkExecutor);
+        }
 
-                    if (!successful) {
-                        errors.add(new FailedCheck.FailedBlock(i + 1, j, symbols.print_check(check)));
-                    }
+        try {
+            CompletableFuture.allOf(tasks).get();
+        } catch (InterruptedException e) {
+            // the evaluation did not complete in time for the caller
+            Thread.currentThread().interrupt();
+            throw new Error.Timeout();
+        } catch (ExecutionException e) {
+            throw new Error.InternalError();
+        }
+
+        boolean matched = false;
+        for (int i = 0; i < prepared.size(); i++) {
+            // a sequential evaluation does not run the policies after a matching one
+            PreparedCheck c = prepared.get(i);
+            if (c.isPolicy() && matched) {
+                results[i] = null;
+                continue;
+            }
+
+            if (failures[i] instanceof Error) {
+                throw (Error) failures[i];
+            } else if (failures[i] != null) {
+                throw (RuntimeException) failures[i];
+            }
+            if (stats != null && taskStats[i] != null) {
+                stats.merge(taskStats[i]);
+            }
+
+            // a sequential evaluation would stop here, the errors of the next tasks are ignored
+            if (results[i] != null) {
+                if (rejects(c, results[i])) {
+                    break;
                 }
+                matched |= c.isPolicy() && results[i];
             }
         }
+    }
 
-        if (policy_result.isDefined()) {
-            Either<Integer, Integer> e = policy_result.get();
-            if (e.isRight()) {
-                if (errors.isEmpty()) {
-                    return e.get().longValue();
+    /**
+     * In fail fast mode, tells if this result ends the authorization. It is not called for
+     * the policies following a matching one.
+     */
+    private boolean rejects(PreparedCheck c, boolean result) {
+        if (!this.failFast) {
+            return false;
+        }
+        if (c.isPolicy()) {
+            return result && this.policies.get(c.index).kind == Policy.Kind.Deny;
+        }
+        return !result;
+    }
+
+    private String label(PreparedCheck c) {
+        if (c.isPolicy()) {
+            return "Policy[" + c.index + "]: " + this.policies.get(c.index);
+        } else if (c.blockId == Long.MAX_VALUE) {
+            return "Authorizer[" + c.index + "]: " + this.checks.get(c.index).toString();
+        } else {
+            return "Block[" + c.blockId + "][" + c.index + "]: " + symbols.print_check(c.check);
+        }
+    }
+
+    /**
+     * Captures the state of the authorizer, including the facts generated by its rules, so that it
+     * can be restored with {@link #from_snapshot(Schema.AuthorizerSnapshot)} without evaluating them again
+     * <p>
+     * The token's blocks are stored with their facts, rules, checks and scopes, but not their signatures
+     *
+     * @return
+     */
+    public Schema.AuthorizerSnapshot snapshot() {
+        Schema.AuthorizerWorld.Builder w = Schema.AuthorizerWorld.newBuilder()
+                .setVersion(SerializedBiscuit.MAX_SCHEMA_VERSION)
+                .setIterations(this.world.iterations());
+
+        if (this.token != null) {
+            w.addBlocks(snapshot_block(this.token.authority, this.token.symbols));
+            for (Block b : this.token.blocks) {
+                SymbolTable blockSymbols = this.token.symbols;
+                if (b.externalKey.isDefined()) {
+                    blockSymbols = new SymbolTable(b.symbols.symbols, b.publicKeys());
+                }
+                w.addBlocks(snapshot_block(b, blockSymbols));
+            }
+        }
+
+        Schema.SnapshotBlock.Builder authorizerBlock = Schema.SnapshotBlock.newBuilder()
+                .setVersion(SerializedBiscuit.MAX_SCHEMA_VERSION);
+        for (List<Tuple2<Long, org.biscuitsec.biscuit.datalog.Rule>> rules : this.world.rules().rules.values()) {
+            for (Tuple2<Long, org.biscuitsec.biscuit.datalog.Rule> t : rules) {
+                if (t._1 == Long.MAX_VALUE) {
+                    authorizerBlock.addRulesV2(t._2.serialize());
+                }
+            }
+        }
+        for (Check c : this.checks) {
+            authorizerBlock.addChecksV2(c.convert(this.symbols).serialize());
+        }
+        for (Scope scope : this.scopes) {
+            authorizerBlock.addScope(scope.serialize());
+        }
+        w.setAuthorizerBlock(authorizerBlock);
+
+        for (Policy p : this.policies) {
+            Schema.Policy.Builder policy = Schema.Policy.newBuilder()
+                    .setKind(p.kind == Policy.Kind.Allow ? Schema.Policy.Kind.Allow : Schema.Policy.Kind.Deny);
+            for (org.biscuitsec.biscuit.token.builder.Rule q : p.queries) {
+                policy.addQueries(q.convert(this.symbols).serialize());
+            }
+            w.addAuthorizerPolicies(policy);
+        }
+
+        for (Map.Entry<Origin, HashSet<org.biscuitsec.biscuit.datalog.Fact>> entry : this.world.facts().facts().entrySet()) {
+            Schema.GeneratedFacts.Builder generated = Schema.GeneratedFacts.newBuilder();
+            for (Long o : new TreeSet<>(entry.getKey().inner)) {
+                if (o == Long.MAX_VALUE) {
+                    generated.addOrigins(Schema.Origin.newBuilder().setAuthorizer(Schema.Empty.getDefaultInstance()));
                 } else {
-                    throw new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Allow(e.get()), errors));
+                    generated.addOrigins(Schema.Origin.newBuilder().setOrigin(o.intValue()));
                 }
-            } else {
-                throw new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Deny(e.getLeft()), errors));
             }
-        } else {
-            throw new Error.FailedLogic(new LogicError.NoMatchingPolicy(errors));
+            for (org.biscuitsec.biscuit.datalog.Fact f : entry.getValue()) {
+                generated.addFacts(f.serialize());
+            }
+            w.addGeneratedFacts(generated);
+        }
+
+        // converting the blocks, checks and policies can add symbols, so the table is written last
+        w.addAllSymbols(this.symbols.symbols);
+        for (PublicKey pk : this.symbols.publicKeys()) {
+            w.addPublicKeys(pk.serialize());
+        }
+
+        return Schema.AuthorizerSnapshot.newBuilder()
+                .setLimits(Schema.RunLimits.newBuilder()
+                        .setMaxFacts(this.limits.maxFacts)
+                        .setMaxIterations(this.limits.maxIterations)
+                        .setMaxTime(this.limits.maxTime.toNanos()))
+                .setExecutionTime(this.datalogNanos)
+                .setWorld(w)
+                .build();
+    }
+
+    /**
+     * Serializes the state of the authorizer, see {@link #snapshot()}
+     *
+     * @return
+     */
+    public byte[] serialize_snapshot() {
+        return snapshot().toByteArray();
+    }
+
+    private Schema.SnapshotBlock snapshot_block(Block b, SymbolTable blockSymbols) {
+        Schema.SnapshotBlock.Builder sb = Schema.SnapshotBlock.newBuilder()
+                .setVersion(b.getSchemaVersion());
+        if (!b.context.isEmpty()) {
+            sb.setContext(b.context);
+        }
+        for (org.biscuitsec.biscuit.datalog.Fact f : b.facts) {
+            sb.addFactsV2(org.biscuitsec.biscuit.token.builder.Fact.convert_from(f, blockSymbols).convert(this.symbols).serialize());
         }
+        for (org.biscuitsec.biscuit.datalog.Rule r : b.rules) {
+            sb.addRulesV2(org.biscuitsec.biscuit.token.builder.Rule.convert_from(r, blockSymbols).convert(this.symbols).serialize());
+        }
+        for (org.biscuitsec.biscuit.datalog.Check c : b.checks) {
+            sb.addChecksV2(Check.convert_from(c, blockSymbols).convert(this.symbols).serialize());
+        }
+        for (Scope s : b.scopes) {
+            sb.addScope(org.biscuitsec.biscuit.token.builder.Scope.convert_from(s, blockSymbols).convert(this.symbols).serialize());
+        }
+        if (b.externalKey.isDefined()) {
+            sb.setExternalKey(b.externalKey.get().serialize());
+        }
+        return sb.build();
+    }
+
+    /**
+     * Restores an authorizer from a snapshot
+     * <p>
+     * The generated facts are loaded directly, so the Datalog rules are only applied to the facts
+     * added after restoring it. The token's signatures are not part of the snapshot, so the restored
+     * authorizer cannot serialize the token.
+     *
+     * @param snapshot
+     * @return Authorizer
+     */
+    static public Authorizer from_snapshot(Schema.AuthorizerSnapshot snapshot) throws Error {
+        Schema.AuthorizerWorld w = snapshot.getWorld();
+        int version = w.getVersion();
+        if (w.hasVersion() && (version < SerializedBiscuit.MIN_SCHEMA_VERSION || version > SerializedBiscuit.MAX_SCHEMA_VERSION)) {
+            throw new Error.FormatError.Version(SerializedBiscuit.MIN_SCHEMA_VERSION, SerializedBiscuit.MAX_SCHEMA_VERSION, version);
+        }
+
+        ArrayList<PublicKey> publicKeys = new ArrayList<>();
+        for (Schema.PublicKey pk : w.getPublicKeysList()) {
+            publicKeys.add(PublicKey.deserialize(pk));
+        }
+        SymbolTable symbols = new SymbolTable(w.getSymbolsList(), publicKeys);
+
+        Authorizer authorizer = new Authorizer();
+        authorizer.symbols = symbols;
+
+        ArrayList<Block> blocks = new ArrayList<>();
+        for (Schema.SnapshotBlock sb : w.getBlocksList()) {
+            blocks.add(restore_block(sb, symbols));
+        }
+        if (!blocks.isEmpty()) {
+            authorizer.token = new Biscuit(blocks.get(0), new ArrayList<>(blocks.subList(1, blocks.size())),
+                    new SymbolTable(symbols), null, new ArrayList<>());
+        }
+
+        for (long i = 1; i < blocks.size(); i++) {
+            Block block = blocks.get((int) i);
+            if (block.externalKey.isDefined()) {
+                long keyId = symbols.insert(block.externalKey.get());
+                authorizer.publicKeyToBlockId.computeIfAbsent(keyId, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Block authorizerBlock = restore_block(w.getAuthorizerBlock(), symbols);
+        authorizer.scopes.addAll(authorizerBlock.scopes);
+        for (org.biscuitsec.biscuit.datalog.Check c : authorizerBlock.checks) {
+            authorizer.checks.add(Check.convert_from(c, symbols));
+        }
+        TrustedOrigins authorizerTrustedOrigins = authorizer.authorizerTrustedOrigins();
+        for (org.biscuitsec.biscuit.datalog.Rule r : authorizerBlock.rules) {
+            authorizer.world.add_rule(Long.MAX_VALUE,
+                    TrustedOrigins.fromScopes(r.scopes(), authorizerTrustedOrigins, Long.MAX_VALUE, authorizer.publicKeyToBlockId),
+                    r);
+        }
+        for (org.biscuitsec.biscuit.datalog.Fact f : authorizerBlock.facts) {
+            authorizer.world.add_fact(Origin.authorizer(), f);
+        }
+
+        for (long i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get((int) i);
+            TrustedOrigins blockTrustedOrigins = TrustedOrigins.fromScopes(
+                    block.scopes,
+                    TrustedOrigins.defaultOrigins(),
+                    i,
+                    authorizer.publicKeyToBlockId
+            );
+            for (org.biscuitsec.biscuit.datalog.Rule r : block.rules) {
+                authorizer.world.add_rule(i,
+                        TrustedOrigins.fromScopes(r.scopes(), blockTrustedOrigins, i, authorizer.publicKeyToBlockId),
+                        r);
+            }
+            for (org.biscuitsec.biscuit.datalog.Fact f : block.facts) {
+                authorizer.world.add_fact(new Origin(i), f);
+            }
+        }
+
+        for (Schema.GeneratedFacts generated : w.getGeneratedFactsList()) {
+            Origin origin = new Origin();
+            for (Schema.Origin o : generated.getOriginsList()) {
+                if (o.hasAuthorizer()) {
+                    origin.add(Long.MAX_VALUE);
+                } else {
+                    origin.add(Integer.toUnsignedLong(o.getOrigin()));
+                }
+            }
+            for (Schema.FactV2 f : generated.getFactsList()) {
+                authorizer.world.add_fact(origin, unwrap(org.biscuitsec.biscuit.datalog.Fact.deserializeV2(f)));
+            }
+        }
+
+        for (Schema.Policy p : w.getAuthorizerPoliciesList()) {
+            ArrayList<org.biscuitsec.biscuit.token.builder.Rule> queries = new ArrayList<>();
+            for (Schema.RuleV2 q : p.getQueriesList()) {
+                queries.add(org.biscuitsec.biscuit.token.builder.Rule.convert_from(
+                        unwrap(org.biscuitsec.biscuit.datalog.Rule.deserializeV2(q)), symbols));
+            }
+            authorizer.policies.add(new Policy(queries, p.getKind() == Schema.Policy.Kind.Allow ? Policy.Kind.Allow : Policy.Kind.Deny));
+        }
+
+        Schema.RunLimits limits = snapshot.getLimits();
+        authorizer.limits = new RunLimits((int) limits.getMaxFacts(), (int) limits.getMaxIterations(),
+                Duration.ofNanos(limits.getMaxTime()));
+        authorizer.datalogNanos = snapshot.getExecutionTime();
+        authorizer.world.mark_saturated((int) w.getIterations());
+
+        return authorizer;
+    }
+
+    /**
+     * Restores an authorizer from a serialized snapshot, see {@link #from_snapshot(Schema.AuthorizerSnapshot)}
+     *
+     * @param data
+     * @return Authorizer
+     */
+    static public Authorizer from_snapshot(byte[] data) throws Error {
+        try {
+            return from_snapshot(Schema.AuthorizerSnapshot.parseFrom(data));
+        } catch (InvalidProtocolBufferException e) {
+            throw new Error.FormatError.DeserializationError(e.toString());
+        }
+    }
+
+    static private Block restore_block(Schema.SnapshotBlock sb, SymbolTable symbols) throws Error.FormatError {
+        ArrayList<org.biscuitsec.biscuit.datalog.Fact> facts = new ArrayList<>();
+        for (Schema.FactV2 f : sb.getFactsV2List()) {
+            facts.add(unwrap(org.biscuitsec.biscuit.datalog.Fact.deserializeV2(f)));
+        }
+        ArrayList<org.biscuitsec.biscuit.datalog.Rule> rules = new ArrayList<>();
+        for (Schema.RuleV2 r : sb.getRulesV2List()) {
+            rules.add(unwrap(org.biscuitsec.biscuit.datalog.Rule.deserializeV2(r)));
+        }
+        ArrayList<org.biscuitsec.biscuit.datalog.Check> checks = new ArrayList<>();
+        for (Schema.CheckV2 c : sb.getChecksV2List()) {
+            checks.add(unwrap(org.biscuitsec.biscuit.datalog.Check.deserializeV2(c)));
+        }
+        ArrayList<Scope> scopes = new ArrayList<>();
+        for (Schema.Scope s : sb.getScopeList()) {
+            scopes.add(unwrap(Scope.deserialize(s)));
+        }
+        Option<PublicKey> externalKey = Option.none();
+        if (sb.hasExternalKey()) {
+            externalKey = Option.some(PublicKey.deserialize(sb.getExternalKey()));
+        }
+
+        // the contents use the authorizer's symbol table, even for blocks with an external signature
+        return new Block(symbols, sb.getContext(), facts, rules, checks, scopes, symbols.publicKeys(), externalKey,
+                sb.getVersion());
+    }
+
+    static private <T> T unwrap(Either<Error.FormatError, T> e) throws Error.FormatError {
+        if (e.isLeft()) {
+            throw e.getLeft();
+        }
+        return e.get();
     }
 
     public String print_world() {
@@ -627,8 +1326,12 @@ public class Authorizer {
                 "\n\t]\n}";
     }
 
+    /**
+     * @return a copy of the facts. Facts are added with the add_fact methods, so that the next
+     * authorization or query generates their consequences
+     */
     public FactSet facts() {
-        return this.world.facts();
+        return this.world.facts().clone();
     }
 
     public RuleSet rules() {
@@ -4,6 +4,7 @@ import biscuit.format.schema.Schema;
 import biscuit.format.schema.Schema.PublicKey.Algorithm;
 import org.biscuitsec.biscuit.crypto.KeyDelegate;
 import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.KeyPairPool;
 import org.biscuitsec.biscuit.crypto.PublicKey;
 import org.biscuitsec.biscuit.datalog.SymbolTable;
 import org.biscuitsec.biscuit.error.Error;
@@ -11,9 +12,12 @@ import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
 import io.vavr.Tuple2;
 import io.vavr.control.Either;
 import io.vavr.control.Option;
+import com.google.protobuf.ByteString;
 
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Biscuit auth token
@@ -90,7 +94,7 @@ public class Biscuit extends UnverifiedBiscuit {
     static private Biscuit make(final SecureRandom rng, final KeyPair root, final Option<Integer> root_key_id, final Block authority) throws Error.FormatError {
         ArrayList<Block> blocks = new ArrayList<>();
 
-        KeyPair next = KeyPair.generate(root.public_key().algorithm, rng);
+        KeyPair next = KeyPairPool.ephemeral(root.public_key().algorithm, rng);
 
         for(PublicKey pk:  authority.publicKeys) {
             authority.symbols.insert(pk);
@@ -145,7 +149,7 @@ public class Biscuit extends UnverifiedBiscuit {
      * @return Biscuit
      */
     static public Biscuit from_b64url(String data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
-        return Biscuit.from_bytes(Base64.getUrlDecoder().decode(data), root);
+        return Biscuit.from_b64url((CharSequence) data, root);
     }
 
     /**
@@ -162,7 +166,63 @@ public class Biscuit extends UnverifiedBiscuit {
      * @return Biscuit
      */
     static public Biscuit from_b64url(String data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
-        return Biscuit.from_bytes(Base64.getUrlDecoder().decode(data), delegate);
+        return Biscuit.from_b64url((CharSequence) data, delegate);
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_b64url(CharSequence data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_b64url(data, root), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_b64url(CharSequence data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_b64url(data, delegate), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string, as ASCII characters in a ByteBuffer
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array. The buffer's position is not changed.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_b64url(ByteBuffer data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_b64url(data, root), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string, as ASCII characters in a ByteBuffer
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array. The buffer's position is not changed.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_b64url(ByteBuffer data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_b64url(data, delegate), default_symbol_table());
     }
 
     /**
@@ -199,6 +259,66 @@ public class Biscuit extends UnverifiedBiscuit {
         return from_bytes_with_symbols(data, delegate, default_symbol_table());
     }
 
+    /**
+     * Deserializes a Biscuit token from a heap or direct ByteBuffer
+     * <p>
+     * The blocks are kept as slices of the buffer through signature verification
+     * and block decoding, so its content must not be modified while the token is in use.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_bytes(ByteBuffer data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_bytes(data, root), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a heap or direct ByteBuffer
+     * <p>
+     * The blocks are kept as slices of the buffer through signature verification
+     * and block decoding, so its content must not be modified while the token is in use.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_bytes(ByteBuffer data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_bytes(data, delegate), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a ByteString
+     * <p>
+     * The blocks are kept as slices of the ByteString through signature verification
+     * and block decoding
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_bytes(ByteString data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_bytes(data, root), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a ByteString
+     * <p>
+     * The blocks are kept as slices of the ByteString through signature verification
+     * and block decoding
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public Biscuit from_bytes(ByteString data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_bytes(data, delegate), default_symbol_table());
+    }
+
     /**
      * Deserializes a Biscuit token from a byte array
      * <p>
@@ -237,6 +357,94 @@ public class Biscuit extends UnverifiedBiscuit {
         return Biscuit.from_serialized_biscuit(ser, symbols);
     }
 
+    /**
+     * Deserializes a Biscuit token from a byte array, and rejects it if one of its blocks is revoked
+     * <p>
+     * The revocation identifiers are checked before the signatures are verified and the blocks decoded.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @param root
+     * @param revoked
+     * @return Biscuit
+     * @throws Error.Revoked if the index contains the revocation identifier of a block
+     */
+    static public Biscuit from_bytes(byte[] data, PublicKey root, RevocationIndex revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(data, root, revoked::contains);
+    }
+
+    /**
+     * Deserializes a Biscuit token from a byte array, and rejects it if one of its blocks is revoked
+     * <p>
+     * The revocation identifiers are checked before the signatures are verified and the blocks decoded.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @param delegate
+     * @param revoked
+     * @return Biscuit
+     * @throws Error.Revoked if the index contains the revocation identifier of a block
+     */
+    static public Biscuit from_bytes(byte[] data, KeyDelegate delegate, RevocationIndex revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(data, delegate, revoked::contains);
+    }
+
+    /**
+     * Deserializes a Biscuit token from a byte array, and rejects it if one of its blocks is revoked
+     * <p>
+     * The predicate is tested on the revocation identifiers right after the token is parsed, so a
+     * revoked token is rejected without verifying its signatures or decoding its blocks.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @param root
+     * @param revoked returns true for a revoked identifier
+     * @return Biscuit
+     * @throws Error.Revoked if the predicate matches the revocation identifier of a block
+     */
+    static public Biscuit from_bytes(byte[] data, PublicKey root, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(data, (KeyDelegate) key_id -> Option.some(root), revoked);
+    }
+
+    /**
+     * Deserializes a Biscuit token from a byte array, and rejects it if one of its blocks is revoked
+     * <p>
+     * The predicate is tested on the revocation identifiers right after the token is parsed, so a
+     * revoked token is rejected without verifying its signatures or decoding its blocks.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @param delegate
+     * @param revoked returns true for a revoked identifier
+     * @return Biscuit
+     * @throws Error.Revoked if the predicate matches the revocation identifier of a block
+     */
+    static public Biscuit from_bytes(byte[] data, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_bytes(data, delegate, revoked), default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string, and rejects it if one of its blocks is revoked
+     * <p>
+     * The predicate is tested on the revocation identifiers right after the token is parsed, so a
+     * revoked token is rejected without verifying its signatures or decoding its blocks.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @param delegate
+     * @param revoked returns true for a revoked identifier
+     * @return Biscuit
+     * @throws Error.Revoked if the predicate matches the revocation identifier of a block
+     */
+    static public Biscuit from_b64url(CharSequence data, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return Biscuit.from_serialized_biscuit(SerializedBiscuit.from_b64url(data, delegate, revoked), default_symbol_table());
+    }
+
     /**
      * Fills a Biscuit structure from a deserialized token
      *
@@ -289,7 +497,7 @@ public class Biscuit extends UnverifiedBiscuit {
      * @throws Error.FormatError.SerializationError
      */
     public String serialize_b64url() throws Error.FormatError.SerializationError {
-        return Base64.getUrlEncoder().encodeToString(serialize());
+        return this.serializedBiscuit.serialize_b64url();
     }
 
     /**
@@ -300,15 +508,14 @@ public class Biscuit extends UnverifiedBiscuit {
      * @return
      */
     public Biscuit attenuate(org.biscuitsec.biscuit.token.builder.Block block, Algorithm algorithm) throws Error {
-        SecureRandom rng = new SecureRandom();
-        KeyPair keypair = KeyPair.generate(algorithm, rng);
-        SymbolTable builderSymbols = new SymbolTable(this.symbols);
-        return attenuate(rng, keypair, block.build(builderSymbols));
+        return attenuate(null, KeyPairPool.ephemeral(algorithm), block);
     }
 
     public Biscuit attenuate(final SecureRandom rng, final KeyPair keypair, org.biscuitsec.biscuit.token.builder.Block block) throws Error {
+        // the builder only adds the new block's symbols and public keys after the existing ones,
+        // so its symbol table is the one of the attenuated token
         SymbolTable builderSymbols = new SymbolTable(this.symbols);
-        return attenuate(rng, keypair, block.build(builderSymbols));
+        return attenuate_inner(keypair, block.build(builderSymbols), builderSymbols);
     }
 
     /**
@@ -320,19 +527,11 @@ public class Biscuit extends UnverifiedBiscuit {
      * @return
      */
     public Biscuit attenuate(final SecureRandom rng, final KeyPair keypair, Block block) throws Error {
-        Biscuit copiedBiscuit = this.copy();
-
-        if (!Collections.disjoint(copiedBiscuit.symbols.symbols, block.symbols.symbols)) {
+        if (!Collections.disjoint(this.symbols.symbols, block.symbols.symbols)) {
             throw new Error.SymbolTableOverlap();
         }
 
-        Either<Error.FormatError, SerializedBiscuit> containerRes = copiedBiscuit.serializedBiscuit.append(keypair, block, Option.none());
-        if (containerRes.isLeft()) {
-            throw containerRes.getLeft();
-        }
-        SerializedBiscuit container = containerRes.get();
-
-        SymbolTable symbols = new SymbolTable(copiedBiscuit.symbols);
+        SymbolTable symbols = new SymbolTable(this.symbols);
         for (String s : block.symbols.symbols) {
             symbols.add(s);
         }
@@ -341,15 +540,25 @@ public class Biscuit extends UnverifiedBiscuit {
             symbols.insert(pk);
         }
 
-        ArrayList<Block> blocks = new ArrayList<>();
-        for (Block b : copiedBiscuit.blocks) {
-            blocks.add(b);
+        return attenuate_inner(keypair, block, symbols);
+    }
+
+    /**
+     * Signs and encodes the new block only, the decoded blocks of this token are shared
+     * with the attenuated one
+     */
+    private Biscuit attenuate_inner(final KeyPair keypair, Block block, SymbolTable symbols) throws Error {
+        Either<Error.FormatError, SerializedBiscuit> containerRes = this.serializedBiscuit.append(keypair, block, Option.none());
+        if (containerRes.isLeft()) {
+            throw containerRes.getLeft();
         }
-        blocks.add(block);
+        SerializedBiscuit container = containerRes.get();
 
-        List<byte[]> revocation_ids = container.revocation_identifiers();
+        ArrayList<Block> blocks = new ArrayList<>(this.blocks.size() + 1);
+        blocks.addAll(this.blocks);
+        blocks.add(block);
 
-        return new Biscuit(copiedBiscuit.authority, blocks, symbols, container, revocation_ids);
+        return new Biscuit(this.authority, blocks, symbols, container, extend_revocation_ids(container));
     }
 
     /**
@@ -359,8 +568,8 @@ public class Biscuit extends UnverifiedBiscuit {
             throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
        UnverifiedBiscuit b = super.appendThirdPartyBlock(externalKey, blockResponse);
 
-       // no need to verify again, we are already working from a verified token
-        return Biscuit.from_serialized_biscuit(b.serializedBiscuit, b.symbols);
+        // no need to verify again, we are already working from a verified token
+        return new Biscuit(b.authority, b.blocks, b.symbols, b.serializedBiscuit, b.revocation_ids);
     }
 
     /**
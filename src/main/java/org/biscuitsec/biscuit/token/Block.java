@@ -7,11 +7,13 @@ import org.biscuitsec.biscuit.datalog.expressions.Op;
 import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.datalog.*;
 import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import io.vavr.control.Either;
 import io.vavr.control.Option;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -77,6 +79,10 @@ public class Block {
         return publicKeys;
     }
 
+    public Option<PublicKey> externalKey() {
+        return externalKey;
+    }
+
     public void setExternalKey(PublicKey externalKey) {
         this.externalKey = Option.some(externalKey);
     }
@@ -363,18 +369,52 @@ public class Block {
         }
     }
 
-    public Either<Error.FormatError, byte[]> to_bytes() {
-        Schema.Block b = this.serialize();
+    /**
+     * Deserializes a Block from a ByteString, without copying it
+     *
+     * @param slice
+     * @return
+     */
+    static public Either<Error.FormatError, Block> from_bytes(ByteString slice, Option<PublicKey> externalKey) {
         try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            b.writeTo(stream);
-            byte[] data = stream.toByteArray();
-            return Right(data);
+            Schema.Block data = Schema.Block.parseFrom(slice);
+            return Block.deserialize(data, externalKey);
+        } catch (InvalidProtocolBufferException e) {
+            return Left(new Error.FormatError.DeserializationError(e.toString()));
+        }
+    }
+
+    /**
+     * Reads the context of a serialized block without decoding the rest of it
+     *
+     * @param slice
+     * @return the context, or an empty string if the block has none
+     */
+    static public Either<Error.FormatError, String> context_from_bytes(ByteString slice) {
+        try {
+            String context = "";
+            CodedInputStream input = slice.newCodedInput();
+            while (true) {
+                int tag = input.readTag();
+                if (tag == 0) {
+                    return Right(context);
+                }
+                if (WireFormat.getTagFieldNumber(tag) == Schema.Block.CONTEXT_FIELD_NUMBER
+                        && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    context = input.readString();
+                } else if (!input.skipField(tag)) {
+                    return Right(context);
+                }
+            }
         } catch (IOException e) {
-            return Left(new Error.FormatError.SerializationError(e.toString()));
+            return Left(new Error.FormatError.DeserializationError(e.toString()));
         }
     }
 
+    public Either<Error.FormatError, byte[]> to_bytes() {
+        return Right(this.serialize().toByteArray());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
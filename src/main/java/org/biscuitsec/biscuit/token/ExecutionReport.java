@@ -0,0 +1,116 @@
+package org.biscuitsec.biscuit.token;
+
+import org.biscuitsec.biscuit.datalog.ExecutionStats;
+import org.biscuitsec.biscuit.datalog.FactSet;
+import org.biscuitsec.biscuit.datalog.Origin;
+import org.biscuitsec.biscuit.datalog.SymbolTable;
+
+import java.util.*;
+
+/**
+ * Statistics of the last call to {@link Authorizer#authorize(org.biscuitsec.biscuit.datalog.RunLimits)}
+ * <p>
+ * Enabled with {@link Authorizer#enable_execution_report()}. The report is also produced when
+ * authorization fails or times out.
+ */
+public final class ExecutionReport {
+    public static final class RuleTiming {
+        public final String rule;
+        public final long origin;
+        public final long nanos;
+        public final long facts;
+
+        RuleTiming(String rule, long origin, long nanos, long facts) {
+            this.rule = rule;
+            this.origin = origin;
+            this.nanos = nanos;
+            this.facts = facts;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + origin + "] " + rule + ": " + facts + " facts in " + nanos + "ns";
+        }
+    }
+
+    /**
+     * Time spent in a check or a policy. The label uses the same format as {@link Authorizer#print_world()},
+     * like "Block[1][0]: check if ..."
+     */
+    public static final class CheckTiming {
+        public final String check;
+        public final long nanos;
+        public final boolean success;
+
+        CheckTiming(String check, long nanos, boolean success) {
+            this.check = check;
+            this.nanos = nanos;
+            this.success = success;
+        }
+
+        @Override
+        public String toString() {
+            return check + ": " + (success ? "success" : "failure") + " in " + nanos + "ns";
+        }
+    }
+
+    public final int iterations;
+    public final long combinatorCandidates;
+    /**
+     * Number of regular expressions evaluated. There is no compiled pattern cache,
+     * so each of them compiles its pattern.
+     */
+    public final long regexEvaluations;
+    public final long totalNanos;
+    public final Map<Origin, Integer> factsPerOrigin;
+    public final List<RuleTiming> rules;
+    public final List<CheckTiming> checks;
+    public final List<CheckTiming> policies;
+
+    ExecutionReport(ExecutionStats stats, FactSet facts, SymbolTable symbols, List<CheckTiming> checks,
+                    List<CheckTiming> policies, long totalNanos) {
+        this.iterations = stats.iterations;
+        this.combinatorCandidates = stats.combinatorCandidates;
+        this.regexEvaluations = stats.regexEvaluations;
+        this.totalNanos = totalNanos;
+
+        LinkedHashMap<Origin, Integer> factsPerOrigin = new LinkedHashMap<>();
+        for (Map.Entry<Origin, HashSet<org.biscuitsec.biscuit.datalog.Fact>> entry : facts.facts().entrySet()) {
+            factsPerOrigin.put(entry.getKey(), entry.getValue().size());
+        }
+        this.factsPerOrigin = Collections.unmodifiableMap(factsPerOrigin);
+
+        ArrayList<RuleTiming> rules = new ArrayList<>();
+        for (ExecutionStats.RuleTiming t : stats.rules()) {
+            rules.add(new RuleTiming(symbols.print_rule(t.rule), t.origin, t.nanos, t.facts));
+        }
+        this.rules = Collections.unmodifiableList(rules);
+        this.checks = Collections.unmodifiableList(checks);
+        this.policies = Collections.unmodifiableList(policies);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("ExecutionReport {\n\ttotal: ");
+        s.append(totalNanos).append("ns\n\titerations: ").append(iterations)
+                .append("\n\tcombinator candidates: ").append(combinatorCandidates)
+                .append("\n\tregex evaluations: ").append(regexEvaluations)
+                .append("\n\tfacts: [");
+        for (Map.Entry<Origin, Integer> entry : factsPerOrigin.entrySet()) {
+            s.append("\n\t\t").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        s.append("\n\t],\n\trules: [");
+        for (RuleTiming t : rules) {
+            s.append("\n\t\t").append(t);
+        }
+        s.append("\n\t],\n\tchecks: [");
+        for (CheckTiming t : checks) {
+            s.append("\n\t\t").append(t);
+        }
+        s.append("\n\t],\n\tpolicies: [");
+        for (CheckTiming t : policies) {
+            s.append("\n\t\t").append(t);
+        }
+        return s.append("\n\t]\n}").toString();
+    }
+}
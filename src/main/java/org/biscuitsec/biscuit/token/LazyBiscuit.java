@@ -0,0 +1,243 @@
+package org.biscuitsec.biscuit.token;
+
+import org.biscuitsec.biscuit.crypto.KeyDelegate;
+import org.biscuitsec.biscuit.crypto.PublicKey;
+import org.biscuitsec.biscuit.datalog.Check;
+import org.biscuitsec.biscuit.datalog.SymbolTable;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
+import org.biscuitsec.biscuit.token.format.SignedBlock;
+import com.google.protobuf.ByteString;
+import io.vavr.control.Either;
+import io.vavr.control.Option;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Biscuit token with verified signatures, whose blocks are decoded on first access
+ * <p>
+ * Metadata like the revocation identifiers, the root key id or the block contexts
+ * are available without decoding the facts, rules and checks of each block.
+ * <p>
+ * This class is not thread safe
+ */
+public class LazyBiscuit {
+    final SerializedBiscuit serializedBiscuit;
+    final Block[] decodedBlocks;
+
+    LazyBiscuit(SerializedBiscuit serializedBiscuit) {
+        this.serializedBiscuit = serializedBiscuit;
+        this.decodedBlocks = new Block[serializedBiscuit.block_count()];
+    }
+
+    /**
+     * Deserializes a token from a byte array and verifies its signatures
+     *
+     * @param data
+     * @param root root public key
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(byte[] data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, root));
+    }
+
+    /**
+     * Deserializes a token from a byte array and verifies its signatures
+     *
+     * @param data
+     * @param delegate root key lookup
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(byte[] data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, delegate));
+    }
+
+    /**
+     * Deserializes a token from a heap or direct ByteBuffer and verifies its signatures
+     * <p>
+     * The buffer's content must not be modified while the token is in use.
+     *
+     * @param data
+     * @param root root public key
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(ByteBuffer data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, root));
+    }
+
+    /**
+     * Deserializes a token from a heap or direct ByteBuffer and verifies its signatures
+     * <p>
+     * The buffer's content must not be modified while the token is in use.
+     *
+     * @param data
+     * @param delegate root key lookup
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(ByteBuffer data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, delegate));
+    }
+
+    /**
+     * Deserializes a token from a ByteString and verifies its signatures
+     *
+     * @param data
+     * @param root root public key
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(ByteString data, PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, root));
+    }
+
+    /**
+     * Deserializes a token from a ByteString and verifies its signatures
+     *
+     * @param data
+     * @param delegate root key lookup
+     * @return LazyBiscuit
+     */
+    static public LazyBiscuit from_bytes(ByteString data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return new LazyBiscuit(SerializedBiscuit.from_bytes(data, delegate));
+    }
+
+    /**
+     * Number of blocks, including the authority block
+     *
+     * @return
+     */
+    public int block_count() {
+        return this.decodedBlocks.length;
+    }
+
+    public List<RevocationIdentifier> revocation_identifiers() {
+        return this.serializedBiscuit.revocation_identifiers().stream()
+                .map(RevocationIdentifier::from_bytes)
+                .collect(Collectors.toList());
+    }
+
+    public Option<Integer> root_key_id() {
+        return this.serializedBiscuit.root_key_id;
+    }
+
+    /**
+     * Returns the external key of each block, without decoding it
+     *
+     * @return
+     */
+    public List<Option<PublicKey>> external_keys() {
+        ArrayList<Option<PublicKey>> res = new ArrayList<>();
+        res.add(Option.none());
+        for (SignedBlock b : this.serializedBiscuit.blocks) {
+            res.add(b.externalSignature.map(e -> e.key));
+        }
+        return res;
+    }
+
+    /**
+     * Reads the context of each block, without decoding the facts, rules and checks
+     *
+     * @return
+     */
+    public List<Option<String>> context() throws Error.FormatError {
+        ArrayList<Option<String>> res = new ArrayList<>();
+        for (int i = 0; i < this.decodedBlocks.length; i++) {
+            String context;
+            if (this.decodedBlocks[i] != null) {
+                context = this.decodedBlocks[i].context;
+            } else {
+                Either<Error.FormatError, String> c = Block.context_from_bytes(signedBlock(i).block_bytes());
+                if (c.isLeft()) {
+                    throw c.getLeft();
+                }
+                context = c.get();
+            }
+
+            if (context.isEmpty()) {
+                res.add(Option.none());
+            } else {
+                res.add(Option.some(context));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Decodes a block, or returns it if it was already decoded
+     *
+     * @param index block index, 0 being the authority block
+     * @return Block
+     */
+    public Block block(int index) throws Error {
+        Block b = this.decodedBlocks[index];
+        if (b == null) {
+            b = this.serializedBiscuit.extractBlock(index);
+            this.decodedBlocks[index] = b;
+        }
+        return b;
+    }
+
+    public Block authority() throws Error {
+        return block(0);
+    }
+
+    /**
+     * Decodes the checks of every block
+     *
+     * @return
+     */
+    public List<List<Check>> checks() throws Error {
+        ArrayList<List<Check>> l = new ArrayList<>();
+        for (int i = 0; i < this.decodedBlocks.length; i++) {
+            l.add(new ArrayList<>(block(i).checks));
+        }
+        return l;
+    }
+
+    /**
+     * Decodes the remaining blocks and builds a complete token
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @return Biscuit
+     */
+    public Biscuit to_biscuit() throws Error {
+        return to_biscuit(Biscuit.default_symbol_table());
+    }
+
+    /**
+     * Decodes the remaining blocks and builds a complete token
+     *
+     * @param symbols
+     * @return Biscuit
+     */
+    public Biscuit to_biscuit(SymbolTable symbols) throws Error {
+        Block authority = block(0);
+        ArrayList<Block> blocks = new ArrayList<>();
+        for (int i = 1; i < this.decodedBlocks.length; i++) {
+            blocks.add(block(i));
+        }
+
+        SerializedBiscuit.add_symbols(symbols, authority, blocks);
+        return new Biscuit(authority, blocks, symbols, this.serializedBiscuit,
+                this.serializedBiscuit.revocation_identifiers());
+    }
+
+    /**
+     * Creates an authorizer for this token, decoding all of its blocks
+     *
+     * @return Authorizer
+     */
+    public Authorizer authorizer() throws Error {
+        return to_biscuit().authorizer();
+    }
+
+    private SignedBlock signedBlock(int index) {
+        return index == 0 ? this.serializedBiscuit.authority : this.serializedBiscuit.blocks.get(index - 1);
+    }
+}
@@ -1,9 +1,12 @@
 package org.biscuitsec.biscuit.token;
 
+import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.token.builder.Rule;
+import org.biscuitsec.biscuit.token.builder.Term;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class Policy {
@@ -28,6 +31,15 @@ public class Policy {
         this.kind = kind;
     }
 
+    /**
+     * Creates a copy of this policy with the variables set to the parameters
+     *
+     * @see Rule#bind(List, Map)
+     */
+    public Policy bind(Map<String, Term> parameters) throws Error.Language {
+        return new Policy(Rule.bind(this.queries, parameters), this.kind);
+    }
+
     @Override
     public String toString() {
         final List<String> qs = queries.stream().map((q) ->  q.bodyToString()).collect(Collectors.toList());
@@ -0,0 +1,272 @@
+package org.biscuitsec.biscuit.token;
+
+import io.vavr.Lazy;
+import io.vavr.control.Either;
+import org.biscuitsec.biscuit.datalog.SymbolMap;
+import org.biscuitsec.biscuit.datalog.SymbolTable;
+import org.biscuitsec.biscuit.datalog.expressions.Expression;
+import org.biscuitsec.biscuit.datalog.expressions.Op;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.error.FailedCheck;
+import org.biscuitsec.biscuit.token.builder.Term;
+import org.biscuitsec.biscuit.token.builder.Utils;
+import org.biscuitsec.biscuit.token.builder.parser.ParserCache;
+
+import java.util.*;
+
+/**
+ * Check, policy or query parsed and converted to Datalog once, then bound to values for each request
+ * <p>
+ * The variables of the statement are its parameters. Their values are set on {@link Bindings},
+ * which are added to an {@link Authorizer} with {@link Authorizer#add_check(Bindings)},
+ * {@link Authorizer#add_policy(Bindings)} or {@link Authorizer#query(Bindings)}. The parameters
+ * without a value stay variables.
+ * <p>
+ * A prepared statement is immutable and can be shared between threads.
+ */
+public final class PreparedStatement {
+    public enum Kind {
+        Check,
+        Policy,
+        Query,
+    }
+
+    final Kind kind;
+    private final org.biscuitsec.biscuit.token.builder.Check check;
+    private final Policy policy;
+    private final org.biscuitsec.biscuit.token.builder.Rule query;
+    private final SymbolTable symbols;
+    private final org.biscuitsec.biscuit.datalog.Check datalog;
+    private final String[] parameters;
+    private final long[] parameterIds;
+
+    private PreparedStatement(Kind kind, org.biscuitsec.biscuit.token.builder.Check check, Policy policy,
+                              org.biscuitsec.biscuit.token.builder.Rule query, SymbolTable symbols,
+                              org.biscuitsec.biscuit.datalog.Check datalog) {
+        this.kind = kind;
+        this.check = check;
+        this.policy = policy;
+        this.query = query;
+        this.symbols = symbols;
+        this.datalog = datalog;
+
+        TreeMap<String, Long> variables = new TreeMap<>();
+        for (org.biscuitsec.biscuit.datalog.Rule r : datalog.queries()) {
+            gather_variables(r.head(), variables);
+            for (org.biscuitsec.biscuit.datalog.Predicate p : r.body()) {
+                gather_variables(p, variables);
+            }
+            for (Expression e : r.expressions()) {
+                for (Op op : e.getOps()) {
+                    if (op instanceof Op.Value) {
+                        gather_variable(((Op.Value) op).getValue(), variables);
+                    }
+                }
+            }
+        }
+        this.parameters = new String[variables.size()];
+        this.parameterIds = new long[variables.size()];
+        int i = 0;
+        for (Map.Entry<String, Long> v : variables.entrySet()) {
+            this.parameters[i] = v.getKey();
+            this.parameterIds[i] = v.getValue();
+            i++;
+        }
+    }
+
+    private void gather_variables(org.biscuitsec.biscuit.datalog.Predicate p, Map<String, Long> variables) {
+        for (org.biscuitsec.biscuit.datalog.Term t : p.terms()) {
+            gather_variable(t, variables);
+        }
+    }
+
+    private void gather_variable(org.biscuitsec.biscuit.datalog.Term t, Map<String, Long> variables) {
+        if (t instanceof org.biscuitsec.biscuit.datalog.Term.Variable) {
+            long id = ((org.biscuitsec.biscuit.datalog.Term.Variable) t).value();
+            variables.put(this.symbols.print_symbol((int) id), id);
+        }
+    }
+
+    public static PreparedStatement check(String s) throws Error.Parser {
+        return check(parse(ParserCache.CHECKS, s));
+    }
+
+    public static PreparedStatement check(org.biscuitsec.biscuit.token.builder.Check check) {
+        SymbolTable symbols = Biscuit.default_symbol_table();
+        return new PreparedStatement(Kind.Check, check, null, null, symbols, check.convert(symbols));
+    }
+
+    public static PreparedStatement policy(String s) throws Error.Parser {
+        return policy(parse(ParserCache.POLICIES, s));
+    }
+
+    public static PreparedStatement policy(Policy policy) {
+        SymbolTable symbols = Biscuit.default_symbol_table();
+        return new PreparedStatement(Kind.Policy, null, policy, null, symbols, convert(policy.queries, symbols));
+    }
+
+    public static PreparedStatement query(String s) throws Error.Parser {
+        return query(parse(ParserCache.RULES, s));
+    }
+
+    public static PreparedStatement query(org.biscuitsec.biscuit.token.builder.Rule query) {
+        SymbolTable symbols = Biscuit.default_symbol_table();
+        return new PreparedStatement(Kind.Query, null, null, query, symbols, convert(List.of(query), symbols));
+    }
+
+    private static <T> T parse(ParserCache<T> cache, String s) throws Error.Parser {
+        Either<org.biscuitsec.biscuit.token.builder.parser.Error, T> res = cache.get(s);
+        if (res.isLeft()) {
+            throw new Error.Parser(res.getLeft());
+        }
+        return res.get();
+    }
+
+    private static org.biscuitsec.biscuit.datalog.Check convert(List<org.biscuitsec.biscuit.token.builder.Rule> queries, SymbolTable symbols) {
+        List<org.biscuitsec.biscuit.datalog.Rule> rules = new ArrayList<>(queries.size());
+        for (org.biscuitsec.biscuit.token.builder.Rule q : queries) {
+            rules.add(q.convert(symbols));
+        }
+        return new org.biscuitsec.biscuit.datalog.Check(org.biscuitsec.biscuit.datalog.Check.Kind.One, rules);
+    }
+
+    public Kind kind() {
+        return this.kind;
+    }
+
+    /**
+     * @return the names of the variables, in alphabetical order
+     */
+    public List<String> parameters() {
+        return List.of(this.parameters);
+    }
+
+    public Bindings bind() {
+        return new Bindings(this);
+    }
+
+    /**
+     * Converts the statement to the symbol table of an authorizer, with the variables replaced by their values
+     */
+    org.biscuitsec.biscuit.datalog.Check convert(Term[] values, SymbolTable target) {
+        Map<Long, org.biscuitsec.biscuit.datalog.Term> variables = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                variables.put(this.parameterIds[i], values[i].convert(target));
+            }
+        }
+        return new SymbolMap(this.symbols, target, variables).check(this.datalog);
+    }
+
+    /**
+     * Queries of a statement with the values of its parameters, copied the first time they are read
+     */
+    private static final class BoundQueries extends AbstractList<org.biscuitsec.biscuit.token.builder.Rule> {
+        private final Lazy<List<org.biscuitsec.biscuit.token.builder.Rule>> queries;
+
+        BoundQueries(List<org.biscuitsec.biscuit.token.builder.Rule> queries, Bindings bindings) {
+            this.queries = Lazy.of(() -> {
+                try {
+                    return org.biscuitsec.biscuit.token.builder.Rule.bind(queries, bindings.parameters());
+                } catch (Error.Language e) {
+                    // the parameters are the variables of the statement
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Override
+        public org.biscuitsec.biscuit.token.builder.Rule get(int index) {
+            return this.queries.get().get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.queries.get().size();
+        }
+    }
+
+    /**
+     * Values of the parameters of a prepared statement, for one request
+     */
+    public static final class Bindings {
+        final PreparedStatement statement;
+        final Term[] values;
+
+        Bindings(PreparedStatement statement) {
+            this(statement, new Term[statement.parameters.length]);
+        }
+
+        private Bindings(PreparedStatement statement, Term[] values) {
+            this.statement = statement;
+            this.values = values;
+        }
+
+        public PreparedStatement statement() {
+            return this.statement;
+        }
+
+        public Bindings set(String name, Term value) throws Error.Language {
+            int index = Arrays.binarySearch(this.statement.parameters, name);
+            if (index < 0) {
+                throw new Error.Language(new FailedCheck.LanguageError.UnknownVariable(name));
+            }
+            this.values[index] = value;
+            return this;
+        }
+
+        public Bindings set(String name, String value) throws Error.Language {
+            return set(name, Utils.string(value));
+        }
+
+        public Bindings set(String name, long value) throws Error.Language {
+            return set(name, Utils.integer(value));
+        }
+
+        public Bindings set(String name, boolean value) throws Error.Language {
+            return set(name, new Term.Bool(value));
+        }
+
+        public Bindings set(String name, Date value) throws Error.Language {
+            return set(name, Utils.date(value));
+        }
+
+        public Bindings set(String name, byte[] value) throws Error.Language {
+            return set(name, new Term.Bytes(value));
+        }
+
+        Map<String, Term> parameters() {
+            Map<String, Term> parameters = new HashMap<>();
+            for (int i = 0; i < this.values.length; i++) {
+                if (this.values[i] != null) {
+                    parameters.put(this.statement.parameters[i], this.values[i]);
+                }
+            }
+            return parameters;
+        }
+
+        /**
+         * @return the builder check with the values, as shown in errors and snapshots.
+         * Its queries are only created when they are used
+         */
+        org.biscuitsec.biscuit.token.builder.Check check() {
+            return new org.biscuitsec.biscuit.token.builder.Check(this.statement.datalog.kind(),
+                    new BoundQueries(this.statement.check.queries(), copy()));
+        }
+
+        Policy policy() {
+            return new Policy(new BoundQueries(this.statement.policy.queries, copy()), this.statement.policy.kind);
+        }
+
+        /**
+         * @return a copy of the current values, that later calls to set do not modify
+         */
+        private Bindings copy() {
+            return new Bindings(this.statement, this.values.clone());
+        }
+
+        org.biscuitsec.biscuit.datalog.Check convert(SymbolTable target) {
+            return this.statement.convert(this.values, target);
+        }
+    }
+}
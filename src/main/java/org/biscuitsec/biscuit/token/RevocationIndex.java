@@ -0,0 +1,285 @@
+package org.biscuitsec.biscuit.token;
+
+import org.biscuitsec.biscuit.error.Error;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set of revoked token identifiers
+ * <p>
+ * The identifiers are sorted and stored one after the other in a single array, then looked up by
+ * binary search. An optional Bloom filter in front of the set answers most lookups of identifiers
+ * that are not revoked without searching.
+ * <p>
+ * Lookups do not take locks. The content is replaced as a whole by {@link #reload(Collection)},
+ * {@link #reload(Path)} or {@link #add_all(Collection)}, so a lookup sees either the previous or the
+ * new list.
+ * <p>
+ * Tokens are checked against the index while they are deserialized with
+ * {@link Biscuit#from_bytes(byte[], org.biscuitsec.biscuit.crypto.KeyDelegate, RevocationIndex)}.
+ */
+public final class RevocationIndex {
+    private final double falsePositiveRate;
+    private volatile Content content;
+
+    /**
+     * Creates an empty index without a Bloom filter
+     */
+    public RevocationIndex() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty index
+     *
+     * @param falsePositiveRate false positive rate of the Bloom filter, between 0 and 1. 0 disables the filter
+     */
+    public RevocationIndex(double falsePositiveRate) {
+        if (falsePositiveRate < 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("the false positive rate must be between 0 and 1");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.content = new Content(new ArrayList<>(), falsePositiveRate);
+    }
+
+    public int size() {
+        return this.content.size();
+    }
+
+    public boolean contains(byte[] id) {
+        return this.content.contains(id);
+    }
+
+    public boolean contains(RevocationIdentifier id) {
+        return contains(id.getBytes());
+    }
+
+    /**
+     * @return the index of the first revoked block, or -1
+     */
+    public int first_revoked(List<byte[]> revocation_ids) {
+        Content c = this.content;
+        for (int i = 0; i < revocation_ids.size(); i++) {
+            if (c.contains(revocation_ids.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the revocation identifiers of a token
+     *
+     * @throws Error.Revoked with the index of the first revoked block
+     */
+    public void check(List<byte[]> revocation_ids) throws Error.Revoked {
+        int block = first_revoked(revocation_ids);
+        if (block >= 0) {
+            throw new Error.Revoked(block);
+        }
+    }
+
+    public boolean is_revoked(UnverifiedBiscuit token) {
+        return first_revoked(token.revocation_ids) >= 0;
+    }
+
+    /**
+     * Replaces the content of the index
+     */
+    public synchronized void reload(Collection<byte[]> ids) {
+        this.content = new Content(new ArrayList<>(ids), this.falsePositiveRate);
+    }
+
+    /**
+     * Replaces the content of the index with a file of hexadecimal identifiers, one per line, as
+     * printed by {@link RevocationIdentifier#toHex()}
+     * <p>
+     * Empty lines and lines starting with '#' are ignored. If the file cannot be read, the index is not modified.
+     */
+    public void reload(Path file) throws IOException {
+        List<byte[]> ids;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            ids = read(reader);
+        }
+        synchronized (this) {
+            this.content = new Content(ids, this.falsePositiveRate);
+        }
+    }
+
+    /**
+     * Adds identifiers to the index
+     * <p>
+     * This copies the current content, so identifiers should be added in batches.
+     */
+    public synchronized void add_all(Collection<byte[]> ids) {
+        Content current = this.content;
+        List<byte[]> merged = new ArrayList<>(current.size() + ids.size());
+        for (int i = 0; i < current.size(); i++) {
+            merged.add(current.get(i));
+        }
+        merged.addAll(ids);
+        this.content = new Content(merged, this.falsePositiveRate);
+    }
+
+    private static List<byte[]> read(BufferedReader lines) throws IOException {
+        List<byte[]> ids = new ArrayList<>();
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+
+            byte[] id = hex(line);
+            if (id == null) {
+                throw new IOException("invalid revocation identifier at line " + lineNumber);
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static byte[] hex(String s) {
+        if (s.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[s.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(s.charAt(2 * i), 16);
+            int low = Character.digit(s.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Immutable content of the index
+     * <p>
+     * The identifier i is stored in data, from offsets[i] to offsets[i + 1].
+     */
+    private static final class Content {
+        private final byte[] data;
+        private final int[] offsets;
+        private final long[] bloom;
+        private final long bloomBits;
+        private final int hashes;
+
+        Content(List<byte[]> ids, double falsePositiveRate) {
+            ids.sort(Arrays::compareUnsigned);
+
+            long length = 0;
+            int count = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                if (i == 0 || !Arrays.equals(ids.get(i), ids.get(i - 1))) {
+                    length += ids.get(i).length;
+                    count++;
+                }
+            }
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("too many revocation identifiers");
+            }
+
+            this.data = new byte[(int) length];
+            this.offsets = new int[count + 1];
+            int position = 0;
+            int index = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] id = ids.get(i);
+                if (i == 0 || !Arrays.equals(id, ids.get(i - 1))) {
+                    System.arraycopy(id, 0, this.data, position, id.length);
+                    this.offsets[index++] = position;
+                    position += id.length;
+                }
+            }
+            this.offsets[count] = position;
+
+            if (falsePositiveRate > 0 && count > 0) {
+                double bitsPerId = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+                long bits = Math.max(64, Math.min((long) Math.ceil(count * bitsPerId), Integer.MAX_VALUE));
+                this.bloom = new long[(int) ((bits + 63) / 64)];
+                this.bloomBits = bits;
+                this.hashes = Math.max(1, (int) Math.round(bitsPerId * Math.log(2)));
+                for (int i = 0; i < count; i++) {
+                    long h = hash(this.data, this.offsets[i], this.offsets[i + 1]);
+                    for (int k = 0; k < this.hashes; k++) {
+                        long bit = bit(h, k);
+                        this.bloom[(int) (bit >>> 6)] |= 1L << bit;
+                    }
+                }
+            } else {
+                this.bloom = null;
+                this.bloomBits = 0;
+                this.hashes = 0;
+            }
+        }
+
+        int size() {
+            return this.offsets.length - 1;
+        }
+
+        byte[] get(int i) {
+            return Arrays.copyOfRange(this.data, this.offsets[i], this.offsets[i + 1]);
+        }
+
+        boolean contains(byte[] id) {
+            if (this.bloom != null) {
+                long h = hash(id, 0, id.length);
+                for (int k = 0; k < this.hashes; k++) {
+                    long bit = bit(h, k);
+                    if ((this.bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                        return false;
+                    }
+                }
+            }
+
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int cmp = Arrays.compareUnsigned(this.data, this.offsets[middle], this.offsets[middle + 1], id, 0, id.length);
+                if (cmp < 0) {
+                    low = middle + 1;
+                } else if (cmp > 0) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Position of the k-th bit of an identifier in the Bloom filter, from the two halves of its hash
+         */
+        private long bit(long h, int k) {
+            long combined = ((h >>> 32) + k * (h & 0xffffffffL)) & 0xffffffffL;
+            return (combined * this.bloomBits) >>> 32;
+        }
+
+        private static long hash(byte[] bytes, int from, int to) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = from; i < to; i++) {
+                h = (h ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.biscuitsec.biscuit.token;
+
+import biscuit.format.schema.Schema;
+import com.google.protobuf.ByteString;
+import io.vavr.control.Either;
+import io.vavr.control.Option;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.KeyPairPool;
+import org.biscuitsec.biscuit.datalog.SymbolTable;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.builder.Fact;
+import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Authority block compiled once, to mint tokens that only differ by a few facts
+ * <p>
+ * The constant part of the block is converted and serialized when the template is created. Minting a
+ * token converts the additional facts with a copy of the template's symbol table, and serializes them
+ * as a protobuf fragment appended to the template's bytes. Protobuf appends repeated fields, so the
+ * token's authority block contains the template's symbols and facts followed by the new ones.
+ * <p>
+ * A template is immutable and can be shared between threads.
+ */
+public final class TokenTemplate {
+    private static final int KEY_QUEUE_CAPACITY = 64;
+
+    private final KeyPair root;
+    private final Option<Integer> root_key_id;
+    private final Block authority;
+    private final ByteString encoded;
+
+    public TokenTemplate(KeyPair root, org.biscuitsec.biscuit.token.builder.Block block) {
+        this(root, Option.none(), block);
+    }
+
+    public TokenTemplate(KeyPair root, Option<Integer> root_key_id, org.biscuitsec.biscuit.token.builder.Block block) {
+        this.root = root;
+        this.root_key_id = root_key_id;
+        this.authority = block.build();
+        for (org.biscuitsec.biscuit.crypto.PublicKey pk : this.authority.publicKeys) {
+            this.authority.symbols.insert(pk);
+        }
+        this.encoded = this.authority.serialize().toByteString();
+    }
+
+    /**
+     * Creates a token with the template's authority block and additional facts
+     */
+    public Biscuit mint(SecureRandom rng, List<Fact> facts) throws Error {
+        return mint(facts, KeyPairPool.ephemeral(this.root.public_key().algorithm, rng));
+    }
+
+    /**
+     * Creates tokens with the template's authority block, each with its own additional facts
+     * <p>
+     * The ephemeral key pairs of the tokens are generated on the executor while the tokens are signed.
+     * When no key pair is ready, one is taken from the default {@link KeyPairPool}, or generated on the calling thread.
+     *
+     * @return the tokens, in the order of the facts
+     */
+    public List<Biscuit> mint_all(SecureRandom rng, List<List<Fact>> facts, Executor executor) throws Error {
+        Schema.PublicKey.Algorithm alg = this.root.public_key().algorithm;
+        BlockingQueue<KeyPair> keys = new ArrayBlockingQueue<>(Math.max(1, Math.min(KEY_QUEUE_CAPACITY, facts.size())));
+        AtomicInteger remaining = new AtomicInteger(facts.size());
+        CompletableFuture<Void> generator = CompletableFuture.runAsync(() -> {
+            try {
+                while (remaining.getAndDecrement() > 0) {
+                    keys.put(KeyPair.generate(alg, rng));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor);
+
+        try {
+            List<Biscuit> tokens = new ArrayList<>(facts.size());
+            for (List<Fact> f : facts) {
+                KeyPair next = keys.poll();
+                if (next == null) {
+                    remaining.decrementAndGet();
+                    next = KeyPairPool.ephemeral(alg, rng);
+                }
+                tokens.add(mint(f, next));
+            }
+            return tokens;
+        } finally {
+            remaining.set(0);
+            keys.clear();
+            generator.cancel(false);
+        }
+    }
+
+    private Biscuit mint(List<Fact> facts, KeyPair next) throws Error {
+        SymbolTable symbols = new SymbolTable(this.authority.symbols);
+        int symbolStart = symbols.currentOffset();
+
+        List<org.biscuitsec.biscuit.datalog.Fact> converted = new ArrayList<>(this.authority.facts.size() + facts.size());
+        converted.addAll(this.authority.facts);
+        Schema.Block.Builder fragment = Schema.Block.newBuilder();
+        for (Fact f : facts) {
+            f.validate();
+            org.biscuitsec.biscuit.datalog.Fact fact = f.convert(symbols);
+            converted.add(fact);
+            fragment.addFactsV2(fact.serialize());
+        }
+        for (int i = symbolStart; i < symbols.symbols.size(); i++) {
+            fragment.addSymbols(symbols.symbols.get(i));
+        }
+
+        Block block = new Block(symbols, this.authority.context, converted, this.authority.rules, this.authority.checks,
+                this.authority.scopes, this.authority.publicKeys, Option.none(), (int) this.authority.version);
+
+        Either<Error.FormatError, SerializedBiscuit> container = SerializedBiscuit.make(this.root, this.root_key_id,
+                this.encoded.concat(fragment.buildPartial().toByteString()), next);
+        if (container.isLeft()) {
+            throw container.getLeft();
+        }
+        SerializedBiscuit s = container.get();
+        return new Biscuit(block, new ArrayList<>(), symbols, s, s.revocation_identifiers());
+    }
+}
@@ -4,6 +4,7 @@ import biscuit.format.schema.Schema;
 import biscuit.format.schema.Schema.PublicKey.Algorithm;
 import org.biscuitsec.biscuit.crypto.KeyDelegate;
 import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.KeyPairPool;
 import org.biscuitsec.biscuit.crypto.PublicKey;
 import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.token.format.ExternalSignature;
@@ -11,6 +12,8 @@ import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
 import io.vavr.Tuple2;
 import io.vavr.control.Either;
 import io.vavr.control.Option;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import org.biscuitsec.biscuit.datalog.Check;
 import org.biscuitsec.biscuit.datalog.SymbolTable;
 
@@ -48,7 +51,38 @@ public class UnverifiedBiscuit {
      * @return Biscuit
      */
     static public UnverifiedBiscuit from_b64url(String data) throws Error {
-        return UnverifiedBiscuit.from_bytes(Base64.getUrlDecoder().decode(data));
+        return UnverifiedBiscuit.from_b64url((CharSequence) data);
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public UnverifiedBiscuit from_b64url(CharSequence data) throws Error {
+        SerializedBiscuit ser = SerializedBiscuit.unsafe_deserialize_b64url(data);
+        return UnverifiedBiscuit.from_serialized_biscuit(ser, default_symbol_table());
+    }
+
+    /**
+     * Deserializes a Biscuit token from a base64 url (RFC4648_URLSAFE) string, as ASCII characters in a ByteBuffer
+     * <p>
+     * The data is decoded while the token is parsed, without an intermediate array.
+     * The buffer's position is not changed.
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return Biscuit
+     */
+    static public UnverifiedBiscuit from_b64url(ByteBuffer data) throws Error {
+        SerializedBiscuit ser = SerializedBiscuit.unsafe_deserialize_b64url(data);
+        return UnverifiedBiscuit.from_serialized_biscuit(ser, default_symbol_table());
     }
 
     /**
@@ -63,6 +97,32 @@ public class UnverifiedBiscuit {
         return UnverifiedBiscuit.from_bytes_with_symbols(data, default_symbol_table());
     }
 
+    /**
+     * Deserializes a Biscuit token from a heap or direct ByteBuffer, without copying it
+     * <p>
+     * The buffer's content must not be modified while the token is in use.
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return UnverifiedBiscuit
+     */
+    static public UnverifiedBiscuit from_bytes(ByteBuffer data) throws Error {
+        return UnverifiedBiscuit.from_bytes(UnsafeByteOperations.unsafeWrap(data.slice()));
+    }
+
+    /**
+     * Deserializes a Biscuit token from a ByteString, without copying it
+     * <p>
+     * This method uses the default symbol table
+     *
+     * @param data
+     * @return UnverifiedBiscuit
+     */
+    static public UnverifiedBiscuit from_bytes(ByteString data) throws Error {
+        SerializedBiscuit ser = SerializedBiscuit.unsafe_deserialize(data);
+        return UnverifiedBiscuit.from_serialized_biscuit(ser, default_symbol_table());
+    }
+
     /**
      * Deserializes a UnverifiedBiscuit from a byte array
      *
@@ -98,6 +158,51 @@ public class UnverifiedBiscuit {
         return this.serializedBiscuit.serialize();
     }
 
+    /**
+     * Size in bytes of the serialized token, to allocate the buffer passed to {@link #serialize(ByteBuffer)}
+     * <p>
+     * This builds the serialized message, so use {@link #serialize_buffer(boolean)} when the buffer
+     * only holds this token.
+     *
+     * @return
+     */
+    public int serialized_size() {
+        return this.serializedBiscuit.serialized_size();
+    }
+
+    /**
+     * Serializes a token into a heap or direct ByteBuffer, starting at its position
+     * <p>
+     * The buffer's position is advanced by the number of bytes written
+     *
+     * @param out
+     * @return number of bytes written
+     */
+    public int serialize(ByteBuffer out) throws Error.FormatError.SerializationError {
+        return this.serializedBiscuit.serialize(out);
+    }
+
+    /**
+     * Serializes a token into a new ByteBuffer of the serialized size
+     *
+     * @param direct allocates a direct buffer if true, a heap buffer otherwise
+     * @return the serialized token, between position 0 and the buffer's limit
+     */
+    public ByteBuffer serialize_buffer(boolean direct) throws Error.FormatError.SerializationError {
+        return this.serializedBiscuit.serialize_buffer(direct);
+    }
+
+    /**
+     * Serializes a token into a byte array, starting at offset
+     *
+     * @param out
+     * @param offset
+     * @return number of bytes written
+     */
+    public int serialize(byte[] out, int offset) throws Error.FormatError.SerializationError {
+        return this.serializedBiscuit.serialize(out, offset);
+    }
+
     /**
      * Serializes a token to base 64 url String using RFC4648_URLSAFE
      *
@@ -105,7 +210,7 @@ public class UnverifiedBiscuit {
      * @throws Error.FormatError.SerializationError
      */
     public String serialize_b64url() throws Error.FormatError.SerializationError {
-        return Base64.getUrlEncoder().encodeToString(serialize());
+        return this.serializedBiscuit.serialize_b64url();
     }
 
     /**
@@ -125,15 +230,14 @@ public class UnverifiedBiscuit {
      * @return
      */
     public UnverifiedBiscuit attenuate(org.biscuitsec.biscuit.token.builder.Block block, Algorithm algorithm) throws Error {
-        SecureRandom rng = new SecureRandom();
-        KeyPair keypair = KeyPair.generate(algorithm, rng);
-        SymbolTable builderSymbols = new SymbolTable(this.symbols);
-        return attenuate(rng, keypair, block.build(builderSymbols));
+        return attenuate(null, KeyPairPool.ephemeral(algorithm), block);
     }
 
     public UnverifiedBiscuit attenuate(final SecureRandom rng, final KeyPair keypair, org.biscuitsec.biscuit.token.builder.Block block) throws Error {
+        // the builder only adds the new block's symbols and public keys after the existing ones,
+        // so its symbol table is the one of the attenuated token
         SymbolTable builderSymbols = new SymbolTable(this.symbols);
-        return attenuate(rng, keypair, block.build(builderSymbols));
+        return attenuate_inner(keypair, block.build(builderSymbols), builderSymbols);
     }
 
     /**
@@ -145,32 +249,48 @@ public class UnverifiedBiscuit {
      * @return
      */
     public UnverifiedBiscuit attenuate(final SecureRandom rng, final KeyPair keypair, Block block) throws Error {
-        UnverifiedBiscuit copiedBiscuit = this.copy();
-
-        if (!Collections.disjoint(copiedBiscuit.symbols.symbols, block.symbols.symbols)) {
+        if (!Collections.disjoint(this.symbols.symbols, block.symbols.symbols)) {
             throw new Error.SymbolTableOverlap();
         }
 
-        Either<Error.FormatError, SerializedBiscuit> containerRes = copiedBiscuit.serializedBiscuit.append(keypair, block, Option.none());
-        if (containerRes.isLeft()) {
-            throw containerRes.getLeft();
-        }
-        SerializedBiscuit container = containerRes.get();
-
-        SymbolTable symbols = new SymbolTable(copiedBiscuit.symbols);
+        SymbolTable symbols = new SymbolTable(this.symbols);
         for (String s : block.symbols.symbols) {
             symbols.add(s);
         }
 
-        ArrayList<Block> blocks = new ArrayList<>();
-        for (Block b : copiedBiscuit.blocks) {
-            blocks.add(b);
+        for(PublicKey pk: block.publicKeys) {
+            symbols.insert(pk);
         }
+
+        return attenuate_inner(keypair, block, symbols);
+    }
+
+    /**
+     * Signs and encodes the new block only, the decoded blocks of this token are shared
+     * with the attenuated one
+     */
+    private UnverifiedBiscuit attenuate_inner(final KeyPair keypair, Block block, SymbolTable symbols) throws Error {
+        Either<Error.FormatError, SerializedBiscuit> containerRes = this.serializedBiscuit.append(keypair, block, Option.none());
+        if (containerRes.isLeft()) {
+            throw containerRes.getLeft();
+        }
+        SerializedBiscuit container = containerRes.get();
+
+        ArrayList<Block> blocks = new ArrayList<>(this.blocks.size() + 1);
+        blocks.addAll(this.blocks);
         blocks.add(block);
 
-        List<byte[]> revocation_ids = container.revocation_identifiers();
+        return new UnverifiedBiscuit(this.authority, blocks, symbols, container, extend_revocation_ids(container));
+    }
 
-        return new UnverifiedBiscuit(copiedBiscuit.authority, blocks, symbols, container, revocation_ids);
+    /**
+     * Revocation identifiers of a token made by appending one block to this one
+     */
+    List<byte[]> extend_revocation_ids(SerializedBiscuit container) {
+        List<byte[]> revocation_ids = new ArrayList<>(this.revocation_ids.size() + 1);
+        revocation_ids.addAll(this.revocation_ids);
+        revocation_ids.add(container.blocks.get(container.blocks.size() - 1).signature);
+        return revocation_ids;
     }
     //FIXME: attenuate 3rd Party
 
@@ -234,7 +354,7 @@ public class UnverifiedBiscuit {
      */
     public UnverifiedBiscuit appendThirdPartyBlock(PublicKey externalKey, ThirdPartyBlockContents blockResponse)
             throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
-        KeyPair nextKeyPair = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519);
+        KeyPair nextKeyPair = KeyPairPool.ephemeral(Schema.PublicKey.Algorithm.Ed25519);
 
         Signature sgr = KeyPair.generateSignature(externalKey.algorithm);
         sgr.initVerify(externalKey.key);
@@ -265,25 +385,21 @@ public class UnverifiedBiscuit {
 
         ExternalSignature externalSignature = new ExternalSignature(externalKey, blockResponse.signature);
 
-        UnverifiedBiscuit copiedBiscuit = this.copy();
-
-        Either<Error.FormatError, SerializedBiscuit> containerRes = copiedBiscuit.serializedBiscuit.append(nextKeyPair, block, Option.some(externalSignature));
+        Either<Error.FormatError, SerializedBiscuit> containerRes = this.serializedBiscuit.append(nextKeyPair, block, Option.some(externalSignature));
         if (containerRes.isLeft()) {
             throw containerRes.getLeft();
         }
 
         SerializedBiscuit container = containerRes.get();
 
-        SymbolTable symbols = new SymbolTable(copiedBiscuit.symbols);
+        // blocks with external signatures keep their own symbol table
+        SymbolTable symbols = new SymbolTable(this.symbols);
 
-        ArrayList<Block> blocks = new ArrayList<>();
-        for (Block b : copiedBiscuit.blocks) {
-            blocks.add(b);
-        }
+        ArrayList<Block> blocks = new ArrayList<>(this.blocks.size() + 1);
+        blocks.addAll(this.blocks);
         blocks.add(block);
 
-        List<byte[]> revocation_ids = container.revocation_identifiers();
-        return new UnverifiedBiscuit(copiedBiscuit.authority, blocks, symbols, container, revocation_ids);
+        return new UnverifiedBiscuit(this.authority, blocks, symbols, container, extend_revocation_ids(container));
     }
 
     /**
@@ -1,9 +1,11 @@
 package org.biscuitsec.biscuit.token.builder;
 
 import org.biscuitsec.biscuit.datalog.SymbolTable;
+import org.biscuitsec.biscuit.error.Error;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.biscuitsec.biscuit.datalog.Check.Kind.One;
@@ -25,6 +27,19 @@ public class Check {
         queries = r;
     }
 
+    /**
+     * Creates a copy of this check with the variables set to the parameters
+     *
+     * @see Rule#bind(List, Map)
+     */
+    public Check bind(Map<String, Term> parameters) throws Error.Language {
+        return new Check(this.kind, Rule.bind(this.queries, parameters));
+    }
+
+    public List<Rule> queries() {
+        return this.queries;
+    }
+
     public org.biscuitsec.biscuit.datalog.Check convert(SymbolTable symbols) {
         ArrayList<org.biscuitsec.biscuit.datalog.Rule> queries = new ArrayList<>();
 
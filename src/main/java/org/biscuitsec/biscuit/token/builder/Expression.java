@@ -1,6 +1,7 @@
 package org.biscuitsec.biscuit.token.builder;
 
 import org.biscuitsec.biscuit.datalog.SymbolTable;
+import io.vavr.control.Option;
 
 import java.util.*;
 
@@ -117,6 +118,11 @@ public abstract class Expression {
     public abstract void toOpcodes(SymbolTable symbols, List<org.biscuitsec.biscuit.datalog.expressions.Op> ops);
     public abstract void gatherVariables(Set<String> variables);
 
+    /**
+     * @return this expression with the variables replaced by their value, if they have one
+     */
+    abstract Expression apply_variables(Map<String, Option<Term>> variables);
+
     public enum Op {
         Negate,
         Parens,
@@ -161,6 +167,16 @@ public abstract class Expression {
             }
         }
 
+        Expression apply_variables(Map<String, Option<Term>> variables) {
+            if (this.value instanceof Term.Variable) {
+                Option<Term> t = variables.getOrDefault(((Term.Variable) this.value).value, Option.none());
+                if (t.isDefined()) {
+                    return new Value(t.get());
+                }
+            }
+            return this;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -211,6 +227,11 @@ public abstract class Expression {
             this.arg1.gatherVariables(variables);
         }
 
+        Expression apply_variables(Map<String, Option<Term>> variables) {
+            Expression a1 = this.arg1.apply_variables(variables);
+            return a1 == this.arg1 ? this : new Unary(this.op, a1);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -330,6 +351,12 @@ public abstract class Expression {
             this.arg2.gatherVariables(variables);
         }
 
+        Expression apply_variables(Map<String, Option<Term>> variables) {
+            Expression a1 = this.arg1.apply_variables(variables);
+            Expression a2 = this.arg2.apply_variables(variables);
+            return a1 == this.arg1 && a2 == this.arg2 ? this : new Binary(this.op, a1, a2);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -35,12 +35,12 @@ public class Rule implements Cloneable {
                 }
             }
         }
+        Set<String> expressionVariables = new HashSet<>();
         for (Expression e : expressions) {
-            if (e instanceof Expression.Value) {
-                Expression.Value ev = (Expression.Value) e;
-                if (ev.value instanceof Term.Variable)
-                    variables.put(((Term.Variable) ev.value).value, Option.none());
-            }
+            e.gatherVariables(expressionVariables);
+        }
+        for (String v : expressionVariables) {
+            variables.put(v, Option.none());
         }
         this.variables = Option.some(variables);
     }
@@ -48,13 +48,44 @@ public class Rule implements Cloneable {
     @Override
     public Rule clone() {
         Predicate head = this.head.clone();
-        List<Predicate> body = new ArrayList<>();
-        body.addAll(this.body);
+        List<Predicate> body = new ArrayList<>(this.body.size());
+        for (Predicate p : this.body) {
+            body.add(p.clone());
+        }
         List<Expression> expressions = new ArrayList<>();
         expressions.addAll(this.expressions);
         List<Scope> scopes = new ArrayList<>();
         scopes.addAll(this.scopes);
-        return new Rule(head, body, expressions, scopes);
+        Rule r = new Rule(head, body, expressions, scopes);
+        this.variables.forEach(_variables -> r.variables.get().putAll(_variables));
+        return r;
+    }
+
+    /**
+     * Creates copies of the queries of a check or policy, with the variables set to the parameters
+     * <p>
+     * The queries are not modified, so they can be shared.
+     * Each parameter must appear in at least one of the queries.
+     */
+    public static List<Rule> bind(List<Rule> queries, Map<String, Term> parameters) throws Error.Language {
+        List<Rule> bound = new ArrayList<>(queries.size());
+        Set<String> unused = new HashSet<>(parameters.keySet());
+        for (Rule query : queries) {
+            Rule r = query.clone();
+            Map<String, Option<Term>> _variables = r.variables.get();
+            for (Map.Entry<String, Term> parameter : parameters.entrySet()) {
+                if (_variables.containsKey(parameter.getKey())) {
+                    _variables.put(parameter.getKey(), Option.some(parameter.getValue()));
+                    unused.remove(parameter.getKey());
+                }
+            }
+            bound.add(r);
+        }
+
+        if (!unused.isEmpty()) {
+            throw new Error.Language(new FailedCheck.LanguageError.UnknownVariable(unused.iterator().next()));
+        }
+        return bound;
     }
 
     public void set(String name, Term term) throws Error.Language {
@@ -87,19 +118,9 @@ public class Rule implements Cloneable {
                             } else return Stream.of(t);
                         }).collect(Collectors.toList());
                     }
-                    this.expressions = this.expressions.stream().flatMap(
-                            e -> {
-                                if (e instanceof Expression.Value) {
-                                    Expression.Value ev = (Expression.Value) e;
-                                    if (ev.value instanceof Term.Variable) {
-                                        Option<Term> t = _variables.getOrDefault(((Term.Variable) ev.value).value, Option.none());
-                                        if (t.isDefined()) {
-                                            return Stream.of(new Expression.Value(t.get()));
-                                        }
-                                    }
-                                }
-                                return Stream.of(e);
-                            }).collect(Collectors.toList());
+                    this.expressions = this.expressions.stream()
+                            .map(e -> e.apply_variables(_variables))
+                            .collect(Collectors.toList());
                 });
     }
 
@@ -0,0 +1,118 @@
+package org.biscuitsec.biscuit.token.builder.parser;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Position in the text being parsed, between a start and an end index
+ * <p>
+ * Parsers advance the position instead of creating a new string for the remaining input.
+ * The remaining input is only copied when an error is created, to keep the same error
+ * messages as the string based parsers.
+ */
+final class Cursor {
+    final CharSequence text;
+    final int end;
+    int position;
+
+    Cursor(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    Cursor(CharSequence text, int start, int end) {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    boolean isEmpty() {
+        return this.position >= this.end;
+    }
+
+    /**
+     * @return the current character, or 0 at the end of the input
+     */
+    char peek() {
+        return peek(0);
+    }
+
+    char peek(int offset) {
+        int i = this.position + offset;
+        return i < this.end ? this.text.charAt(i) : 0;
+    }
+
+    boolean startsWith(String prefix) {
+        if (this.end - this.position < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (this.text.charAt(this.position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void skip(int n) {
+        this.position = Math.min(this.end, this.position + n);
+    }
+
+    /**
+     * skips spaces, tabulations and line breaks
+     */
+    void space() {
+        while (this.position < this.end) {
+            char c = this.text.charAt(this.position);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                break;
+            }
+            this.position++;
+        }
+    }
+
+    /**
+     * @return the characters matching the predicate, starting at the current position
+     */
+    String take_while(IntPredicate f) {
+        int start = this.position;
+        while (this.position < this.end && f.test(this.text.charAt(this.position))) {
+            this.position++;
+        }
+        return this.text.subSequence(start, this.position).toString();
+    }
+
+    /**
+     * @return a cursor over the same input, without the leading and trailing whitespace
+     */
+    Cursor strip() {
+        int start = this.position;
+        int end = this.end;
+        while (start < end && Character.isWhitespace(this.text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(this.text.charAt(end - 1))) {
+            end--;
+        }
+        return new Cursor(this.text, start, end);
+    }
+
+    /**
+     * @return the remaining input
+     */
+    String rest() {
+        return from(this.position);
+    }
+
+    /**
+     * @return the input between an earlier position and the end
+     */
+    String from(int start) {
+        return this.text.subSequence(start, this.end).toString();
+    }
+
+    /**
+     * @return an error at the current position
+     */
+    Error error(String message) {
+        return new Error(rest(), message);
+    }
+}
@@ -5,12 +5,17 @@ import io.vavr.Tuple2;
 import io.vavr.control.Either;
 import org.biscuitsec.biscuit.token.builder.Expression;
 
-import static org.biscuitsec.biscuit.token.builder.parser.Parser.space;
-import static org.biscuitsec.biscuit.token.builder.parser.Parser.term;
+import java.util.function.Function;
 
 public class ExpressionParser {
     public static Either<Error, Tuple2<String, Expression>> parse(String s) {
-        return expr(space(s));
+        Cursor c = new Cursor(s);
+        c.space();
+        Either<Error, Expression> res = expr(c);
+        if (res.isLeft()) {
+            return Either.left(res.getLeft());
+        }
+        return Either.right(new Tuple2<>(c.rest(), res.get()));
     }
 
     // Top-lever parser for an expression. Expression parsers are layered in
@@ -23,634 +28,315 @@ public class ExpressionParser {
     // and their operands delegate to parsers that progressively handle more
     // tightly binding operators.
     //
+    // The parsers advance the cursor when they succeed. The operator parsers
+    // return null without moving the cursor when they do not recognize an operator.
+    //
     // This level handles the last operator in the precedence list: `||`
     // `||` is left associative, so multiple `||` expressions can be combined:
     // `a || b || c <=> (a || b) || c`
-    public static Either<Error, Tuple2<String, Expression>> expr(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr1(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op0(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr1(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr(Cursor c) {
+        return left_associative(c, ExpressionParser::expr1, ExpressionParser::binary_op0);
     }
 
     /// This level handles `&&`
     /// `&&` is left associative, so multiple `&&` expressions can be combined:
     /// `a && b && c <=> (a && b) && c`
-    public static Either<Error, Tuple2<String, Expression>> expr1(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr2(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op1(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr2(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr1(Cursor c) {
+        return left_associative(c, ExpressionParser::expr2, ExpressionParser::binary_op1);
     }
 
     /// This level handles comparison operators (`==`, `>`, `>=`, `<`, `<=`).
     /// Those operators are _not_ associative and require explicit grouping
     /// with parentheses.
-    public static Either<Error, Tuple2<String, Expression>> expr2(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr3(s);
+    static Either<Error, Expression> expr2(Cursor c) {
+        Either<Error, Expression> res1 = expr3(c);
         if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
+            return res1;
         }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
 
-        s = space(s);
-
-        Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op2(s);
-        if (res2.isLeft()) {
-            return Either.right(t1);
+        int position = c.position;
+        c.space();
 
+        Expression.Op op = binary_op2(c);
+        if (op == null) {
+            c.position = position;
+            return res1;
         }
-        Tuple2<String, Expression.Op> t2 = res2.get();
-        s = t2._1;
-        Expression.Op op = t2._2;
 
-        s = space(s);
+        c.space();
 
-        Either<Error, Tuple2<String, Expression>> res3 = expr3(s);
+        Either<Error, Expression> res3 = expr3(c);
         if (res3.isLeft()) {
-            return Either.left(res3.getLeft());
+            return res3;
         }
-        Tuple2<String, Expression> t3 = res3.get();
-
-        s = t3._1;
-        Expression e2 = t3._2;
 
-        e = new Expression.Binary(op, e, e2);
-
-        return Either.right(new Tuple2<>(s, e));
+        return Either.right(new Expression.Binary(op, res1.get(), res3.get()));
     }
 
     /// This level handles `|`.
     /// It is left associative, so multiple expressions can be combined:
     /// `a | b | c <=> (a | b) | c`
-    public static Either<Error, Tuple2<String, Expression>> expr3(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr4(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op3(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr4(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr3(Cursor c) {
+        return left_associative(c, ExpressionParser::expr4, ExpressionParser::binary_op3);
     }
 
     /// This level handles `^`.
     /// It is left associative, so multiple expressions can be combined:
     /// `a ^ b ^ c <=> (a ^ b) ^ c`
-    public static Either<Error, Tuple2<String, Expression>> expr4(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr5(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op4(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr5(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr4(Cursor c) {
+        return left_associative(c, ExpressionParser::expr5, ExpressionParser::binary_op4);
     }
 
     /// This level handles `&`.
     /// It is left associative, so multiple expressions can be combined:
     /// `a & b & c <=> (a & b) & c`
-    public static Either<Error, Tuple2<String, Expression>> expr5(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr6(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op5(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr6(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr5(Cursor c) {
+        return left_associative(c, ExpressionParser::expr6, ExpressionParser::binary_op5);
     }
 
     /// This level handles `+` and `-`.
     /// They are left associative, so multiple expressions can be combined:
     /// `a + b - c <=> (a + b) - c`
-    public static Either<Error, Tuple2<String, Expression>> expr6(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr7(s);
-        if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
-        }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
-
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
-                break;
-            }
-
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op6(s);
-            if (res2.isLeft()) {
-                break;
-            }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Expression>> res3 = expr7(s);
-            if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
-            }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
-
-            e = new Expression.Binary(op, e, e2);
-        }
-
-        return Either.right(new Tuple2<>(s, e));
+    static Either<Error, Expression> expr6(Cursor c) {
+        return left_associative(c, ExpressionParser::expr7, ExpressionParser::binary_op6);
     }
 
     /// This level handles `*` and `/`.
     /// They are left associative, so multiple expressions can be combined:
     /// `a * b / c <=> (a * b) / c`
-    public static Either<Error, Tuple2<String, Expression>> expr7(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr8(s);
+    static Either<Error, Expression> expr7(Cursor c) {
+        return left_associative(c, ExpressionParser::expr8, ExpressionParser::binary_op7);
+    }
+
+    private static Either<Error, Expression> left_associative(Cursor c,
+                                                              Function<Cursor, Either<Error, Expression>> operand,
+                                                              Function<Cursor, Expression.Op> operator) {
+        Either<Error, Expression> res1 = operand.apply(c);
         if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
+            return res1;
         }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
+        Expression e = res1.get();
 
-        while(true) {
-            s = space(s);
-            if(s.length() == 0) {
+        while (true) {
+            c.space();
+            if (c.isEmpty()) {
                 break;
             }
 
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op7(s);
-            if (res2.isLeft()) {
+            Expression.Op op = operator.apply(c);
+            if (op == null) {
                 break;
             }
-            Tuple2<String, Expression.Op> t2 = res2.get();
-            s = t2._1;
-            Expression.Op op = t2._2;
 
-            s = space(s);
+            c.space();
 
-            Either<Error, Tuple2<String, Expression>> res3 = expr8(s);
+            Either<Error, Expression> res3 = operand.apply(c);
             if (res3.isLeft()) {
-                return Either.left(res3.getLeft());
+                return res3;
             }
-            Tuple2<String, Expression> t3 = res3.get();
-
-            s = t3._1;
-            Expression e2 = t3._2;
 
-            e = new Expression.Binary(op, e, e2);
+            e = new Expression.Binary(op, e, res3.get());
         }
 
-        return Either.right(new Tuple2<>(s, e));
+        return Either.right(e);
     }
 
     /// This level handles `!` (prefix negation)
-    public static Either<Error, Tuple2<String, Expression>> expr8(String s) {
+    static Either<Error, Expression> expr8(Cursor c) {
+        c.space();
 
-        s = space(s);
+        if (c.peek() == '!') {
+            c.skip(1);
+            c.space();
 
-        if(s.startsWith("!")) {
-            s = space(s.substring(1));
-
-            Either<Error, Tuple2<String, Expression>> res = expr9(s);
+            Either<Error, Expression> res = expr9(c);
             if (res.isLeft()) {
-                return Either.left(res.getLeft());
+                return res;
             }
 
-            Tuple2<String, Expression> t = res.get();
-            return Either.right(new Tuple2<>(t._1, new Expression.Unary(Expression.Op.Negate, t._2)));
+            return Either.right(new Expression.Unary(Expression.Op.Negate, res.get()));
         } else {
-            return expr9(s);
+            return expr9(c);
         }
     }
 
     /// This level handles methods. Methods can take either zero or one
     /// argument in addition to the expression they are called on.
     /// The name of the method decides its arity.
-    public static Either<Error, Tuple2<String, Expression>> expr9(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = expr_term(s);
+    static Either<Error, Expression> expr9(Cursor c) {
+        Either<Error, Expression> res1 = expr_term(c);
         if (res1.isLeft()) {
-            return Either.left(res1.getLeft());
+            return res1;
         }
-        Tuple2<String, Expression> t1 = res1.get();
-
-        s = t1._1;
-        Expression e = t1._2;
+        Expression e = res1.get();
 
-        while(true) {
-            s = space(s);
-            if(s.isEmpty()) {
+        while (true) {
+            c.space();
+            if (c.isEmpty() || c.peek() != '.') {
                 break;
             }
+            c.skip(1);
 
-            if (!s.startsWith(".")) {
-                return Either.right(new Tuple2<>(s, e));
-            }
-
-            s = s.substring(1);
-            Either<Error, Tuple2<String, Expression.Op>> res2 = binary_op8(s);
-            if (!res2.isLeft()) {
-                Tuple2<String, Expression.Op> t2 = res2.get();
-                s = space(t2._1);
-                Expression.Op op = t2._2;
+            Expression.Op op = binary_op8(c);
+            if (op != null) {
+                c.space();
 
-                if (!s.startsWith("(")) {
-                    return Either.left(new Error(s, "missing ("));
+                if (c.peek() != '(') {
+                    return Either.left(c.error("missing ("));
                 }
+                c.skip(1);
+                c.space();
 
-                s = space(s.substring(1));
-
-                Either<Error, Tuple2<String, Expression>> res3 = expr(s);
+                Either<Error, Expression> res3 = expr(c);
                 if (res3.isLeft()) {
-                    return Either.left(res3.getLeft());
+                    return res3;
                 }
 
-                Tuple2<String, Expression> t3 = res3.get();
-
-                s = space(t3._1);
-                if (!s.startsWith(")")) {
-                    return Either.left(new Error(s, "missing )"));
+                c.space();
+                if (c.peek() != ')') {
+                    return Either.left(c.error("missing )"));
                 }
-                s = space(s.substring(1));
-                Expression e2 = t3._2;
+                c.skip(1);
 
-                e = new Expression.Binary(op, e, e2);
+                e = new Expression.Binary(op, e, res3.get());
+            } else if (c.startsWith("length()")) {
+                c.skip("length()".length());
+                e = new Expression.Unary(Expression.Op.Length, e);
             } else {
-                if (s.startsWith("length()")) {
-                    e = new Expression.Unary(Expression.Op.Length, e);
-                    s = s.substring(9);
-                }
+                return Either.left(c.error("unrecognized method"));
             }
         }
 
-        return Either.right(new Tuple2<>(s, e));
+        return Either.right(e);
     }
 
-    public static Either<Error, Tuple2<String, Expression>> expr_term(String s) {
-        Either<Error, Tuple2<String, Expression>> res1 = unary_parens(s);
-        if (res1.isRight()) {
-            return res1;
+    static Either<Error, Expression> expr_term(Cursor c) {
+        if (c.peek() == '(') {
+            int start = c.position;
+            Either<Error, Expression> res1 = unary_parens(c);
+            if (res1.isRight()) {
+                return res1;
+            }
+            c.position = start;
         }
 
-        Either<Error, Tuple2<String, Term>> res2 = term(s);
+        Either<Error, Term> res2 = Parser.term(c);
         if (res2.isLeft()) {
             return Either.left(res2.getLeft());
         }
-        Tuple2<String, Term> t2 = res2.get();
-        Expression e = new Expression.Value(t2._2);
 
-        return Either.right(new Tuple2<>(t2._1, e));
+        return Either.right(new Expression.Value(res2.get()));
     }
 
-    public static Either<Error, Tuple2<String, Expression>> unary(String s) {
-        s = space(s);
-
-        if(s.startsWith("!")) {
-            s = space(s.substring(1));
-
-            Either<Error, Tuple2<String, Expression>> res = expr(s);
-            if (res.isLeft()) {
-                return Either.left(res.getLeft());
-            }
-
-            Tuple2<String, Expression> t = res.get();
-            return Either.right(new Tuple2<>(t._1, new Expression.Unary(Expression.Op.Negate, t._2)));
+    static Either<Error, Expression> unary_parens(Cursor c) {
+        if (c.peek() != '(') {
+            return Either.left(c.error("missing ("));
         }
+        c.skip(1);
+        c.space();
 
-
-        if(s.startsWith("(")) {
-            Either<Error, Tuple2<String, Expression>> res = unary_parens(s);
-            if (res.isLeft()) {
-                return Either.left(res.getLeft());
-            }
-
-            Tuple2<String, Expression> t = res.get();
-            return Either.right(new Tuple2<>(t._1,  t._2));
+        Either<Error, Expression> res = expr(c);
+        if (res.isLeft()) {
+            return res;
         }
 
-        Expression e;
-        Either<Error, Tuple2<String, Term>> res = term(s);
-        if (res.isRight()) {
-            Tuple2<String, Term> t = res.get();
-            s = space(t._1);
-            e = new Expression.Value(t._2);
-        } else {
-            Either<Error, Tuple2<String, Expression>> res2 = unary_parens(s);
-            if (res2.isLeft()) {
-                return Either.left(res2.getLeft());
-            }
-
-            Tuple2<String, Expression> t = res2.get();
-            s = space(t._1);
-            e = t._2;
+        c.space();
+        if (c.peek() != ')') {
+            return Either.left(c.error("missing )"));
         }
+        c.skip(1);
+        c.space();
 
-        if(s.startsWith(".length()")) {
-            s = space(s.substring(9));
-            return Either.right(new Tuple2<>(s, new Expression.Unary(Expression.Op.Length, e)));
-        } else {
-            return Either.left(new Error(s, "unexpected token"));
-        }
+        return Either.right(new Expression.Unary(Expression.Op.Parens, res.get()));
     }
 
-    public static Either<Error, Tuple2<String, Expression>> unary_parens(String s) {
-        if(s.startsWith("(")) {
-            s = space(s.substring(1));
-
-            Either<Error, Tuple2<String, Expression>> res = expr(s);
-            if (res.isLeft()) {
-                return Either.left(res.getLeft());
-            }
-
-            Tuple2<String, Expression> t = res.get();
-
-            s = space(t._1);
-            if(!s.startsWith(")")) {
-                return Either.left(new Error(s, "missing )"));
-            }
-
-            s = space(s.substring(1));
-            return Either.right(new Tuple2<>(s, new Expression.Unary(Expression.Op.Parens, t._2)));
-        } else {
-            return Either.left(new Error(s, "missing ("));
+    private static Expression.Op operator(Cursor c, String token, Expression.Op op) {
+        if (c.startsWith(token)) {
+            c.skip(token.length());
+            return op;
         }
+        return null;
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op0(String s) {
-        if(s.startsWith("||")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.Or));
-        }
-
-        return Either.left(new Error(s, "unrecognized op"));
+    static Expression.Op binary_op0(Cursor c) {
+        return operator(c, "||", Expression.Op.Or);
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op1(String s) {
-        if(s.startsWith("&&")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.And));
-        }
-
-        return Either.left(new Error(s, "unrecognized op"));
+    static Expression.Op binary_op1(Cursor c) {
+        return operator(c, "&&", Expression.Op.And);
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op2(String s) {
-        if(s.startsWith("<=")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.LessOrEqual));
-        }
-        if(s.startsWith(">=")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.GreaterOrEqual));
-        }
-        if(s.startsWith("<")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.LessThan));
+    static Expression.Op binary_op2(Cursor c) {
+        switch (c.peek()) {
+            case '<':
+                return c.peek(1) == '=' ? operator(c, "<=", Expression.Op.LessOrEqual) : operator(c, "<", Expression.Op.LessThan);
+            case '>':
+                return c.peek(1) == '=' ? operator(c, ">=", Expression.Op.GreaterOrEqual) : operator(c, ">", Expression.Op.GreaterThan);
+            case '=':
+                return operator(c, "==", Expression.Op.Equal);
+            case '!':
+                return operator(c, "!=", Expression.Op.NotEqual);
+            default:
+                return null;
         }
-        if(s.startsWith(">")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.GreaterThan));
-        }
-        if(s.startsWith("==")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.Equal));
-        }
-        if(s.startsWith("!=")) {
-            return Either.right(new Tuple2<>(s.substring(2), Expression.Op.NotEqual));
-        }
-
-        return Either.left(new Error(s, "unrecognized op"));
     }
 
-
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op3(String s) {
-        if(s.startsWith("^")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.BitwiseXor));
-        }
-
-        return Either.left(new Error(s, "unrecognized op"));
+    static Expression.Op binary_op3(Cursor c) {
+        return operator(c, "^", Expression.Op.BitwiseXor);
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op4(String s) {
-        if(s.startsWith("|") && !s.startsWith("||")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.BitwiseOr));
+    static Expression.Op binary_op4(Cursor c) {
+        if (c.peek(1) == '|') {
+            return null;
         }
-
-        return Either.left(new Error(s, "unrecognized op"));
+        return operator(c, "|", Expression.Op.BitwiseOr);
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op5(String s) {
-        if(s.startsWith("&") && !s.startsWith("&&")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.BitwiseAnd));
+    static Expression.Op binary_op5(Cursor c) {
+        if (c.peek(1) == '&') {
+            return null;
         }
-
-        return Either.left(new Error(s, "unrecognized op"));
+        return operator(c, "&", Expression.Op.BitwiseAnd);
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op6(String s) {
-
-        if(s.startsWith("+")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.Add));
-        }
-        if(s.startsWith("-")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.Sub));
+    static Expression.Op binary_op6(Cursor c) {
+        switch (c.peek()) {
+            case '+':
+                return operator(c, "+", Expression.Op.Add);
+            case '-':
+                return operator(c, "-", Expression.Op.Sub);
+            default:
+                return null;
         }
-
-        return Either.left(new Error(s, "unrecognized op"));
     }
 
-
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op7(String s) {
-        if(s.startsWith("*")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.Mul));
-        }
-        if(s.startsWith("/")) {
-            return Either.right(new Tuple2<>(s.substring(1), Expression.Op.Div));
+    static Expression.Op binary_op7(Cursor c) {
+        switch (c.peek()) {
+            case '*':
+                return operator(c, "*", Expression.Op.Mul);
+            case '/':
+                return operator(c, "/", Expression.Op.Div);
+            default:
+                return null;
         }
-
-        return Either.left(new Error(s, "unrecognized op"));
     }
 
-    public static Either<Error, Tuple2<String, Expression.Op>> binary_op8(String s) {
-        if(s.startsWith("intersection")) {
-            return Either.right(new Tuple2<>(s.substring(12), Expression.Op.Intersection));
-        }
-        if(s.startsWith("union")) {
-            return Either.right(new Tuple2<>(s.substring(5), Expression.Op.Union));
+    static Expression.Op binary_op8(Cursor c) {
+        switch (c.peek()) {
+            case 'i':
+                return operator(c, "intersection", Expression.Op.Intersection);
+            case 'u':
+                return operator(c, "union", Expression.Op.Union);
+            case 'c':
+                return operator(c, "contains", Expression.Op.Contains);
+            case 's':
+                return operator(c, "starts_with", Expression.Op.Prefix);
+            case 'e':
+                return operator(c, "ends_with", Expression.Op.Suffix);
+            case 'm':
+                return operator(c, "matches", Expression.Op.Regex);
+            default:
+                return null;
         }
-        if(s.startsWith("contains")) {
-            return Either.right(new Tuple2<>(s.substring(8), Expression.Op.Contains));
-        }
-        if(s.startsWith("starts_with")) {
-            return Either.right(new Tuple2<>(s.substring(11), Expression.Op.Prefix));
-        }
-        if(s.startsWith("ends_with")) {
-            return Either.right(new Tuple2<>(s.substring(9), Expression.Op.Suffix));
-        }
-        if(s.startsWith("matches")) {
-            return Either.right(new Tuple2<>(s.substring(7), Expression.Op.Regex));
-        }
-
-        return Either.left(new Error(s, "unrecognized op"));
     }
 }
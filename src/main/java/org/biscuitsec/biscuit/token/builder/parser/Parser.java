@@ -1,10 +1,10 @@
 package org.biscuitsec.biscuit.token.builder.parser;
 
 import biscuit.format.schema.Schema;
-import io.vavr.collection.Stream;
 import org.biscuitsec.biscuit.crypto.PublicKey;
 import org.biscuitsec.biscuit.token.Policy;
 import io.vavr.Tuple2;
+import io.vavr.Tuple3;
 import io.vavr.Tuple4;
 import io.vavr.control.Either;
 import org.biscuitsec.biscuit.token.builder.*;
@@ -14,10 +14,21 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.function.Function;
 
+/**
+ * Datalog parser
+ * <p>
+ * The parsers work on a {@link Cursor} over the input, and the methods taking a string return
+ * the remaining input along with the result. When a parser fails, the error contains the
+ * remaining input at the position of the failure.
+ */
 public class Parser {
+    private static final List<Function<Cursor, Either<Error, ?>>> STATEMENTS =
+            List.of(Parser::rule, Parser::fact, Parser::check, Parser::scope);
+
     /**
-     * Takes a datalog string with <code>\n</code> as datalog line separator. It tries to parse
-     * each line using fact, rule, check and scope sequentially.
+     * Takes a datalog string with <code>\n</code> as datalog line separator. Each line is parsed
+     * as a rule, fact, check or scope, depending on how it starts. If that fails, the line is
+     * parsed with each of them, to report all of their errors.
      *
      * If one succeeds it returns Right(Block)
      * else it returns a Map[lineNumber, List[Error]]
@@ -36,63 +47,42 @@ public class Parser {
 
         Map<Integer, List<Error>> errors = new HashMap<>();
 
-        s = removeCommentsAndWhitespaces(s);
-        String[] codeLines = s.split(";");
-
-        Stream.of(codeLines)
-                .zipWithIndex()
-                .forEach(indexedLine -> {
-           String code = indexedLine._1.strip();
-
-           if (!code.isEmpty()) {
-               int lineNumber = indexedLine._2;
-               List<Error> lineErrors = new ArrayList<>();
-
-               boolean parsed = false;
-               parsed = rule(code).fold(e -> {
-                   lineErrors.add(e);
-                   return false;
-               }, r -> {
-                   blockBuilder.add_rule(r._2);
-                   return true;
-               });
-
-               if (!parsed) {
-                   parsed = fact(code).fold(e -> {
-                       lineErrors.add(e);
-                       return false;
-                   }, r -> {
-                       blockBuilder.add_fact(r._2);
-                       return true;
-                   });
-               }
-
-               if (!parsed) {
-                   parsed = check(code).fold(e -> {
-                       lineErrors.add(e);
-                       return false;
-                   }, r -> {
-                       blockBuilder.add_check(r._2);
-                       return true;
-                   });
-               }
-
-               if (!parsed) {
-                   parsed = scope(code).fold(e -> {
-                       lineErrors.add(e);
-                       return false;
-                   }, r -> {
-                       blockBuilder.add_scope(r._2);
-                       return true;
-                   });
-               }
-
-               if (!parsed) {
-                   lineErrors.forEach(System.out::println);
-                   errors.put(lineNumber, lineErrors);
-               }
-           }
-        });
+        String code = removeCommentsAndWhitespaces(s);
+        int lineNumber = 0;
+        for (int start = 0; start <= code.length(); start++, lineNumber++) {
+            int end = code.indexOf(';', start);
+            if (end == -1) {
+                end = code.length();
+            }
+            Cursor c = new Cursor(code, start, end).strip();
+            start = end;
+
+            if (!c.isEmpty()) {
+                int statementStart = c.position;
+                Object parsed = statement(c);
+                if (parsed == null) {
+                    // try each kind of statement in turn, to report all of their errors
+                    c.position = statementStart;
+                    List<Error> lineErrors = new ArrayList<>();
+                    parsed = statement(c, lineErrors);
+                    if (parsed == null) {
+                        lineErrors.forEach(System.out::println);
+                        errors.put(lineNumber, lineErrors);
+                        continue;
+                    }
+                }
+
+                if (parsed instanceof Rule) {
+                    blockBuilder.add_rule((Rule) parsed);
+                } else if (parsed instanceof Fact) {
+                    blockBuilder.add_fact((Fact) parsed);
+                } else if (parsed instanceof Check) {
+                    blockBuilder.add_check((Check) parsed);
+                } else {
+                    blockBuilder.add_scope((Scope) parsed);
+                }
+            }
+        }
 
         if (!errors.isEmpty()) {
             return Either.left(errors);
@@ -101,664 +91,761 @@ public class Parser {
         return Either.right(blockBuilder);
     }
 
-    public static Either<Error, Tuple2<String, Fact>> fact(String s) {
-        Either<Error, Tuple2<String, Predicate>> res = fact_predicate(s);
+    /**
+     * Parses a rule, fact, check or scope, looking at the first tokens to choose between them
+     *
+     * @return the statement, or null if it could not be parsed
+     */
+    private static Object statement(Cursor c) {
+        if (c.startsWith("check if") || c.startsWith("check all")) {
+            return check(c).getOrNull();
+        }
+
+        if (!startsWithPredicate(c)) {
+            return scope(c).getOrNull();
+        }
+
+        Either<Error, Predicate> head = predicate(c);
+        if (head.isLeft()) {
+            return null;
+        }
+
+        int afterHead = c.position;
+        c.space();
+        if (c.startsWith("<-")) {
+            c.position = afterHead;
+            return rule_tail(c, head.get()).getOrNull();
+        }
+
+        c.position = afterHead;
+        if (c.isEmpty() && !hasVariables(head.get())) {
+            return new Fact(head.get());
+        }
+        return null;
+    }
+
+    /**
+     * Parses a rule, fact, check or scope, trying each of them in turn
+     *
+     * @param errors receives the error of each kind of statement that failed
+     * @return the statement, or null if none of them succeeded
+     */
+    private static Object statement(Cursor c, List<Error> errors) {
+        int start = c.position;
+        for (Function<Cursor, Either<Error, ?>> parser : STATEMENTS) {
+            c.position = start;
+            Either<Error, ?> res = parser.apply(c);
+            if (res.isRight()) {
+                return res.get();
+            }
+            errors.add(res.getLeft());
+        }
+        return null;
+    }
+
+    private static boolean startsWithPredicate(Cursor c) {
+        int i = 0;
+        char ch = c.peek(i);
+        while (isNameChar(ch)) {
+            ch = c.peek(++i);
+        }
+        while (ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n') {
+            ch = c.peek(++i);
+        }
+        return ch == '(';
+    }
+
+    private static boolean hasVariables(Predicate p) {
+        for (Term t : p.getTerms()) {
+            if (t instanceof Term.Variable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNameChar(int c) {
+        return Character.isAlphabetic(c) || Character.isDigit(c) || c == '_' || c == ':';
+    }
+
+    private static <T> Either<Error, Tuple2<String, T>> remaining(Cursor c, Either<Error, ? extends T> res) {
         if (res.isLeft()) {
             return Either.left(res.getLeft());
-        } else {
-            Tuple2<String, Predicate> t = res.get();
+        }
+        return Either.right(new Tuple2<>(c.rest(), res.get()));
+    }
 
-            if (!t._1.isEmpty()) {
-                return Either.left(new Error(s, "the string was not entirely parsed, remaining: " + t._1));
-            }
+    public static Either<Error, Tuple2<String, Fact>> fact(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, fact(c));
+    }
+
+    static Either<Error, Fact> fact(Cursor c) {
+        int start = c.position;
+        Either<Error, Predicate> res = fact_predicate(c);
+        if (res.isLeft()) {
+            return Either.left(res.getLeft());
+        }
 
-            return Either.right(new Tuple2<>(t._1, new Fact(t._2)));
+        if (!c.isEmpty()) {
+            return Either.left(new Error(c.from(start), "the string was not entirely parsed, remaining: " + c.rest()));
         }
+
+        return Either.right(new Fact(res.get()));
     }
 
     public static Either<Error, Tuple2<String, Rule>> rule(String s) {
-        Either<Error, Tuple2<String, Predicate>> res0 = predicate(s);
+        Cursor c = new Cursor(s);
+        return remaining(c, rule(c));
+    }
+
+    static Either<Error, Rule> rule(Cursor c) {
+        Either<Error, Predicate> res0 = predicate(c);
         if (res0.isLeft()) {
             return Either.left(res0.getLeft());
         }
 
-        Tuple2<String, Predicate> t0 = res0.get();
-        s = t0._1;
-        Predicate head = t0._2;
+        return rule_tail(c, res0.get());
+    }
 
-        s = space(s);
-        if (s.length() < 2 || s.charAt(0) != '<' || s.charAt(1) != '-') {
-            return Either.left(new Error(s, "rule arrow not found"));
+    /**
+     * Parses the rest of a rule, after its head
+     */
+    private static Either<Error, Rule> rule_tail(Cursor c, Predicate head) {
+        c.space();
+        if (!c.startsWith("<-")) {
+            return Either.left(c.error("rule arrow not found"));
         }
+        c.skip(2);
+        int bodyStart = c.position;
 
-        List<Predicate> predicates = new ArrayList<Predicate>();
-        s = s.substring(2);
-
-        Either<Error, Tuple4<String, List<Predicate>, List<Expression>, List<Scope>>> bodyRes = rule_body(s);
+        Either<Error, Tuple3<List<Predicate>, List<Expression>, List<Scope>>> bodyRes = rule_body(c);
         if (bodyRes.isLeft()) {
             return Either.left(bodyRes.getLeft());
         }
 
-        Tuple4<String, List<Predicate>, List<Expression>, List<Scope>> body = bodyRes.get();
+        Tuple3<List<Predicate>, List<Expression>, List<Scope>> body = bodyRes.get();
 
-        if (!body._1.isEmpty()) {
-            return Either.left(new Error(s, "the string was not entirely parsed, remaining: " + body._1));
+        if (!c.isEmpty()) {
+            return Either.left(new Error(c.from(bodyStart), "the string was not entirely parsed, remaining: " + c.rest()));
         }
 
-        Rule rule = new Rule(head, body._2, body._3, body._4);
+        Rule rule = new Rule(head, body._1, body._2, body._3);
         Either<String, Rule> valid = rule.validate_variables();
         if (valid.isLeft()) {
-            return Either.left(new Error(s, valid.getLeft()));
+            return Either.left(new Error(c.from(bodyStart), valid.getLeft()));
         }
 
-        return Either.right(new Tuple2<>(body._1, rule));
+        return Either.right(rule);
     }
 
     public static Either<Error, Tuple2<String, Check>> check(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, check(c));
+    }
+
+    static Either<Error, Check> check(Cursor c) {
         org.biscuitsec.biscuit.datalog.Check.Kind kind;
 
-        if (s.startsWith("check if")) {
+        if (c.startsWith("check if")) {
             kind = org.biscuitsec.biscuit.datalog.Check.Kind.One;
-            s = s.substring("check if".length());
-        } else if (s.startsWith("check all")) {
+            c.skip("check if".length());
+        } else if (c.startsWith("check all")) {
             kind = org.biscuitsec.biscuit.datalog.Check.Kind.All;
-            s = s.substring("check all".length());
+            c.skip("check all".length());
         } else {
-            return Either.left(new Error(s, "missing check prefix"));
+            return Either.left(c.error("missing check prefix"));
         }
 
-        List<Rule> queries = new ArrayList<>();
-        Either<Error, Tuple2<String, List<Rule>>> bodyRes = check_body(s);
+        int bodyStart = c.position;
+        Either<Error, List<Rule>> bodyRes = check_body(c);
         if (bodyRes.isLeft()) {
             return Either.left(bodyRes.getLeft());
         }
 
-        Tuple2<String, List<Rule>> t = bodyRes.get();
-
-        if (!t._1.isEmpty()) {
-            return Either.left(new Error(s, "the string was not entirely parsed, remaining: " + t._1));
+        if (!c.isEmpty()) {
+            return Either.left(new Error(c.from(bodyStart), "the string was not entirely parsed, remaining: " + c.rest()));
         }
 
-        return Either.right(new Tuple2<>(t._1, new Check(kind, t._2)));
+        return Either.right(new Check(kind, bodyRes.get()));
     }
 
     public static Either<Error, Tuple2<String, Policy>> policy(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, policy(c));
+    }
+
+    static Either<Error, Policy> policy(Cursor c) {
         Policy.Kind p = Policy.Kind.Allow;
 
         String allow = "allow if";
         String deny = "deny if";
-        if (s.startsWith(allow)) {
-            s = s.substring(allow.length());
-        } else if (s.startsWith(deny)) {
+        if (c.startsWith(allow)) {
+            c.skip(allow.length());
+        } else if (c.startsWith(deny)) {
             p = Policy.Kind.Deny;
-            s = s.substring(deny.length());
+            c.skip(deny.length());
         } else {
-            return Either.left(new Error(s, "missing policy prefix"));
+            return Either.left(c.error("missing policy prefix"));
         }
 
-        List<Rule> queries = new ArrayList<>();
-        Either<Error, Tuple2<String, List<Rule>>> bodyRes = check_body(s);
+        int bodyStart = c.position;
+        Either<Error, List<Rule>> bodyRes = check_body(c);
         if (bodyRes.isLeft()) {
             return Either.left(bodyRes.getLeft());
         }
 
-        Tuple2<String, List<Rule>> t = bodyRes.get();
-
-        if (!t._1.isEmpty()) {
-            return Either.left(new Error(s, "the string was not entirely parsed, remaining: " + t._1));
+        if (!c.isEmpty()) {
+            return Either.left(new Error(c.from(bodyStart), "the string was not entirely parsed, remaining: " + c.rest()));
         }
 
-        return Either.right(new Tuple2<>(t._1, new Policy(t._2, p)));
+        return Either.right(new Policy(bodyRes.get(), p));
     }
 
     public static Either<Error, Tuple2<String, List<Rule>>> check_body(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, check_body(c));
+    }
+
+    static Either<Error, List<Rule>> check_body(Cursor c) {
         List<Rule> queries = new ArrayList<>();
-        Either<Error, Tuple4<String, List<Predicate>, List<Expression>, List<Scope>>> bodyRes = rule_body(s);
+        Either<Error, Tuple3<List<Predicate>, List<Expression>, List<Scope>>> bodyRes = rule_body(c);
         if (bodyRes.isLeft()) {
             return Either.left(bodyRes.getLeft());
         }
 
-        Tuple4<String, List<Predicate>, List<Expression>, List<Scope>> body = bodyRes.get();
+        Tuple3<List<Predicate>, List<Expression>, List<Scope>> body = bodyRes.get();
+        queries.add(new Rule(new Predicate("query", new ArrayList<>()), body._1, body._2, body._3));
 
-        s = body._1;
-        //FIXME: parse scopes
-        queries.add(new Rule(new Predicate("query", new ArrayList<>()), body._2, body._3,  body._4));
-
-        int i = 0;
         while (true) {
-            if (s.length() == 0) {
+            if (c.isEmpty()) {
                 break;
             }
 
-            s = space(s);
+            c.space();
 
-            if (!s.startsWith("or")) {
+            if (!c.startsWith("or")) {
                 break;
             }
-            s = s.substring(2);
+            c.skip(2);
 
-            Either<Error, Tuple4<String, List<Predicate>, List<Expression>, List<Scope>>> bodyRes2 = rule_body(s);
+            Either<Error, Tuple3<List<Predicate>, List<Expression>, List<Scope>>> bodyRes2 = rule_body(c);
             if (bodyRes2.isLeft()) {
                 return Either.left(bodyRes2.getLeft());
             }
 
-            Tuple4<String, List<Predicate>, List<Expression>, List<Scope>> body2 = bodyRes2.get();
-
-            s = body2._1;
-            queries.add(new Rule(new Predicate("query", new ArrayList<>()), body2._2, body2._3,  body2._4));
+            Tuple3<List<Predicate>, List<Expression>, List<Scope>> body2 = bodyRes2.get();
+            queries.add(new Rule(new Predicate("query", new ArrayList<>()), body2._1, body2._2, body2._3));
         }
 
-        return Either.right(new Tuple2<>(s, queries));
+        return Either.right(queries);
     }
 
     public static Either<Error, Tuple4<String, List<Predicate>, List<Expression>, List<Scope>>> rule_body(String s) {
+        Cursor c = new Cursor(s);
+        Either<Error, Tuple3<List<Predicate>, List<Expression>, List<Scope>>> res = rule_body(c);
+        if (res.isLeft()) {
+            return Either.left(res.getLeft());
+        }
+        Tuple3<List<Predicate>, List<Expression>, List<Scope>> body = res.get();
+        return Either.right(new Tuple4<>(c.rest(), body._1, body._2, body._3));
+    }
+
+    static Either<Error, Tuple3<List<Predicate>, List<Expression>, List<Scope>>> rule_body(Cursor c) {
         List<Predicate> predicates = new ArrayList<Predicate>();
         List<Expression> expressions = new ArrayList<>();
 
         while (true) {
-            s = space(s);
+            c.space();
+            int start = c.position;
 
-            Either<Error, Tuple2<String, Predicate>> res = predicate(s);
+            Either<Error, Predicate> res = predicate(c);
             if (res.isRight()) {
-                Tuple2<String, Predicate> t = res.get();
-                s = t._1;
-                predicates.add(t._2);
+                predicates.add(res.get());
             } else {
-                Either<Error, Tuple2<String, Expression>> res2 = expression(s);
+                c.position = start;
+                Either<Error, Expression> res2 = expression(c);
                 if (res2.isRight()) {
-                    Tuple2<String, Expression> t2 = res2.get();
-                    s = t2._1;
-                    expressions.add(t2._2);
+                    expressions.add(res2.get());
                 } else {
+                    c.position = start;
                     break;
                 }
             }
 
-            s = space(s);
+            c.space();
 
-            if (s.length() == 0 || s.charAt(0) != ',') {
+            if (c.isEmpty() || c.peek() != ',') {
                 break;
             } else {
-                s = s.substring(1);
+                c.skip(1);
             }
         }
 
-        Either<Error, Tuple2<String, List<Scope>>> res = scopes(s);
-        if(res.isLeft()) {
-            return Either.right(new Tuple4<>(s, predicates, expressions, new ArrayList<>()));
+        int start = c.position;
+        Either<Error, List<Scope>> res = scopes(c);
+        if (res.isLeft()) {
+            c.position = start;
+            return Either.right(new Tuple3<>(predicates, expressions, new ArrayList<>()));
         } else {
-            Tuple2<String, List<Scope>> t = res.get();
-            return Either.right(new Tuple4<>(t._1, predicates, expressions, t._2));
-
+            return Either.right(new Tuple3<>(predicates, expressions, res.get()));
         }
-
     }
 
     public static Either<Error, Tuple2<String, Predicate>> predicate(String s) {
-        Tuple2<String, String> tn = take_while(s, (c) -> Character.isAlphabetic(c) || Character.isDigit(c) || c == '_' || c == ':');
-        String name = tn._1;
-        s = tn._2;
+        Cursor c = new Cursor(s);
+        return remaining(c, predicate(c));
+    }
 
-        s = space(s);
-        if (s.length() == 0 || s.charAt(0) != '(') {
-            return Either.left(new Error(s, "opening parens not found for predicate "+name));
+    static Either<Error, Predicate> predicate(Cursor c) {
+        return predicate(c, false);
+    }
+
+    /**
+     * @param fact if true, the terms cannot be variables
+     */
+    private static Either<Error, Predicate> predicate(Cursor c, boolean fact) {
+        String name = c.take_while(Parser::isNameChar);
+
+        c.space();
+        if (c.isEmpty() || c.peek() != '(') {
+            return Either.left(c.error((fact ? "opening parens not found for fact " : "opening parens not found for predicate ") + name));
         }
-        s = s.substring(1);
+        c.skip(1);
 
         List<Term> terms = new ArrayList<Term>();
         while (true) {
+            c.space();
+            int start = c.position;
 
-            s = space(s);
-
-            Either<Error, Tuple2<String, Term>> res = term(s);
+            Either<Error, Term> res = fact ? fact_term(c) : term(c);
             if (res.isLeft()) {
+                c.position = start;
                 break;
             }
 
-            Tuple2<String, Term> t = res.get();
-            s = t._1;
-            terms.add(t._2);
+            terms.add(res.get());
 
-            s = space(s);
+            c.space();
 
-            if (s.length() == 0 || s.charAt(0) != ',') {
+            if (c.isEmpty() || c.peek() != ',') {
                 break;
             } else {
-                s = s.substring(1);
+                c.skip(1);
             }
         }
 
-        s = space(s);
-        if (0 == s.length() || s.charAt(0) != ')') {
-            return Either.left(new Error(s, "closing parens not found"));
+        c.space();
+        if (c.isEmpty() || c.peek() != ')') {
+            return Either.left(c.error("closing parens not found"));
         }
-        String remaining = s.substring(1);
+        c.skip(1);
 
-        return Either.right(new Tuple2<String, Predicate>(remaining, new Predicate(name, terms)));
+        return Either.right(new Predicate(name, terms));
     }
 
     public static Either<Error, Tuple2<String, List<Scope>>> scopes(String s) {
-        if (!s.startsWith("trusting")) {
-            return Either.left(new Error(s, "missing scopes prefix"));
+        Cursor c = new Cursor(s);
+        return remaining(c, scopes(c));
+    }
+
+    static Either<Error, List<Scope>> scopes(Cursor c) {
+        if (!c.startsWith("trusting")) {
+            return Either.left(c.error("missing scopes prefix"));
         }
-        s = s.substring("trusting".length());
-        s = space(s);
+        c.skip("trusting".length());
 
         List<Scope> scopes = new ArrayList<Scope>();
 
         while (true) {
-            s = space(s);
+            c.space();
+            int start = c.position;
 
-            Either<Error, Tuple2<String, Scope>> res = scope(s);
+            Either<Error, Scope> res = scope(c);
             if (res.isLeft()) {
+                c.position = start;
                 break;
             }
 
-            Tuple2<String, Scope> t = res.get();
-            s = t._1;
-            scopes.add(t._2);
+            scopes.add(res.get());
 
-            s = space(s);
+            c.space();
 
-            if (s.length() == 0 || s.charAt(0) != ',') {
+            if (c.isEmpty() || c.peek() != ',') {
                 break;
             } else {
-                s = s.substring(1);
+                c.skip(1);
             }
         }
 
-        return Either.right(new Tuple2<>(s, scopes));
+        return Either.right(scopes);
     }
 
     public static Either<Error, Tuple2<String, Scope>> scope(String s) {
-        if (s.startsWith("authority")) {
-            s = s.substring("authority".length());
-            return Either.right(new Tuple2<>(s, Scope.authority()));
+        Cursor c = new Cursor(s);
+        return remaining(c, scope(c));
+    }
+
+    static Either<Error, Scope> scope(Cursor c) {
+        if (c.startsWith("authority")) {
+            c.skip("authority".length());
+            return Either.right(Scope.authority());
         }
 
-        if (s.startsWith("previous")) {
-            s = s.substring("previous".length());
-            return Either.right(new Tuple2<>(s, Scope.previous()));
+        if (c.startsWith("previous")) {
+            c.skip("previous".length());
+            return Either.right(Scope.previous());
         }
 
-        if (0 < s.length() && s.charAt(0) == '{') {
-            String remaining = s.substring(1);
-            Either<Error, Tuple2<String, String>> res = name(remaining);
-            if (res.isLeft()) {
-                return Either.left(new Error(s, "unrecognized parameter"));
-            }
-            Tuple2<String, String> t = res.get();
-            if (0 < s.length() && s.charAt(0) == '}') {
-                return Either.right(new Tuple2<>(t._1, Scope.parameter(t._2)));
+        int start = c.position;
+        if (c.peek() == '{') {
+            c.skip(1);
+            String name = name(c).get();
+            if (c.peek() == '}') {
+                c.skip(1);
+                return Either.right(Scope.parameter(name));
             } else {
-                return Either.left(new Error(s, "unrecognized parameter end"));
+                return Either.left(new Error(c.from(start), "unrecognized parameter end"));
             }
         }
 
-        Either<Error, Tuple2<String, PublicKey>> res2 = publicKey(s);
+        Either<Error, PublicKey> res2 = publicKey(c);
         if (res2.isLeft()) {
-            return Either.left(new Error(s, "unrecognized public key"));
+            return Either.left(new Error(c.from(start), "unrecognized public key"));
         }
-        Tuple2<String, PublicKey> t = res2.get();
-        return Either.right(new Tuple2<>(t._1, Scope.publicKey(t._2)));
+        return Either.right(Scope.publicKey(res2.get()));
     }
 
     public static Either<Error, Tuple2<String, PublicKey>> publicKey(String s) {
-        if (s.startsWith("ed25519/")) {
-            s = s.substring("ed25519/".length());
-            Tuple2<String, byte[]> t = hex(s);
-            return Either.right(new Tuple2(t._1, new PublicKey(Schema.PublicKey.Algorithm.Ed25519, t._2)));
-        } else if (s.startsWith("secp256r1/")) {
-            s = s.substring("secp256r1/".length());
-            Tuple2<String, byte[]> t = hex(s);
-            return Either.right(new Tuple2(t._1, new PublicKey(Schema.PublicKey.Algorithm.SECP256R1, t._2)));
+        Cursor c = new Cursor(s);
+        return remaining(c, publicKey(c));
+    }
+
+    static Either<Error, PublicKey> publicKey(Cursor c) {
+        if (c.startsWith("ed25519/")) {
+            c.skip("ed25519/".length());
+            return Either.right(new PublicKey(Schema.PublicKey.Algorithm.Ed25519, hex(c)));
+        } else if (c.startsWith("secp256r1/")) {
+            c.skip("secp256r1/".length());
+            return Either.right(new PublicKey(Schema.PublicKey.Algorithm.SECP256R1, hex(c)));
         } else {
-            return Either.left(new Error(s, "unrecognized public key prefix"));
+            return Either.left(c.error("unrecognized public key prefix"));
         }
     }
 
     public static Either<Error, Tuple2<String, Predicate>> fact_predicate(String s) {
-        Tuple2<String, String> tn = take_while(s, (c) -> Character.isAlphabetic(c) || Character.isDigit(c) || c == '_' || c == ':');
-        String name = tn._1;
-        s = tn._2;
-
-        s = space(s);
-        if (s.length() == 0 || s.charAt(0) != '(') {
-            return Either.left(new Error(s, "opening parens not found for fact "+name));
-        }
-        s = s.substring(1);
-
-        List<Term> terms = new ArrayList<Term>();
-        while (true) {
-
-            s = space(s);
-
-            Either<Error, Tuple2<String, Term>> res = fact_term(s);
-            if (res.isLeft()) {
-                break;
-            }
-
-            Tuple2<String, Term> t = res.get();
-            s = t._1;
-            terms.add(t._2);
-
-            s = space(s);
-
-            if (s.length() == 0 || s.charAt(0) != ',') {
-                break;
-            } else {
-                s = s.substring(1);
-            }
-        }
-
-        s = space(s);
-        if (0 == s.length() || s.charAt(0) != ')') {
-            return Either.left(new Error(s, "closing parens not found"));
-        }
-        String remaining = s.substring(1);
+        Cursor c = new Cursor(s);
+        return remaining(c, fact_predicate(c));
+    }
 
-        return Either.right(new Tuple2<String, Predicate>(remaining, new Predicate(name, terms)));
+    static Either<Error, Predicate> fact_predicate(Cursor c) {
+        return predicate(c, true);
     }
 
     public static Either<Error, Tuple2<String, String>> name(String s) {
-        Tuple2<String, String> t = take_while(s, (c) -> Character.isAlphabetic(c) || c == '_');
-        String name = t._1;
-        String remaining = t._2;
+        Cursor c = new Cursor(s);
+        return remaining(c, name(c));
+    }
 
-        return Either.right(new Tuple2<String, String>(remaining, name));
+    static Either<Error, String> name(Cursor c) {
+        return Either.right(c.take_while((ch) -> Character.isAlphabetic(ch) || ch == '_'));
     }
 
     public static Either<Error, Tuple2<String, Term>> term(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, term(c));
+    }
 
-        Either<Error, Tuple2<String, Term.Variable>> res5 = variable(s);
-        if (res5.isRight()) {
-            Tuple2<String, Term.Variable> t = res5.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Str>> res2 = string(s);
-        if (res2.isRight()) {
-            Tuple2<String, Term.Str> t = res2.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Set>> res7 = set(s);
-        if (res7.isRight()) {
-            Tuple2<String, Term.Set> t = res7.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Bool>> res6 = bool(s);
-        if (res6.isRight()) {
-            Tuple2<String, Term.Bool> t = res6.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Date>> res4 = date(s);
-        if (res4.isRight()) {
-            Tuple2<String, Term.Date> t = res4.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Integer>> res3 = integer(s);
-        if (res3.isRight()) {
-            Tuple2<String, Term.Integer> t = res3.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
-
-        Either<Error, Tuple2<String, Term.Bytes>> res8 = bytes(s);
-        if (res8.isRight()) {
-            Tuple2<String, Term.Bytes> t = res8.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
+    static Either<Error, Term> term(Cursor c) {
+        if (c.peek() == '$') {
+            return variable(c).map(Function.identity());
         }
 
-        return Either.left(new Error(s, "unrecognized value"));
+        return value(c);
     }
 
     public static Either<Error, Tuple2<String, Term>> fact_term(String s) {
-        if (s.length() > 0 && s.charAt(0) == '$') {
-            return Either.left(new Error(s, "variables are not allowed in facts"));
-        }
-
-        Either<Error, Tuple2<String, Term.Str>> res2 = string(s);
-        if (res2.isRight()) {
-            Tuple2<String, Term.Str> t = res2.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
+        Cursor c = new Cursor(s);
+        return remaining(c, fact_term(c));
+    }
 
-        Either<Error, Tuple2<String, Term.Set>> res7 = set(s);
-        if (res7.isRight()) {
-            Tuple2<String, Term.Set> t = res7.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
+    static Either<Error, Term> fact_term(Cursor c) {
+        if (c.peek() == '$') {
+            return Either.left(c.error("variables are not allowed in facts"));
         }
 
-        Either<Error, Tuple2<String, Term.Bool>> res6 = bool(s);
-        if (res6.isRight()) {
-            Tuple2<String, Term.Bool> t = res6.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
+        return value(c);
+    }
 
-        Either<Error, Tuple2<String, Term.Date>> res4 = date(s);
-        if (res4.isRight()) {
-            Tuple2<String, Term.Date> t = res4.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
+    /**
+     * Parses any term except variables. The first character decides which kinds of terms are tried.
+     */
+    private static Either<Error, Term> value(Cursor c) {
+        int start = c.position;
+        char first = c.peek();
 
-        Either<Error, Tuple2<String, Term.Integer>> res3 = integer(s);
-        if (res3.isRight()) {
-            Tuple2<String, Term.Integer> t = res3.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
-        }
+        if (first == '"') {
+            Either<Error, Term.Str> res = string(c);
+            if (res.isRight()) {
+                return Either.right(res.get());
+            }
+        } else if (first == '[') {
+            Either<Error, Term.Set> res = set(c);
+            if (res.isRight()) {
+                return Either.right(res.get());
+            }
+        } else if (first == 't' || first == 'f') {
+            Either<Error, Term.Bool> res = bool(c);
+            if (res.isRight()) {
+                return Either.right(res.get());
+            }
+        } else if (first == 'h') {
+            Either<Error, Term.Bytes> res = bytes(c);
+            if (res.isRight()) {
+                return Either.right(res.get());
+            }
+        } else if (Character.isDigit(first) || first == '-' || first == '+') {
+            if (isDate(c)) {
+                Either<Error, Term.Date> res = date(c);
+                if (res.isRight()) {
+                    return Either.right(res.get());
+                }
+                c.position = start;
+            }
 
-        Either<Error, Tuple2<String, Term.Bytes>> res8 = bytes(s);
-        if (res8.isRight()) {
-            Tuple2<String, Term.Bytes> t = res8.get();
-            return Either.right(new Tuple2<>(t._1, t._2));
+            Either<Error, Term.Integer> res = integer(c);
+            if (res.isRight()) {
+                return Either.right(res.get());
+            }
         }
 
-        return Either.left(new Error(s, "unrecognized value"));
+        c.position = start;
+        return Either.left(c.error("unrecognized value"));
     }
 
     public static Either<Error, Tuple2<String, Term.Str>> string(String s) {
-        if (s.charAt(0) != '"') {
-            return Either.left(new Error(s, "not a string"));
+        Cursor c = new Cursor(s);
+        return remaining(c, string(c));
+    }
+
+    static Either<Error, Term.Str> string(Cursor c) {
+        if (c.peek() != '"') {
+            return Either.left(c.error("not a string"));
         }
 
-        int index = s.length();
-        for (int i = 1; i < s.length(); i++) {
-            char c = s.charAt(i);
+        int start = c.position;
+        int index = -1;
+        for (int i = start + 1; i < c.end; i++) {
+            char ch = c.text.charAt(i);
 
-            if (c == '\\' && s.charAt(i + 1) == '"') {
+            if (ch == '\\' && i + 1 < c.end && c.text.charAt(i + 1) == '"') {
                 i += 1;
                 continue;
             }
 
-            if (c == '"') {
-                index = i - 1;
+            if (ch == '"') {
+                index = i;
                 break;
             }
         }
 
-        if (index == s.length()) {
-            return Either.left(new Error(s, "end of string not found"));
+        if (index == -1) {
+            return Either.left(c.error("end of string not found"));
         }
 
-        if (s.charAt(index + 1) != '"') {
-            return Either.left(new Error(s, "ending double quote not found"));
-        }
-
-        String string = s.substring(1, index + 1);
-        String remaining = s.substring(index + 2);
+        String string = c.text.subSequence(start + 1, index).toString();
+        c.position = index + 1;
 
-        return Either.right(new Tuple2<String, Term.Str>(remaining, (Term.Str) Utils.string(string)));
+        return Either.right((Term.Str) Utils.string(string));
     }
 
     public static Either<Error, Tuple2<String, Term.Integer>> integer(String s) {
-        int index = 0;
-        if (s.charAt(0) == '-') {
-            index += 1;
-        }
+        Cursor c = new Cursor(s);
+        return remaining(c, integer(c));
+    }
 
-        int index2 = s.length();
-        for (int i = index; i < s.length(); i++) {
-            char c = s.charAt(i);
+    static Either<Error, Term.Integer> integer(Cursor c) {
+        int start = c.position;
+        int i = start;
+        if (c.peek() == '-') {
+            i += 1;
+        }
 
-            if (!Character.isDigit(c)) {
-                index2 = i;
-                break;
-            }
+        int digits = i;
+        while (i < c.end && Character.isDigit(c.text.charAt(i))) {
+            i++;
         }
 
-        if (index2 == 0) {
-            return Either.left(new Error(s, "not an integer"));
+        if (i == digits) {
+            return Either.left(c.error("not an integer"));
         }
 
-        long i = Long.parseLong(s.substring(0, index2));
-        String remaining = s.substring(index2);
+        long value;
+        try {
+            value = Long.parseLong(c.text.subSequence(start, i).toString());
+        } catch (NumberFormatException e) {
+            return Either.left(c.error("not an integer"));
+        }
+        c.position = i;
 
-        return Either.right(new Tuple2<String, Term.Integer>(remaining, (Term.Integer) Utils.integer(i)));
+        return Either.right((Term.Integer) Utils.integer(value));
     }
 
     public static Either<Error, Tuple2<String, Term.Date>> date(String s) {
-        Tuple2<String, String> t = take_while(s, (c) -> c != ' ' && c != ',' && c != ')' && c != ']');
+        Cursor c = new Cursor(s);
+        return remaining(c, date(c));
+    }
+
+    static Either<Error, Term.Date> date(Cursor c) {
+        int start = c.position;
+        String s = c.take_while((ch) -> ch != ' ' && ch != ',' && ch != ')' && ch != ']');
 
         try {
-            OffsetDateTime d = OffsetDateTime.parse(t._1);
-            String remaining = t._2;
-            return Either.right(new Tuple2<String, Term.Date>(remaining, new Term.Date(d.toEpochSecond())));
+            OffsetDateTime d = OffsetDateTime.parse(s);
+            return Either.right(new Term.Date(d.toEpochSecond()));
         } catch (DateTimeParseException e) {
-            return Either.left(new Error(s, "not a date"));
+            c.position = start;
+            return Either.left(c.error("not a date"));
+        }
+    }
 
+    /**
+     * dates always contain a 'T' between the date and the time, integers never do
+     */
+    private static boolean isDate(Cursor c) {
+        for (int i = c.position; i < c.end; i++) {
+            char ch = c.text.charAt(i);
+            if (ch == 'T') {
+                return true;
+            }
+            if (ch == ' ' || ch == ',' || ch == ')' || ch == ']') {
+                return false;
+            }
         }
+        return false;
     }
 
     public static Either<Error, Tuple2<String, Term.Variable>> variable(String s) {
-        if (s.charAt(0) != '$') {
-            return Either.left(new Error(s, "not a variable"));
+        Cursor c = new Cursor(s);
+        return remaining(c, variable(c));
+    }
+
+    static Either<Error, Term.Variable> variable(Cursor c) {
+        if (c.peek() != '$') {
+            return Either.left(c.error("not a variable"));
         }
+        c.skip(1);
 
-        Tuple2<String, String> t = take_while(s.substring(1), (c) -> Character.isAlphabetic(c) || Character.isDigit(c) || c == '_');
+        String name = c.take_while((ch) -> Character.isAlphabetic(ch) || Character.isDigit(ch) || ch == '_');
 
-        return Either.right(new Tuple2<String, Term.Variable>(t._2, (Term.Variable) Utils.var(t._1)));
+        return Either.right((Term.Variable) Utils.var(name));
     }
 
     public static Either<Error, Tuple2<String, Term.Bool>> bool(String s) {
+        Cursor c = new Cursor(s);
+        return remaining(c, bool(c));
+    }
+
+    static Either<Error, Term.Bool> bool(Cursor c) {
         boolean b;
-        if (s.startsWith("true")) {
+        if (c.startsWith("true")) {
             b = true;
-            s = s.substring(4);
-        } else if (s.startsWith("false")) {
+            c.skip(4);
+        } else if (c.startsWith("false")) {
             b = false;
-            s = s.substring(5);
+            c.skip(5);
         } else {
-            return Either.left(new Error(s, "not a boolean"));
+            return Either.left(c.error("not a boolean"));
         }
 
-        return Either.right(new Tuple2<>(s, new Term.Bool(b)));
+        return Either.right(new Term.Bool(b));
     }
 
     public static Either<Error, Tuple2<String, Term.Set>> set(String s) {
-        if (s.length() == 0 || s.charAt(0) != '[') {
-            return Either.left(new Error(s, "not a set"));
-        }
+        Cursor c = new Cursor(s);
+        return remaining(c, set(c));
+    }
 
-        s = s.substring(1);
+    static Either<Error, Term.Set> set(Cursor c) {
+        if (c.peek() != '[') {
+            return Either.left(c.error("not a set"));
+        }
+        c.skip(1);
 
         HashSet<Term> terms = new HashSet<Term>();
         while (true) {
+            c.space();
+            int start = c.position;
 
-            s = space(s);
-
-            Either<Error, Tuple2<String, Term>> res = fact_term(s);
+            Either<Error, Term> res = fact_term(c);
             if (res.isLeft()) {
+                c.position = start;
                 break;
             }
 
-            Tuple2<String, Term> t = res.get();
-
-            if (t._2 instanceof Term.Variable) {
-                return Either.left(new Error(s, "sets cannot contain variables"));
-            }
-
-            s = t._1;
-            terms.add(t._2);
+            terms.add(res.get());
 
-            s = space(s);
+            c.space();
 
-            if (s.length() == 0 || s.charAt(0) != ',') {
+            if (c.isEmpty() || c.peek() != ',') {
                 break;
             } else {
-                s = s.substring(1);
+                c.skip(1);
             }
         }
 
-        s = space(s);
-        if (0 == s.length() || s.charAt(0) != ']') {
-            return Either.left(new Error(s, "closing square bracket not found"));
+        c.space();
+        if (c.isEmpty() || c.peek() != ']') {
+            return Either.left(c.error("closing square bracket not found"));
         }
+        c.skip(1);
 
-        String remaining = s.substring(1);
-
-        return Either.right(new Tuple2<>(remaining, new Term.Set(terms)));
+        return Either.right(new Term.Set(terms));
     }
 
     public static Either<Error, Tuple2<String, Term.Bytes>> bytes(String s) {
-        if (!s.startsWith("hex:")) {
-            return Either.left(new Error(s, "not a bytes array"));
-        }
-        s = s.substring(4);
-        Tuple2<String, byte[]> t = hex(s);
-        return Either.right(new Tuple2<>(t._1, new Term.Bytes(t._2)));
+        Cursor c = new Cursor(s);
+        return remaining(c, bytes(c));
     }
 
-    public static Tuple2<String, byte[]> hex(String s) {
-        int index = 0;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if("0123456789ABCDEFabcdef".indexOf(c) == -1) {
-                break;
-            }
-
-            index += 1;
+    static Either<Error, Term.Bytes> bytes(Cursor c) {
+        if (!c.startsWith("hex:")) {
+            return Either.left(c.error("not a bytes array"));
         }
+        c.skip(4);
+        return Either.right(new Term.Bytes(hex(c)));
+    }
 
-        String hex =  s.substring(0, index);
-        byte[] bytes = Utils.hexStringToByteArray(hex);
-        s = s.substring(index);
-        return new Tuple2<>(s,bytes);
+    public static Tuple2<String, byte[]> hex(String s) {
+        Cursor c = new Cursor(s);
+        byte[] bytes = hex(c);
+        return new Tuple2<>(c.rest(), bytes);
+    }
 
+    static byte[] hex(Cursor c) {
+        String hex = c.take_while((ch) -> "0123456789ABCDEFabcdef".indexOf(ch) != -1);
+        return Utils.hexStringToByteArray(hex);
     }
 
     public static Either<Error, Tuple2<String, Expression>> expression(String s) {
         return ExpressionParser.parse(s);
     }
 
-    public static String space(String s) {
-        int index = 0;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-
-            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
-                break;
-            }
-            index += 1;
-        }
+    static Either<Error, Expression> expression(Cursor c) {
+        c.space();
+        return ExpressionParser.expr(c);
+    }
 
-        return s.substring(index);
+    public static String space(String s) {
+        Cursor c = new Cursor(s);
+        c.space();
+        return c.rest();
     }
 
     public static Tuple2<String, String> take_while(String s, Function<Character, Boolean> f) {
-        int index = s.length();
-        for (int i = 0; i < s.length(); i++) {
-            Character c = s.charAt(i);
-
-            if (!f.apply(c)) {
-                index = i;
-                break;
-            }
-        }
-
-        return new Tuple2<>(s.substring(0, index), s.substring(index));
+        Cursor c = new Cursor(s);
+        String taken = c.take_while((ch) -> f.apply((char) ch));
+        return new Tuple2<>(taken, c.rest());
     }
 
     public static String removeCommentsAndWhitespaces(String s) {
@@ -767,33 +854,39 @@ public class Parser {
         return s;
     }
 
+    /**
+     * Removes the <code>/* *&#47;</code> and <code>//</code> comments, except in strings. The line break
+     * ending a <code>//</code> comment is kept.
+     */
     public static String removeComments(String str) {
-        StringBuilder result = new StringBuilder();
-        String remaining = str;
-
-        while (!remaining.isEmpty()) {
-            remaining = space(remaining); // Skip leading whitespace
-            if (remaining.startsWith("/*")) {
-                // Find the end of the multiline comment
-                remaining = remaining.substring(2); // Skip "/*"
-                String finalRemaining = remaining;
-                Tuple2<String, String> split = take_while(remaining, c -> !finalRemaining.startsWith("*/"));
-                remaining = split._2.length() > 2 ? split._2.substring(2) : ""; // Skip "*/"
-            } else if (remaining.startsWith("//")) {
-                // Find the end of the single-line comment
-                remaining = remaining.substring(2); // Skip "//"
-                Tuple2<String, String> split = take_while(remaining, c -> c != '\n' && c != '\r');
-                remaining = split._2;
-                if (!remaining.isEmpty()) {
-                    result.append(remaining.charAt(0)); // Preserve line break
-                    remaining = remaining.substring(1);
+        StringBuilder result = new StringBuilder(str.length());
+        boolean inString = false;
+
+        int i = 0;
+        while (i < str.length()) {
+            char c = str.charAt(i);
+
+            if (inString) {
+                result.append(c);
+                if (c == '\\' && i + 1 < str.length()) {
+                    result.append(str.charAt(i + 1));
+                    i += 2;
+                    continue;
+                }
+                inString = c != '"';
+                i++;
+            } else if (str.startsWith("/*", i)) {
+                int end = str.indexOf("*/", i + 2);
+                i = end == -1 ? str.length() : end + 2;
+            } else if (str.startsWith("//", i)) {
+                i += 2;
+                while (i < str.length() && str.charAt(i) != '\n' && str.charAt(i) != '\r') {
+                    i++;
                 }
             } else {
-                // Take non-comment text until the next comment or end of string
-                String finalRemaining = remaining;
-                Tuple2<String, String> split = take_while(remaining, c -> !finalRemaining.startsWith("/*") && !finalRemaining.startsWith("//"));
-                result.append(split._1);
-                remaining = split._2;
+                inString = c == '"';
+                result.append(c);
+                i++;
             }
         }
 
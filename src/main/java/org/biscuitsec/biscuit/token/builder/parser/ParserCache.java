@@ -0,0 +1,117 @@
+package org.biscuitsec.biscuit.token.builder.parser;
+
+import io.vavr.Tuple2;
+import io.vavr.control.Either;
+import org.biscuitsec.biscuit.token.Policy;
+import org.biscuitsec.biscuit.token.builder.Check;
+import org.biscuitsec.biscuit.token.builder.Rule;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Process wide cache from datalog source text to the parsed builder objects
+ * <p>
+ * It is used by the rule, check and policy string methods of {@link org.biscuitsec.biscuit.token.Authorizer}, so that
+ * authorizers built for each request with the same sources do not parse them again.
+ * The caches are disabled until a capacity is set with {@link #set_capacity(int)}.
+ * Only successful parses are cached, and when a cache is full the least recently used entry is evicted.
+ * <p>
+ * The cached objects are shared between threads, so each call returns a copy that the caller can modify.
+ */
+public final class ParserCache<T> {
+    public static final ParserCache<Rule> RULES = new ParserCache<>(Parser::rule, Rule::clone, 0);
+    public static final ParserCache<Check> CHECKS = new ParserCache<>(Parser::check, ParserCache::copy, 0);
+    public static final ParserCache<Policy> POLICIES = new ParserCache<>(Parser::policy, ParserCache::copy, 0);
+
+    private final Function<String, Either<Error, Tuple2<String, T>>> parser;
+    private final UnaryOperator<T> copy;
+    private final LinkedHashMap<String, T> entries = new LinkedHashMap<String, T>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+            return size() > capacity;
+        }
+    };
+    private volatile int capacity;
+
+    public ParserCache(Function<String, Either<Error, Tuple2<String, T>>> parser, UnaryOperator<T> copy, int capacity) {
+        this.parser = parser;
+        this.copy = copy;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a copy of the cached value for this source, or parses it
+     */
+    public Either<Error, T> get(String s) {
+        if (this.capacity == 0) {
+            return this.parser.apply(s).map(t -> t._2);
+        }
+
+        T value;
+        synchronized (this.entries) {
+            value = this.entries.get(s);
+        }
+        if (value != null) {
+            return Either.right(this.copy.apply(value));
+        }
+
+        Either<Error, Tuple2<String, T>> res = this.parser.apply(s);
+        if (res.isLeft()) {
+            return Either.left(res.getLeft());
+        }
+
+        value = res.get()._2;
+        T cached = this.copy.apply(value);
+        synchronized (this.entries) {
+            this.entries.putIfAbsent(s, cached);
+        }
+        return Either.right(value);
+    }
+
+    // binding no parameters copies the queries and cannot fail
+    private static Check copy(Check check) {
+        try {
+            return check.bind(Map.of());
+        } catch (org.biscuitsec.biscuit.error.Error.Language e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Policy copy(Policy policy) {
+        try {
+            return policy.bind(Map.of());
+        } catch (org.biscuitsec.biscuit.error.Error.Language e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sets the maximum number of entries. A capacity of 0 disables the cache
+     */
+    public void set_capacity(int capacity) {
+        synchronized (this.entries) {
+            this.capacity = capacity;
+            Iterator<String> it = this.entries.keySet().iterator();
+            while (this.entries.size() > capacity && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+}
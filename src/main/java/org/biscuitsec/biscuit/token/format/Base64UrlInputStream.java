@@ -0,0 +1,163 @@
+package org.biscuitsec.biscuit.token.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes URL safe base64 from a CharSequence or an ASCII ByteBuffer, as it is read
+ * <p>
+ * Padding is accepted but not required, like {@link java.util.Base64#getUrlDecoder()}
+ */
+public class Base64UrlInputStream extends InputStream {
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < Base64UrlOutputStream.ALPHABET.length; i++) {
+            DECODE[Base64UrlOutputStream.ALPHABET[i]] = i;
+        }
+    }
+
+    private final CharSequence chars;
+    private final ByteBuffer bytes;
+    private final int end;
+    private int position;
+
+    private final byte[] pending = new byte[3];
+    private int pendingPosition;
+    private int pendingLength;
+
+    /**
+     * @param chars base64url encoded data
+     */
+    public Base64UrlInputStream(CharSequence chars) {
+        this.chars = chars;
+        this.bytes = null;
+        this.end = dataLength(chars.length());
+    }
+
+    /**
+     * Reads base64url encoded ASCII characters between the buffer's position and limit.
+     * The buffer's position is not changed.
+     *
+     * @param bytes base64url encoded data
+     */
+    public Base64UrlInputStream(ByteBuffer bytes) {
+        this.chars = null;
+        this.bytes = bytes.slice();
+        this.end = dataLength(this.bytes.remaining());
+    }
+
+    /**
+     * Upper bound of the decoded size
+     *
+     * @return
+     */
+    public int decodedLength() {
+        return (this.end / 4) * 3 + 2;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.pendingPosition == this.pendingLength) {
+            if (this.position == this.end) {
+                return -1;
+            }
+            decodeGroup();
+        }
+        return this.pending[this.pendingPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int n = 0;
+        while (n < len) {
+            if (this.pendingPosition < this.pendingLength) {
+                b[off + n++] = this.pending[this.pendingPosition++];
+                continue;
+            }
+
+            if (this.position == this.end) {
+                break;
+            }
+
+            if (this.end - this.position >= 4 && len - n >= 3) {
+                int group = (value(this.position) << 18) | (value(this.position + 1) << 12)
+                        | (value(this.position + 2) << 6) | value(this.position + 3);
+                this.position += 4;
+                b[off + n] = (byte) (group >> 16);
+                b[off + n + 1] = (byte) (group >> 8);
+                b[off + n + 2] = (byte) group;
+                n += 3;
+            } else {
+                decodeGroup();
+            }
+        }
+
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public int available() {
+        return (this.pendingLength - this.pendingPosition) + ((this.end - this.position) / 4) * 3;
+    }
+
+    /**
+     * decodes the next 2 to 4 characters in the pending buffer
+     */
+    private void decodeGroup() throws IOException {
+        int remaining = Math.min(4, this.end - this.position);
+        if (remaining == 1) {
+            throw new IOException("invalid base64url length");
+        }
+
+        int group = 0;
+        for (int i = 0; i < 4; i++) {
+            group <<= 6;
+            if (i < remaining) {
+                group |= value(this.position + i);
+            }
+        }
+        this.position += remaining;
+
+        this.pending[0] = (byte) (group >> 16);
+        this.pending[1] = (byte) (group >> 8);
+        this.pending[2] = (byte) group;
+        this.pendingPosition = 0;
+        this.pendingLength = remaining - 1;
+    }
+
+    private int value(int index) throws IOException {
+        int c = this.chars != null ? this.chars.charAt(index) : this.bytes.get(index) & 0xff;
+        int v = c < 128 ? DECODE[c] : -1;
+        if (v < 0) {
+            throw new IOException("invalid base64url character at index " + index);
+        }
+        return v;
+    }
+
+    /**
+     * Padding is only removed if it completes the last group of 4 characters, otherwise the
+     * '=' characters are left in the data and rejected when they are read
+     */
+    private int dataLength(int length) {
+        if (length % 4 != 0) {
+            return length;
+        }
+        int end = length;
+        while (end > 0 && length - end < 2 && charAt(end - 1) == '=') {
+            end--;
+        }
+        return end;
+    }
+
+    private int charAt(int index) {
+        return this.chars != null ? this.chars.charAt(index) : this.bytes.get(index) & 0xff;
+    }
+}
@@ -0,0 +1,92 @@
+package org.biscuitsec.biscuit.token.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the bytes written to it as padded URL safe base64, appended to a StringBuilder,
+ * a CharBuffer or any other Appendable
+ * <p>
+ * The padding is written when the stream is closed
+ */
+public class Base64UrlOutputStream extends OutputStream {
+    static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private final Appendable out;
+    private int group;
+    private int groupLength;
+    private boolean closed;
+
+    public Base64UrlOutputStream(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Size of the encoded data, padding included
+     *
+     * @param length size of the data to encode
+     * @return
+     */
+    public static int encodedLength(int length) {
+        return ((length + 2) / 3) * 4;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.group = (this.group << 8) | (b & 0xff);
+        this.groupLength++;
+        if (this.groupLength == 3) {
+            appendGroup(this.group);
+            this.group = 0;
+            this.groupLength = 0;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end && this.groupLength != 0) {
+            write(b[off++]);
+        }
+        while (end - off >= 3) {
+            appendGroup(((b[off] & 0xff) << 16) | ((b[off + 1] & 0xff) << 8) | (b[off + 2] & 0xff));
+            off += 3;
+        }
+        while (off < end) {
+            write(b[off++]);
+        }
+    }
+
+    /**
+     * Writes the last characters and the padding. The underlying Appendable is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        if (this.groupLength == 1) {
+            int g = this.group << 16;
+            this.out.append(ALPHABET[(g >> 18) & 0x3f]);
+            this.out.append(ALPHABET[(g >> 12) & 0x3f]);
+            this.out.append("==");
+        } else if (this.groupLength == 2) {
+            int g = this.group << 8;
+            this.out.append(ALPHABET[(g >> 18) & 0x3f]);
+            this.out.append(ALPHABET[(g >> 12) & 0x3f]);
+            this.out.append(ALPHABET[(g >> 6) & 0x3f]);
+            this.out.append('=');
+        }
+        this.group = 0;
+        this.groupLength = 0;
+    }
+
+    private void appendGroup(int g) throws IOException {
+        this.out.append(ALPHABET[(g >> 18) & 0x3f]);
+        this.out.append(ALPHABET[(g >> 12) & 0x3f]);
+        this.out.append(ALPHABET[(g >> 6) & 0x3f]);
+        this.out.append(ALPHABET[g & 0x3f]);
+    }
+}
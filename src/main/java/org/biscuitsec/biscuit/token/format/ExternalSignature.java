@@ -1,13 +1,27 @@
 package org.biscuitsec.biscuit.token.format;
 
 import org.biscuitsec.biscuit.crypto.PublicKey;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
 public class ExternalSignature {
     public PublicKey key;
     public byte[] signature;
+    private final ByteString signatureBytes;
 
     public ExternalSignature(PublicKey key, byte[] signature) {
         this.key = key;
         this.signature = signature;
+        this.signatureBytes = UnsafeByteOperations.unsafeWrap(signature);
+    }
+
+    public ExternalSignature(PublicKey key, ByteString signature) {
+        this.key = key;
+        this.signature = signature.toByteArray();
+        this.signatureBytes = signature;
+    }
+
+    public ByteString signature_bytes() {
+        return this.signatureBytes;
     }
 }
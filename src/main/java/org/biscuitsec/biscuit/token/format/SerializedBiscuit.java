@@ -7,18 +7,22 @@ import org.biscuitsec.biscuit.crypto.KeyPair;
 import org.biscuitsec.biscuit.crypto.PublicKey;
 import org.biscuitsec.biscuit.datalog.SymbolTable;
 import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.metrics.Metrics;
+import org.biscuitsec.biscuit.metrics.MetricsListener;
 import org.biscuitsec.biscuit.token.Block;
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
 import io.vavr.control.Either;
 import io.vavr.control.Option;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.*;
 import java.util.*;
+import java.util.function.Predicate;
 
 import static io.vavr.API.Left;
 import static io.vavr.API.Right;
@@ -42,13 +46,7 @@ public class SerializedBiscuit {
      * @return
      */
     static public SerializedBiscuit from_bytes(byte[] slice, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
-        try {
-            Schema.Biscuit data = Schema.Biscuit.parseFrom(slice);
-
-            return from_bytes_inner(data, root);
-        } catch (InvalidProtocolBufferException e) {
-            throw new Error.FormatError.DeserializationError(e.toString());
-        }
+        return from_bytes(ByteString.copyFrom(slice), root);
     }
 
     /**
@@ -58,38 +56,294 @@ public class SerializedBiscuit {
      * @return
      */
     static public SerializedBiscuit from_bytes(byte[] slice, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(ByteString.copyFrom(slice), delegate);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a heap or direct ByteBuffer
+     * <p>
+     * The blocks and signatures are kept as slices of the buffer, so its content
+     * must not be modified while the token is in use. The buffer's position is not changed.
+     *
+     * @param buffer
+     * @return
+     */
+    static public SerializedBiscuit from_bytes(ByteBuffer buffer, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(UnsafeByteOperations.unsafeWrap(buffer.slice()), root);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a heap or direct ByteBuffer
+     * <p>
+     * The blocks and signatures are kept as slices of the buffer, so its content
+     * must not be modified while the token is in use. The buffer's position is not changed.
+     *
+     * @param buffer
+     * @return
+     */
+    static public SerializedBiscuit from_bytes(ByteBuffer buffer, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(UnsafeByteOperations.unsafeWrap(buffer.slice()), delegate);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a ByteString
+     * <p>
+     * The blocks are verified and decoded from slices of the ByteString, without copying it
+     *
+     * @param bytes
+     * @return
+     */
+    static public SerializedBiscuit from_bytes(ByteString bytes, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(bytes), root);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a ByteString
+     * <p>
+     * The blocks are verified and decoded from slices of the ByteString, without copying it
+     *
+     * @param bytes
+     * @return
+     */
+    static public SerializedBiscuit from_bytes(ByteString bytes, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(bytes), delegate);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a byte array, unless one of its blocks is revoked
+     * <p>
+     * The revocation identifiers are tested right after the protobuf message is parsed, so a
+     * revoked token is rejected without decoding its keys or verifying its signatures.
+     *
+     * @param slice
+     * @param delegate
+     * @param revoked returns true for a revoked identifier
+     * @return
+     * @throws Error.Revoked with the index of the first revoked block
+     */
+    static public SerializedBiscuit from_bytes(byte[] slice, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes(ByteString.copyFrom(slice), delegate, revoked);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a ByteString, unless one of its blocks is revoked
+     * <p>
+     * The revocation identifiers are tested right after the protobuf message is parsed, so a
+     * revoked token is rejected without decoding its keys or verifying its signatures.
+     *
+     * @param bytes
+     * @param delegate
+     * @param revoked returns true for a revoked identifier
+     * @return
+     * @throws Error.Revoked with the index of the first revoked block
+     */
+    static public SerializedBiscuit from_bytes(ByteString bytes, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(bytes), delegate, revoked);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a base64url string, decoding it while it is parsed
+     *
+     * @param data
+     * @return
+     */
+    static public SerializedBiscuit from_b64url(CharSequence data, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(new Base64UrlInputStream(data)), root);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a base64url string, decoding it while it is parsed
+     *
+     * @param data
+     * @return
+     */
+    static public SerializedBiscuit from_b64url(CharSequence data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(new Base64UrlInputStream(data)), delegate);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from a base64url string, unless one of its blocks is revoked
+     * <p>
+     * The revocation identifiers are tested right after the protobuf message is parsed, so a
+     * revoked token is rejected without decoding its keys or verifying its signatures.
+     *
+     * @param data
+     * @param delegate
+     * @param revoked returns true for a revoked identifier
+     * @return
+     * @throws Error.Revoked with the index of the first revoked block
+     */
+    static public SerializedBiscuit from_b64url(CharSequence data, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(new Base64UrlInputStream(data)), delegate, revoked);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from base64url ASCII characters, decoding them while they are parsed
+     * <p>
+     * The buffer's position is not changed.
+     *
+     * @param data
+     * @return
+     */
+    static public SerializedBiscuit from_b64url(ByteBuffer data, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(new Base64UrlInputStream(data)), root);
+    }
+
+    /**
+     * Deserializes a SerializedBiscuit from base64url ASCII characters, decoding them while they are parsed
+     * <p>
+     * The buffer's position is not changed.
+     *
+     * @param data
+     * @return
+     */
+    static public SerializedBiscuit from_b64url(ByteBuffer data, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(() -> parse(new Base64UrlInputStream(data)), delegate);
+    }
+
+    /**
+     * Parses the protobuf message from a base64url decoding stream
+     * <p>
+     * The stream is read through a buffer sized for the token (up to 4kB), so the
+     * whole decoded token is never held in a separate array
+     *
+     * @param input
+     * @return
+     */
+    static Schema.Biscuit parse(Base64UrlInputStream input) throws Error.FormatError.DeserializationError {
         try {
-            Schema.Biscuit data = Schema.Biscuit.parseFrom(slice);
+            int bufferSize = Math.max(1, Math.min(4096, input.decodedLength()));
+            return Schema.Biscuit.parseFrom(CodedInputStream.newInstance(input, bufferSize));
+        } catch (IOException e) {
+            throw new Error.FormatError.DeserializationError(e.toString());
+        }
+    }
+
+    @FunctionalInterface
+    interface Source {
+        Schema.Biscuit parse() throws Error.FormatError.DeserializationError;
+    }
+
+    static SerializedBiscuit from_bytes_inner(Source source, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(source, (KeyDelegate) key_id -> Option.some(root));
+    }
+
+    /**
+     * Parses and verifies a token, reporting the time spent in each step to the metrics listener
+     */
+    static SerializedBiscuit from_bytes_inner(Source source, KeyDelegate delegate) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        return from_bytes_inner(source, delegate, null);
+    }
 
-            Option<Integer> root_key_id = Option.none();
-            if (data.hasRootKeyId()) {
-                root_key_id = Option.some(data.getRootKeyId());
+    /**
+     * Parses and verifies a token, reporting the time spent in each step to the metrics listener
+     *
+     * @param revoked tested on the revocation identifiers before verification, or null
+     */
+    static SerializedBiscuit from_bytes_inner(Source source, KeyDelegate delegate, Predicate<byte[]> revoked) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        MetricsListener listener = Metrics.listener();
+        if (listener == null) {
+            Schema.Biscuit data = source.parse();
+            check_revocation(data, revoked);
+            return from_bytes_inner(data, root_key(data, delegate));
+        }
+
+        long start = System.nanoTime();
+        long verifyStart = 0;
+        int bytes = 0;
+        int blocks = 0;
+        try {
+            Schema.Biscuit data = source.parse();
+            bytes = data.getSerializedSize();
+            blocks = 1 + data.getBlocksCount();
+            check_revocation(data, revoked);
+            org.biscuitsec.biscuit.crypto.PublicKey root = root_key(data, delegate);
+            SerializedBiscuit b = deserialize_with_key_id(data);
+
+            verifyStart = System.nanoTime();
+            b.verify_or_throw(root);
+            long end = System.nanoTime();
+            listener.parsed(bytes, blocks, verifyStart - start, end - verifyStart, null);
+            return b;
+        } catch (Exception e) {
+            long end = System.nanoTime();
+            if (verifyStart == 0) {
+                listener.parsed(bytes, blocks, end - start, 0, e);
+            } else {
+                listener.parsed(bytes, blocks, verifyStart - start, end - verifyStart, e);
             }
+            throw e;
+        }
+    }
 
-            Option<org.biscuitsec.biscuit.crypto.PublicKey> root = delegate.root_key(root_key_id);
-            if (root.isEmpty()) {
-                throw new InvalidKeyException("unknown root key id");
+    /**
+     * Rejects the token if the predicate matches the revocation identifier of one of its blocks
+     * <p>
+     * The revocation identifiers are the block signatures, so they are read from the protobuf message directly
+     */
+    static private void check_revocation(Schema.Biscuit data, Predicate<byte[]> revoked) throws Error.Revoked {
+        if (revoked == null) {
+            return;
+        }
+
+        if (revoked.test(data.getAuthority().getSignature().toByteArray())) {
+            throw new Error.Revoked(0);
+        }
+        for (int i = 0; i < data.getBlocksCount(); i++) {
+            if (revoked.test(data.getBlocks(i).getSignature().toByteArray())) {
+                throw new Error.Revoked(i + 1);
             }
+        }
+    }
 
-            return from_bytes_inner(data, root.get());
-        } catch (InvalidProtocolBufferException e) {
+    static private org.biscuitsec.biscuit.crypto.PublicKey root_key(Schema.Biscuit data, KeyDelegate delegate) throws InvalidKeyException {
+        Option<Integer> root_key_id = Option.none();
+        if (data.hasRootKeyId()) {
+            root_key_id = Option.some(data.getRootKeyId());
+        }
+
+        Option<org.biscuitsec.biscuit.crypto.PublicKey> root = delegate.root_key(root_key_id);
+        if (root.isEmpty()) {
+            throw new InvalidKeyException("unknown root key id");
+        }
+        return root.get();
+    }
+
+    /**
+     * Parses the protobuf message, with bytes fields aliasing the input instead of being copied
+     *
+     * @param bytes
+     * @return
+     */
+    static Schema.Biscuit parse(ByteString bytes) throws Error.FormatError.DeserializationError {
+        try {
+            CodedInputStream input = bytes.newCodedInput();
+            input.enableAliasing(true);
+            return Schema.Biscuit.parseFrom(input);
+        } catch (IOException e) {
             throw new Error.FormatError.DeserializationError(e.toString());
         }
     }
 
     static SerializedBiscuit from_bytes_inner(Schema.Biscuit data, org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        SerializedBiscuit b = deserialize_with_key_id(data);
+        b.verify_or_throw(root);
+        return b;
+    }
+
+    static private SerializedBiscuit deserialize_with_key_id(Schema.Biscuit data) throws Error.FormatError.DeserializationError {
         SerializedBiscuit b = SerializedBiscuit.deserialize(data);
         if (data.hasRootKeyId()) {
             b.root_key_id = Option.some(data.getRootKeyId());
         }
+        return b;
+    }
 
-        Either<Error, Void> res = b.verify(root);
+    private void verify_or_throw(org.biscuitsec.biscuit.crypto.PublicKey root) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        Either<Error, Void> res = this.verify(root);
         if (res.isLeft()) {
             throw res.getLeft();
-        } else {
-            return b;
         }
-
     }
 
     /**
@@ -100,12 +354,43 @@ public class SerializedBiscuit {
      * @throws Error.FormatError.DeserializationError
      */
     static public SerializedBiscuit unsafe_deserialize(byte[] slice) throws Error.FormatError.DeserializationError {
-        try {
-            Schema.Biscuit data = Schema.Biscuit.parseFrom(slice);
-            return SerializedBiscuit.deserialize(data);
-        } catch (InvalidProtocolBufferException e) {
-            throw new Error.FormatError.DeserializationError(e.toString());
-        }
+        return unsafe_deserialize(ByteString.copyFrom(slice));
+    }
+
+    /**
+     * Warning: this deserializes without verifying the signature
+     * <p>
+     * The blocks are verified and decoded from slices of the ByteString, without copying it
+     *
+     * @param bytes
+     * @return SerializedBiscuit
+     * @throws Error.FormatError.DeserializationError
+     */
+    static public SerializedBiscuit unsafe_deserialize(ByteString bytes) throws Error.FormatError.DeserializationError {
+        Schema.Biscuit data = parse(bytes);
+        return SerializedBiscuit.deserialize(data);
+    }
+
+    /**
+     * Warning: this deserializes without verifying the signature
+     *
+     * @param data base64url encoded token
+     * @return SerializedBiscuit
+     * @throws Error.FormatError.DeserializationError
+     */
+    static public SerializedBiscuit unsafe_deserialize_b64url(CharSequence data) throws Error.FormatError.DeserializationError {
+        return SerializedBiscuit.deserialize(parse(new Base64UrlInputStream(data)));
+    }
+
+    /**
+     * Warning: this deserializes without verifying the signature
+     *
+     * @param data base64url encoded token, as ASCII characters
+     * @return SerializedBiscuit
+     * @throws Error.FormatError.DeserializationError
+     */
+    static public SerializedBiscuit unsafe_deserialize_b64url(ByteBuffer data) throws Error.FormatError.DeserializationError {
+        return SerializedBiscuit.deserialize(parse(new Base64UrlInputStream(data)));
     }
 
     /**
@@ -121,9 +406,9 @@ public class SerializedBiscuit {
         }
 
         SignedBlock authority = new SignedBlock(
-                data.getAuthority().getBlock().toByteArray(),
+                data.getAuthority().getBlock(),
                 org.biscuitsec.biscuit.crypto.PublicKey.deserialize(data.getAuthority().getNextKey()),
-                data.getAuthority().getSignature().toByteArray(),
+                data.getAuthority().getSignature(),
                 Option.none()
         );
 
@@ -135,13 +420,13 @@ public class SerializedBiscuit {
                 Schema.ExternalSignature ex = block.getExternalSignature();
                 external = Option.some(new ExternalSignature(
                         org.biscuitsec.biscuit.crypto.PublicKey.deserialize(ex.getPublicKey()),
-                        ex.getSignature().toByteArray()));
+                        ex.getSignature()));
 
             }
             blocks.add(new SignedBlock(
-                    block.getBlock().toByteArray(),
+                    block.getBlock(),
                     org.biscuitsec.biscuit.crypto.PublicKey.deserialize(block.getNextKey()),
-                    block.getSignature().toByteArray(),
+                    block.getSignature(),
                     external
             ));
         }
@@ -173,27 +458,135 @@ public class SerializedBiscuit {
      * @return
      */
     public byte[] serialize() throws Error.FormatError.SerializationError {
+        return to_proto().toByteArray();
+    }
+
+    /**
+     * Size in bytes of the serialized token
+     *
+     * @return
+     */
+    public int serialized_size() {
+        return to_proto().getSerializedSize();
+    }
+
+    /**
+     * Serializes a SerializedBiscuit into a heap or direct ByteBuffer, starting at its position
+     * <p>
+     * The buffer's position is advanced by the number of bytes written
+     *
+     * @param out
+     * @return number of bytes written
+     * @throws Error.FormatError.SerializationError if the buffer does not have enough space remaining
+     */
+    public int serialize(ByteBuffer out) throws Error.FormatError.SerializationError {
+        Schema.Biscuit biscuit = to_proto();
+        int size = biscuit.getSerializedSize();
+        if (out.remaining() < size) {
+            throw new Error.FormatError.SerializationError("buffer too small: " + size + " bytes needed, " + out.remaining() + " remaining");
+        }
+
+        write(biscuit, out);
+        return size;
+    }
+
+    /**
+     * Serializes a SerializedBiscuit into a new ByteBuffer of the serialized size
+     * <p>
+     * Unlike calling {@link #serialized_size()} then {@link #serialize(ByteBuffer)}, this builds the
+     * protobuf message once.
+     *
+     * @param direct allocates a direct buffer if true, a heap buffer otherwise
+     * @return the serialized token, between position 0 and the buffer's limit
+     */
+    public ByteBuffer serialize_buffer(boolean direct) throws Error.FormatError.SerializationError {
+        Schema.Biscuit biscuit = to_proto();
+        int size = biscuit.getSerializedSize();
+        ByteBuffer out = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        write(biscuit, out);
+        out.flip();
+        return out;
+    }
+
+    private static void write(Schema.Biscuit biscuit, ByteBuffer out) throws Error.FormatError.SerializationError {
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(out);
+            biscuit.writeTo(output);
+            output.flush();
+        } catch (IOException e) {
+            throw new Error.FormatError.SerializationError(e.toString());
+        }
+    }
+
+    /**
+     * Serializes a SerializedBiscuit into a byte array, starting at offset
+     *
+     * @param out
+     * @param offset
+     * @return number of bytes written
+     * @throws Error.FormatError.SerializationError if the array does not have enough space after offset
+     */
+    public int serialize(byte[] out, int offset) throws Error.FormatError.SerializationError {
+        return serialize(ByteBuffer.wrap(out, offset, out.length - offset));
+    }
+
+    /**
+     * Serializes a SerializedBiscuit to a base64url string
+     *
+     * @return
+     */
+    public String serialize_b64url() throws Error.FormatError.SerializationError {
+        Schema.Biscuit biscuit = to_proto();
+        StringBuilder sb = new StringBuilder(Base64UrlOutputStream.encodedLength(biscuit.getSerializedSize()));
+        serialize_b64url(biscuit, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Serializes a SerializedBiscuit as base64url, appending it to a StringBuilder, a CharBuffer
+     * or any other Appendable
+     *
+     * @param out
+     */
+    public void serialize_b64url(Appendable out) throws Error.FormatError.SerializationError {
+        serialize_b64url(to_proto(), out);
+    }
+
+    static private void serialize_b64url(Schema.Biscuit biscuit, Appendable out) throws Error.FormatError.SerializationError {
+        try {
+            Base64UrlOutputStream stream = new Base64UrlOutputStream(out);
+            int bufferSize = Math.max(1, Math.min(4096, biscuit.getSerializedSize()));
+            CodedOutputStream output = CodedOutputStream.newInstance(stream, bufferSize);
+            biscuit.writeTo(output);
+            output.flush();
+            stream.close();
+        } catch (IOException e) {
+            throw new Error.FormatError.SerializationError(e.toString());
+        }
+    }
+
+    private Schema.Biscuit to_proto() {
         Schema.Biscuit.Builder biscuitBuilder = Schema.Biscuit.newBuilder();
         Schema.SignedBlock.Builder authorityBuilder = Schema.SignedBlock.newBuilder();
         {
             SignedBlock block = this.authority;
-            authorityBuilder.setBlock(ByteString.copyFrom(block.block));
+            authorityBuilder.setBlock(block.block_bytes());
             authorityBuilder.setNextKey(block.key.serialize());
-            authorityBuilder.setSignature(ByteString.copyFrom(block.signature));
+            authorityBuilder.setSignature(block.signature_bytes());
         }
         biscuitBuilder.setAuthority(authorityBuilder.build());
 
         for (SignedBlock block : this.blocks) {
             Schema.SignedBlock.Builder blockBuilder = Schema.SignedBlock.newBuilder();
-            blockBuilder.setBlock(ByteString.copyFrom(block.block));
+            blockBuilder.setBlock(block.block_bytes());
             blockBuilder.setNextKey(block.key.serialize());
-            blockBuilder.setSignature(ByteString.copyFrom(block.signature));
+            blockBuilder.setSignature(block.signature_bytes());
 
             if (block.externalSignature.isDefined()) {
                 ExternalSignature externalSignature = block.externalSignature.get();
                 Schema.ExternalSignature.Builder externalSignatureBuilder = Schema.ExternalSignature.newBuilder();
                 externalSignatureBuilder.setPublicKey(externalSignature.key.serialize());
-                externalSignatureBuilder.setSignature(ByteString.copyFrom(externalSignature.signature));
+                externalSignatureBuilder.setSignature(externalSignature.signature_bytes());
                 blockBuilder.setExternalSignature(externalSignatureBuilder.build());
             }
 
@@ -202,9 +595,9 @@ public class SerializedBiscuit {
 
         Schema.Proof.Builder proofBuilder = Schema.Proof.newBuilder();
         if (!this.proof.secretKey.isEmpty()) {
-            proofBuilder.setNextSecret(ByteString.copyFrom(this.proof.secretKey.get().toBytes()));
+            proofBuilder.setNextSecret(UnsafeByteOperations.unsafeWrap(this.proof.secretKey.get().toBytes()));
         } else {
-            proofBuilder.setFinalSignature(ByteString.copyFrom(this.proof.signature.get()));
+            proofBuilder.setFinalSignature(UnsafeByteOperations.unsafeWrap(this.proof.signature.get()));
         }
 
         biscuitBuilder.setProof(proofBuilder.build());
@@ -212,16 +605,7 @@ public class SerializedBiscuit {
             biscuitBuilder.setRootKeyId(this.root_key_id.get());
         }
 
-        Schema.Biscuit biscuit = biscuitBuilder.build();
-
-        try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            biscuit.writeTo(stream);
-            return stream.toByteArray();
-        } catch (IOException e) {
-            throw new Error.FormatError.SerializationError(e.toString());
-        }
-
+        return biscuitBuilder.build();
     }
 
     static public Either<Error.FormatError, SerializedBiscuit> make(final org.biscuitsec.biscuit.crypto.KeyPair root,
@@ -232,11 +616,17 @@ public class SerializedBiscuit {
 
     static public Either<Error.FormatError, SerializedBiscuit> make(final org.biscuitsec.biscuit.crypto.KeyPair root, final Option<Integer> root_key_id,
                                                                     final Block authority, final org.biscuitsec.biscuit.crypto.KeyPair next) {
-        Schema.Block b = authority.serialize();
+        return make(root, root_key_id, authority.serialize().toByteString(), next);
+    }
+
+    /**
+     * Creates a token from an authority block that is already serialized
+     * <p>
+     * The block can be made of several concatenated protobuf fragments, they are signed without being copied.
+     */
+    static public Either<Error.FormatError, SerializedBiscuit> make(final org.biscuitsec.biscuit.crypto.KeyPair root, final Option<Integer> root_key_id,
+                                                                    final ByteString block, final org.biscuitsec.biscuit.crypto.KeyPair next) {
         try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            b.writeTo(stream);
-            byte[] block = stream.toByteArray();
             org.biscuitsec.biscuit.crypto.PublicKey next_key = next.public_key();
             ByteBuffer algo_buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
             algo_buf.putInt(Integer.valueOf(next_key.algorithm.getNumber()));
@@ -244,32 +634,53 @@ public class SerializedBiscuit {
 
             Signature sgr = KeyPair.generateSignature(root.public_key().algorithm);
             sgr.initSign(root.private_key());
-            sgr.update(block);
+            update(sgr, block);
             sgr.update(algo_buf);
             sgr.update(next_key.toBytes());
             byte[] signature = sgr.sign();
 
-            SignedBlock signedBlock = new SignedBlock(block, next_key, signature, Option.none());
+            SignedBlock signedBlock = new SignedBlock(block, next_key, UnsafeByteOperations.unsafeWrap(signature), Option.none());
             Proof proof = new Proof(next);
 
             return Right(new SerializedBiscuit(signedBlock, new ArrayList<>(), proof, root_key_id));
-        } catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
             return Left(new Error.FormatError.SerializationError(e.toString()));
         }
     }
 
     public Either<Error.FormatError, SerializedBiscuit> append(final org.biscuitsec.biscuit.crypto.KeyPair next,
                                                                final Block newBlock, Option<ExternalSignature> externalSignature) {
+        MetricsListener listener = Metrics.listener();
+        if (listener == null) {
+            return append_inner(next, newBlock, externalSignature);
+        }
+
+        long start = System.nanoTime();
+        Either<Error.FormatError, SerializedBiscuit> res;
+        try {
+            res = append_inner(next, newBlock, externalSignature);
+        } catch (RuntimeException e) {
+            listener.attenuated(0, block_count() + 1, System.nanoTime() - start, e);
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        if (res.isLeft()) {
+            listener.attenuated(0, block_count() + 1, nanos, res.getLeft());
+        } else {
+            listener.attenuated(res.get().blocks.get(this.blocks.size()).block.length, block_count() + 1, nanos, null);
+        }
+        return res;
+    }
+
+    private Either<Error.FormatError, SerializedBiscuit> append_inner(final org.biscuitsec.biscuit.crypto.KeyPair next,
+                                                                      final Block newBlock, Option<ExternalSignature> externalSignature) {
         if (this.proof.secretKey.isEmpty()) {
             return Left(new Error.FormatError.SerializationError("the token is sealed"));
         }
 
         Schema.Block b = newBlock.serialize();
         try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            b.writeTo(stream);
-
-            byte[] block = stream.toByteArray();
+            byte[] block = b.toByteArray();
             org.biscuitsec.biscuit.crypto.PublicKey next_key = next.public_key();
             ByteBuffer algo_buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
             algo_buf.putInt(Integer.valueOf(next_key.algorithm.getNumber()));
@@ -279,7 +690,7 @@ public class SerializedBiscuit {
             sgr.initSign(this.proof.secretKey.get().private_key());
             sgr.update(block);
             if(externalSignature.isDefined()) {
-                sgr.update(externalSignature.get().signature);
+                update(sgr, externalSignature.get().signature_bytes());
             }
             sgr.update(algo_buf);
             sgr.update(next_key.toBytes());
@@ -296,7 +707,7 @@ public class SerializedBiscuit {
             Proof proof = new Proof(next);
 
             return Right(new SerializedBiscuit(this.authority, blocks, proof, root_key_id));
-        } catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
             return Left(new Error.FormatError.SerializationError(e.toString()));
         }
     }
@@ -349,19 +760,19 @@ public class SerializedBiscuit {
                 b = this.blocks.get(this.blocks.size() - 1);
             }
 
-            byte[] block = b.block;
+            ByteString block = b.block_bytes();
             org.biscuitsec.biscuit.crypto.PublicKey next_key = b.key;
-            byte[] signature = b.signature;
+            ByteString signature = b.signature_bytes();
             algo_buf.clear();
             algo_buf.putInt(next_key.algorithm.getNumber());
             algo_buf.flip();
 
             Signature sgr = KeyPair.generateSignature(next_key.algorithm);
             sgr.initVerify(current_key.key);
-            sgr.update(block);
+            update(sgr, block);
             sgr.update(algo_buf);
             sgr.update(next_key.toBytes());
-            sgr.update(signature);
+            update(sgr, signature);
 
             if (sgr.verify(finalSignature)) {
                 return Right(null);
@@ -375,11 +786,11 @@ public class SerializedBiscuit {
     static Either<Error, org.biscuitsec.biscuit.crypto.PublicKey> verifyBlockSignature(SignedBlock signedBlock, org.biscuitsec.biscuit.crypto.PublicKey publicKey)
             throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
 
-        byte[] block = signedBlock.block;
+        ByteString block = signedBlock.block_bytes();
         org.biscuitsec.biscuit.crypto.PublicKey next_key = signedBlock.key;
-        byte[] signature = signedBlock.signature;
+        ByteString signature = signedBlock.signature_bytes();
 
-        var signatureLengthError = PublicKey.validateSignatureLength(publicKey.algorithm, signature.length);
+        var signatureLengthError = PublicKey.validateSignatureLength(publicKey.algorithm, signature.size());
         if (signatureLengthError.isPresent()) {
             return Left(signatureLengthError.get());
         }
@@ -390,13 +801,13 @@ public class SerializedBiscuit {
 
         Signature sgr = KeyPair.generateSignature(publicKey.algorithm);
         sgr.initVerify(publicKey.key);
-        sgr.update(block);
+        update(sgr, block);
         if(signedBlock.externalSignature.isDefined()) {
-            sgr.update(signedBlock.externalSignature.get().signature);
+            update(sgr, signedBlock.externalSignature.get().signature_bytes());
         }
         sgr.update(algo_buf);
         sgr.update(next_key.toBytes());
-        if (!sgr.verify(signature)) {
+        if (!sgr.verify(signature.toByteArray())) {
             return Left(new Error.FormatError.Signature.InvalidSignature("signature error: Verification equation was not satisfied"));
         }
 
@@ -407,7 +818,7 @@ public class SerializedBiscuit {
 
             Signature sgr2 = KeyPair.generateSignature(publicKey.algorithm);
             sgr2.initVerify(signedBlock.externalSignature.get().key.key);
-            sgr2.update(block);
+            update(sgr2, block);
             sgr2.update(algo_buf2);
             sgr2.update(publicKey.toBytes());
 
@@ -419,55 +830,106 @@ public class SerializedBiscuit {
         return Right(next_key);
     }
 
+    /**
+     * Feeds a ByteString to a signature without flattening it into a new array
+     *
+     * @param sgr
+     * @param data
+     */
+    static void update(Signature sgr, ByteString data) throws SignatureException {
+        for (ByteBuffer b : data.asReadOnlyByteBufferList()) {
+            sgr.update(b);
+        }
+    }
+
     public Tuple2<Block, ArrayList<Block>> extractBlocks(SymbolTable symbols) throws Error {
-        ArrayList<Option<org.biscuitsec.biscuit.crypto.PublicKey>> blockExternalKeys = new ArrayList<>();
-        Either<Error.FormatError, Block> authRes = Block.from_bytes(this.authority.block, Option.none());
-        if (authRes.isLeft()) {
-            throw authRes.getLeft();
+        Block authority = extractBlock(0);
+
+        ArrayList<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < this.blocks.size(); i++) {
+            blocks.add(extractBlock(i + 1));
         }
-        Block authority = authRes.get();
-        for(org.biscuitsec.biscuit.crypto.PublicKey pk: authority.publicKeys()) {
+
+        add_symbols(symbols, authority, blocks);
+        return new Tuple2<>(authority, blocks);
+    }
+
+    /**
+     * Adds the symbols and public keys of a token's blocks to the token's symbol table
+     * <p>
+     * Blocks with external signatures keep their own symbol table.
+     *
+     * @param symbols the token's symbol table
+     * @param authority
+     * @param blocks
+     */
+    public static void add_symbols(SymbolTable symbols, Block authority, List<Block> blocks) {
+        for (PublicKey pk : authority.publicKeys()) {
             symbols.insert(pk);
         }
-        blockExternalKeys.add(Option.none());
-
         for (String s : authority.symbols().symbols) {
             symbols.add(s);
         }
 
-        ArrayList<Block> blocks = new ArrayList<>();
-        for (SignedBlock bdata : this.blocks) {
-            Option<org.biscuitsec.biscuit.crypto.PublicKey> externalKey = Option.none();
-            if(bdata.externalSignature.isDefined()) {
-                externalKey = Option.some(bdata.externalSignature.get().key);
-            }
-            Either<Error.FormatError, Block> blockRes = Block.from_bytes(bdata.block, externalKey);
-            if (blockRes.isLeft()) {
-                throw blockRes.getLeft();
-            }
-            Block block = blockRes.get();
-
-            // blocks with external signatures keep their own symbol table
-            if(bdata.externalSignature.isDefined()) {
-                //symbols.insert(bdata.externalSignature.get().key);
-                blockExternalKeys.add(Option.some(bdata.externalSignature.get().key));
-            } else {
-                blockExternalKeys.add(Option.none());
+        for (Block block : blocks) {
+            if (block.externalKey().isEmpty()) {
                 for (String s : block.symbols().symbols) {
                     symbols.add(s);
                 }
-                for(org.biscuitsec.biscuit.crypto.PublicKey pk: block.publicKeys()) {
+                for (PublicKey pk : block.publicKeys()) {
                     symbols.insert(pk);
                 }
             }
+        }
+    }
 
-            blocks.add(block);
+    /**
+     * Decodes a single block, without looking at the other ones
+     *
+     * @param index block index, 0 being the authority block
+     * @return Block
+     */
+    public Block extractBlock(int index) throws Error {
+        SignedBlock bdata = index == 0 ? this.authority : this.blocks.get(index - 1);
+
+        Option<org.biscuitsec.biscuit.crypto.PublicKey> externalKey = Option.none();
+        if(bdata.externalSignature.isDefined()) {
+            externalKey = Option.some(bdata.externalSignature.get().key);
+        }
+        Either<Error.FormatError, Block> blockRes = Block.from_bytes(bdata.block_bytes(), externalKey);
+        if (blockRes.isLeft()) {
+            throw blockRes.getLeft();
         }
+        return blockRes.get();
+    }
 
-        return new Tuple2<>(authority, blocks);
+    /**
+     * Number of blocks in the token, including the authority block
+     *
+     * @return
+     */
+    public int block_count() {
+        return 1 + this.blocks.size();
     }
 
     public Either<Error, Void> seal() throws InvalidKeyException, NoSuchAlgorithmException, SignatureException {
+        MetricsListener listener = Metrics.listener();
+        if (listener == null) {
+            return seal_inner();
+        }
+
+        long start = System.nanoTime();
+        try {
+            Either<Error, Void> res = seal_inner();
+            listener.sealed(block_count(), System.nanoTime() - start, res.isLeft() ? res.getLeft() : null);
+            return res;
+        } catch (Exception e) {
+            listener.sealed(block_count(), System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    private Either<Error, Void> seal_inner() throws InvalidKeyException, NoSuchAlgorithmException, SignatureException {
         if (this.proof.secretKey.isEmpty()) {
             return Left(new Error.Sealed());
         }
@@ -486,10 +948,10 @@ public class SerializedBiscuit {
 
 
         sgr.initSign(this.proof.secretKey.get().private_key());
-        sgr.update(block.block);
+        update(sgr, block.block_bytes());
         sgr.update(algo_buf);
         sgr.update(block.key.toBytes());
-        sgr.update(block.signature);
+        update(sgr, block.signature_bytes());
 
         byte[] signature = sgr.sign();
 
@@ -1,18 +1,48 @@
 package org.biscuitsec.biscuit.token.format;
 
 import org.biscuitsec.biscuit.crypto.PublicKey;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.vavr.control.Option;
 
+/**
+ * Signed block as it appears in a serialized token
+ * <p>
+ * the token is serialized and verified from {@link #block_bytes()} and {@link #signature_bytes()},
+ * which can be slices of the buffer the token was parsed from
+ */
 public class SignedBlock {
     public byte[] block;
     public PublicKey key;
     public byte[] signature;
     public Option<ExternalSignature> externalSignature;
+    private final ByteString blockBytes;
+    private final ByteString signatureBytes;
 
     public SignedBlock(byte[] block, PublicKey key, byte[] signature, Option<ExternalSignature> externalSignature) {
+        this(block, UnsafeByteOperations.unsafeWrap(block), key, signature, UnsafeByteOperations.unsafeWrap(signature),
+                externalSignature);
+    }
+
+    public SignedBlock(ByteString block, PublicKey key, ByteString signature, Option<ExternalSignature> externalSignature) {
+        this(block.toByteArray(), block, key, signature.toByteArray(), signature, externalSignature);
+    }
+
+    private SignedBlock(byte[] block, ByteString blockBytes, PublicKey key, byte[] signature, ByteString signatureBytes,
+                        Option<ExternalSignature> externalSignature) {
         this.block = block;
+        this.blockBytes = blockBytes;
         this.key = key;
         this.signature = signature;
+        this.signatureBytes = signatureBytes;
         this.externalSignature = externalSignature;
     }
+
+    public ByteString block_bytes() {
+        return this.blockBytes;
+    }
+
+    public ByteString signature_bytes() {
+        return this.signatureBytes;
+    }
 }
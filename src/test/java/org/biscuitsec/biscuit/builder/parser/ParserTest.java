@@ -8,6 +8,7 @@ import org.biscuitsec.biscuit.datalog.expressions.Op;
 import org.biscuitsec.biscuit.token.Biscuit;
 import org.biscuitsec.biscuit.token.builder.parser.Error;
 import org.biscuitsec.biscuit.token.builder.parser.Parser;
+import org.biscuitsec.biscuit.token.builder.parser.ParserCache;
 import io.vavr.Tuple2;
 import io.vavr.control.Either;
 import org.biscuitsec.biscuit.token.builder.*;
@@ -40,6 +41,10 @@ class ParserTest {
 
         Either<Error, Tuple2<String, Term.Integer>> res2 = Parser.integer("-42");
         assertEquals(Either.right(new Tuple2<>("", (Term.Integer) Utils.integer(-42))), res2);
+
+        assertEquals(Either.left(new Error("-", "not an integer")), Parser.integer("-"));
+        assertEquals(Either.left(new Error("99999999999999999999)", "not an integer")), Parser.integer("99999999999999999999)"));
+        assertTrue(Parser.fact("fact(-)").isLeft());
     }
 
     @Test
@@ -169,6 +174,22 @@ class ParserTest {
                 ))), res);
     }
 
+    @Test
+    void expressionLengthTest() {
+        Expression length = new Expression.Unary(Expression.Op.Length, new Expression.Value(Utils.var("a")));
+
+        assertEquals(Either.right(new Tuple2<>("",
+                new Expression.Binary(Expression.Op.Equal, length, new Expression.Value(Utils.integer(3))))),
+                Parser.expression("$a.length()==3"));
+        assertEquals(Either.right(new Tuple2<>("", length)), Parser.expression("$a.length()"));
+    }
+
+    @Test
+    void expressionUnknownMethodTest() {
+        assertEquals(Either.left(new Error("foo(1) == 2", "unrecognized method")), Parser.expression("$a.foo(1) == 2"));
+        assertEquals(Either.left(new Error("", "unrecognized method")), Parser.expression("$a."));
+    }
+
     @Test
     void testNegatePrecedence() {
         Either<Error, Tuple2<String, Check>> res =
@@ -510,4 +531,102 @@ class ParserTest {
         Either<Map<Integer, List<Error>>, Block> output = Parser.datalog(1, toParse);
         assertTrue(output.isRight());
     }
+
+    @Test
+    void testDatalogCommentsInTheMiddle() throws org.biscuitsec.biscuit.error.Error.Parser {
+        String toParse = String.join("\n", Arrays.asList(
+                "fact1(1, 2); // first fact",
+                "/* a rule */ rule1($a) <- fact1($a, 2);",
+                "fact2(\"http://example.com\");",
+                "check if rule1(1) // last"));
+
+        Either<Map<Integer, List<Error>>, Block> output = Parser.datalog(1, toParse);
+        assertTrue(output.isRight());
+
+        Block validBlock = new Block();
+        validBlock.add_fact("fact1(1, 2)");
+        validBlock.add_rule("rule1($a) <- fact1($a, 2)");
+        validBlock.add_fact("fact2(\"http://example.com\")");
+        validBlock.add_check("check if rule1(1)");
+
+        assertEquals(validBlock, output.get());
+
+        // a leading block comment only removes the comment
+        Either<Map<Integer, List<Error>>, Block> output2 = Parser.datalog(1, "/* header */\nfact1(1, 2)");
+        assertEquals(new Block().add_fact("fact1(1, 2)"), output2.get());
+    }
+
+    @Test
+    void testParameterScope() {
+        Either<Error, Tuple2<String, Rule>> res = Parser.rule("right($0) <- resource($0) trusting {external}");
+        assertEquals(
+                Either.right(new Tuple2<>("", new Rule(
+                        new Predicate("right", List.of(Utils.var("0"))),
+                        List.of(new Predicate("resource", List.of(Utils.var("0")))),
+                        new ArrayList<>(),
+                        List.of(Scope.parameter("external"))))),
+                res);
+    }
+
+    @Test
+    void testDatalogLargeBlock() throws org.biscuitsec.biscuit.error.Error.Parser {
+        StringBuilder toParse = new StringBuilder();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            toParse.append("user(\"user").append(i).append("\", ").append(i).append(");\n");
+            toParse.append("right($u, \"read\") <- user($u, ").append(i).append("), $u.starts_with(\"user\");\n");
+            toParse.append("check if right(\"user").append(i).append("\", \"read\");\n");
+        }
+
+        Either<Map<Integer, List<Error>>, Block> output = Parser.datalog(1, toParse.toString());
+        assertTrue(output.isRight());
+
+        Block expected = new Block();
+        for (int i = 0; i < count; i++) {
+            expected.add_fact("user(\"user" + i + "\", " + i + ")");
+            expected.add_rule("right($u, \"read\") <- user($u, " + i + "), $u.starts_with(\"user\")");
+            expected.add_check("check if right(\"user" + i + "\", \"read\")");
+        }
+        assertEquals(expected, output.get());
+    }
+
+    @Test
+    void testParserCache() {
+        List<String> parsed = new ArrayList<>();
+        ParserCache<Rule> cache = new ParserCache<>(s -> {
+            parsed.add(s);
+            return Parser.rule(s);
+        }, Rule::clone, 0);
+        String a = "a($x) <- b($x)";
+        String b = "b($x) <- c($x)";
+        String c = "c($x) <- d($x)";
+
+        // disabled by default
+        cache.get(a);
+        cache.get(a);
+        assertEquals(0, cache.size());
+        assertEquals(List.of(a, a), parsed);
+
+        // the least recently used entry is evicted
+        parsed.clear();
+        cache.set_capacity(2);
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+        cache.get(a);
+        assertEquals(2, cache.size());
+        assertEquals(List.of(a, b, c), parsed);
+        cache.get(b);
+        assertEquals(List.of(a, b, c, b), parsed);
+
+        assertTrue(cache.get("a($x) <-").isLeft());
+        assertEquals(2, cache.size());
+        cache.set_capacity(1);
+        assertEquals(1, cache.size());
+
+        assertEquals(0, ParserCache.RULES.size());
+        assertEquals(0, ParserCache.CHECKS.size());
+        assertEquals(0, ParserCache.POLICIES.size());
+    }
 }
@@ -0,0 +1,76 @@
+package org.biscuitsec.biscuit.crypto;
+
+import biscuit.format.schema.Schema.PublicKey.Algorithm;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Biscuit;
+import org.biscuitsec.biscuit.token.builder.Block;
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyPairPoolTest {
+    @Test
+    public void testPool() throws InterruptedException {
+        try (KeyPairPool pool = new KeyPairPool(4, Algorithm.Ed25519, Algorithm.SECP256R1)) {
+            waitFor(pool, Algorithm.Ed25519, 4);
+            waitFor(pool, Algorithm.SECP256R1, 4);
+
+            Set<String> keys = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                KeyPair k = pool.take(Algorithm.Ed25519);
+                assertEquals(Algorithm.Ed25519, k.public_key().algorithm);
+                keys.add(k.public_key().toHex());
+            }
+            assertEquals(20, keys.size());
+            assertEquals(Algorithm.SECP256R1, pool.take(Algorithm.SECP256R1).public_key().algorithm);
+
+            // the pool is refilled after the key pairs are taken
+            waitFor(pool, Algorithm.Ed25519, 4);
+            waitFor(pool, Algorithm.SECP256R1, 4);
+        }
+
+        KeyPairPool ed25519 = new KeyPairPool(1, Algorithm.Ed25519);
+        ed25519.close();
+        assertEquals(0, ed25519.available(Algorithm.SECP256R1));
+        assertEquals(Algorithm.SECP256R1, ed25519.take(Algorithm.SECP256R1).public_key().algorithm);
+    }
+
+    @Test
+    public void testDefaultPool() throws Error, InterruptedException, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root = KeyPair.generate(Algorithm.Ed25519, rng);
+
+        try (KeyPairPool pool = new KeyPairPool(2, Algorithm.Ed25519)) {
+            waitFor(pool, Algorithm.Ed25519, 2);
+            // a closed pool is not refilled, so the key pairs taken by the tokens can be counted
+            pool.close();
+            KeyPairPool.set_default(pool);
+
+            Biscuit token = Biscuit.make(rng, root, new Block().build());
+            assertEquals(1, pool.available(Algorithm.Ed25519));
+            Biscuit attenuated = token.attenuate(new Block().add_check("check if operation(\"read\")"), Algorithm.Ed25519);
+            assertEquals(0, pool.available(Algorithm.Ed25519));
+            // an empty pool falls back to generating the key pair
+            Biscuit attenuated2 = attenuated.attenuate(new Block(), Algorithm.Ed25519);
+
+            Biscuit deser = Biscuit.from_bytes(attenuated2.serialize(), root.public_key());
+            assertEquals(attenuated2.print(), deser.print());
+        } finally {
+            KeyPairPool.set_default(null);
+        }
+    }
+
+    private static void waitFor(KeyPairPool pool, Algorithm algorithm, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && pool.available(algorithm) < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, pool.available(algorithm));
+    }
+}
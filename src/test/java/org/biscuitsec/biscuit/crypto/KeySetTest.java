@@ -0,0 +1,85 @@
+package org.biscuitsec.biscuit.crypto;
+
+import biscuit.format.schema.Schema;
+import io.vavr.control.Option;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Biscuit;
+import org.biscuitsec.biscuit.token.builder.Block;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySetTest {
+    @Test
+    public void testLookup() {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        PublicKey k1 = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng).public_key();
+        PublicKey k2 = KeyPair.generate(Schema.PublicKey.Algorithm.SECP256R1, rng).public_key();
+
+        KeySet keys = new KeySet(Map.of(1, k1, 2, k2), Option.some(2));
+        assertEquals(Option.some(k1), keys.root_key(Option.some(1)));
+        assertEquals(Option.some(k2), keys.root_key(Option.some(2)));
+        assertEquals(Option.some(k2), keys.root_key(Option.none()));
+        assertEquals(Option.none(), keys.root_key(Option.some(3)));
+        assertEquals(Option.none(), keys.root_key(Option.some(-1)));
+
+        // sparse ids
+        keys.rotate(Map.of(1_000_000, k1, -5, k2), Option.none());
+        assertEquals(Option.some(k1), keys.root_key(Option.some(1_000_000)));
+        assertEquals(Option.some(k2), keys.root_key(Option.some(-5)));
+        assertEquals(Option.none(), keys.root_key(Option.some(1)));
+        assertEquals(Option.none(), keys.root_key(Option.none()));
+
+        assertThrows(IllegalArgumentException.class, () -> keys.rotate(Map.of(1, k1), Option.some(2)));
+        assertEquals(2, keys.keys().size());
+    }
+
+    @Test
+    public void testReloadFile() throws IOException, Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root1 = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+        KeyPair root2 = KeyPair.generate(Schema.PublicKey.Algorithm.SECP256R1, rng);
+
+        org.biscuitsec.biscuit.token.builder.Biscuit builder = new org.biscuitsec.biscuit.token.builder.Biscuit(rng, root2, Option.some(2), new Block());
+        byte[] token = builder.build().serialize();
+
+        Path file = Files.createTempFile("keys", ".json");
+        try {
+            Files.write(file, ("{\"default\": 1, \"keys\": [{\"kid\": 1, \"alg\": \"ed25519\", \"key\": \"" + root1.public_key().toHex() + "\"}]}")
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+            KeySet keys = KeySet.from_file(file);
+            assertEquals(Option.some(root1.public_key()), keys.root_key(Option.none()));
+            assertThrows(InvalidKeyException.class, () -> Biscuit.from_bytes(token, keys));
+            assertFalse(keys.reload_if_modified());
+
+            Files.write(file, ("{\"keys\": [{\"kid\": 1, \"alg\": \"ed25519\", \"key\": \"" + root1.public_key().toHex() + "\"},"
+                    + "{\"kid\": 2, \"alg\": \"secp256r1\", \"key\": \"" + root2.public_key().toHex() + "\"}]}")
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(2000));
+            assertTrue(keys.reload_if_modified());
+            assertEquals(Option.none(), keys.root_key(Option.none()));
+            Biscuit.from_bytes(token, keys);
+
+            // an invalid file leaves the keys in place
+            Files.write(file, "{\"keys\": [{\"kid\": 1, \"alg\": \"rsa\", \"key\": \"00\"}]}".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(3000));
+            IOException e = assertThrows(IOException.class, keys::reload_if_modified);
+            assertEquals("invalid key set: unsupported algorithm rsa", e.getMessage());
+            assertEquals(2, keys.keys().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.biscuitsec.biscuit.datalog;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.crypto.PublicKey;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SymbolMapTest {
+
+   @Test
+   public void testPublicKeys() {
+      SecureRandom rng = new SecureRandom();
+      PublicKey pk1 = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng).public_key();
+      PublicKey pk2 = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng).public_key();
+      PublicKey pk3 = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng).public_key();
+
+      SymbolTable from = new SymbolTable();
+      from.insert(pk1);
+      SymbolTable to = new SymbolTable();
+      to.insert(pk2);
+      SymbolMap map = new SymbolMap(from, to);
+
+      assertEquals(1, map.publicKey(0));
+      assertEquals(pk1, to.get_pk(1).get());
+
+      // keys added to the source table after the map was created
+      from.insert(pk3);
+      assertEquals(2, map.publicKey(1));
+      assertEquals(pk3, to.get_pk(2).get());
+
+      assertThrows(IllegalArgumentException.class, () -> map.publicKey(2));
+      assertThrows(IllegalArgumentException.class, () -> map.publicKey(-1));
+   }
+}
@@ -5,10 +5,13 @@ import org.biscuitsec.biscuit.datalog.expressions.Op;
 import org.biscuitsec.biscuit.error.Error;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class WorldTest {
@@ -466,4 +469,172 @@ public class WorldTest {
        }
       assertTrue(res.size() == 0);
    }
+
+   @Test
+   public void testRulesSharingScope() throws Error {
+      final World w = new World();
+      final SymbolTable syms = new SymbolTable();
+      final long edge = syms.insert("edge");
+      final long path = syms.insert("path");
+      final Term.Variable x = new Term.Variable(syms.insert("x"));
+      final Term.Variable y = new Term.Variable(syms.insert("y"));
+      final Term.Variable z = new Term.Variable(syms.insert("z"));
+
+      w.add_fact(new Origin(0), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(0), new Term.Integer(1)))));
+      w.add_fact(new Origin(0), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(1), new Term.Integer(2)))));
+
+      final TrustedOrigins scope = new TrustedOrigins(0);
+      w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, y)),
+              Arrays.asList(new Predicate(edge, Arrays.asList(x, y))), new ArrayList<>()));
+      w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, z)),
+              Arrays.asList(new Predicate(path, Arrays.asList(x, y)), new Predicate(edge, Arrays.asList(y, z))), new ArrayList<>()));
+      w.run(new RunLimits(1000, 100, java.time.Duration.ofSeconds(1)), syms);
+
+      assertTrue(w.facts().stream().anyMatch(f -> f.equals(
+              new Fact(new Predicate(path, Arrays.asList(new Term.Integer(0), new Term.Integer(2)))))));
+   }
+
+   @Test
+   public void testIncrementalRun() throws Error {
+      final SymbolTable syms = new SymbolTable();
+      final long edge = syms.insert("edge");
+      final long path = syms.insert("path");
+      final Term.Variable x = new Term.Variable(syms.insert("x"));
+      final Term.Variable y = new Term.Variable(syms.insert("y"));
+      final Term.Variable z = new Term.Variable(syms.insert("z"));
+      final RunLimits limits = new RunLimits(1000, 100, java.time.Duration.ofSeconds(10));
+
+      final World w = new World();
+      final TrustedOrigins scope = new TrustedOrigins(0, 1);
+      w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, y)),
+              Arrays.asList(new Predicate(edge, Arrays.asList(x, y))), new ArrayList<>()));
+      w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, z)),
+              Arrays.asList(new Predicate(path, Arrays.asList(x, y)), new Predicate(path, Arrays.asList(y, z))), new ArrayList<>()));
+      for (int i = 0; i < 5; i++) {
+         w.add_fact(new Origin(0), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(i), new Term.Integer(i + 1)))));
+      }
+      w.run(limits, syms);
+      assertEquals(5 + 15, w.facts().size());
+
+      // nothing to evaluate without new facts
+      ExecutionStats stats = new ExecutionStats();
+      w.run(limits, syms, stats);
+      assertEquals(0, stats.iterations);
+
+      // join two chains
+      for (int i = 10; i < 15; i++) {
+         w.add_fact(new Origin(1), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(i), new Term.Integer(i + 1)))));
+      }
+      w.add_fact(new Origin(1), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(5), new Term.Integer(10)))));
+      w.run(limits, syms);
+
+      final World fromScratch = new World();
+      fromScratch.add_rule(0L, scope, w.rules().stream().filter(r -> r.body().size() == 1).findFirst().get());
+      fromScratch.add_rule(0L, scope, w.rules().stream().filter(r -> r.body().size() == 2).findFirst().get());
+      for (Map.Entry<Origin, HashSet<Fact>> entry : w.facts().facts().entrySet()) {
+         for (Fact f : entry.getValue()) {
+            if (f.predicate().name() == edge) {
+               fromScratch.add_fact(entry.getKey(), f);
+            }
+         }
+      }
+      fromScratch.run(limits, syms);
+
+      assertEquals(fromScratch.facts(), w.facts());
+      // 12 nodes in a chain
+      assertEquals(11 + 66, w.facts().size());
+   }
+
+   @Test
+   public void testParallelRun() throws Error {
+      final SymbolTable syms = new SymbolTable();
+      final long edge = syms.insert("edge");
+      final Term.Variable x = new Term.Variable(syms.insert("x"));
+      final Term.Variable y = new Term.Variable(syms.insert("y"));
+      final Term.Variable z = new Term.Variable(syms.insert("z"));
+      final RunLimits limits = new RunLimits(10000, 100, java.time.Duration.ofSeconds(10));
+      final TrustedOrigins scope = new TrustedOrigins(0);
+
+      final World w = new World();
+      for (int i = 0; i < 20; i++) {
+         w.add_fact(new Origin(0), new Fact(new Predicate(edge, Arrays.asList(new Term.Integer(i), new Term.Integer(i + 1)))));
+      }
+      // one transitive closure per start node modulo 8, to get many independent rules
+      for (int m = 0; m < 8; m++) {
+         final long path = syms.insert("path" + m);
+         w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, y)),
+                 Arrays.asList(new Predicate(edge, Arrays.asList(x, y))),
+                 Arrays.asList(new Expression(new ArrayList<>(Arrays.asList(
+                         new Op.Value(x), new Op.Value(new Term.Integer(7)), new Op.Binary(Op.BinaryOp.BitwiseAnd),
+                         new Op.Value(new Term.Integer(m)), new Op.Binary(Op.BinaryOp.Equal)))))));
+         w.add_rule(0L, scope, new Rule(new Predicate(path, Arrays.asList(x, z)),
+                 Arrays.asList(new Predicate(path, Arrays.asList(x, y)), new Predicate(edge, Arrays.asList(y, z))),
+                 new ArrayList<>()));
+      }
+
+      final World sequential = new World(w);
+      ExecutionStats sequentialStats = new ExecutionStats();
+      sequential.run(limits, syms, sequentialStats);
+
+      ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+         final World parallel = new World(w);
+         ExecutionStats parallelStats = new ExecutionStats();
+         parallel.run(limits, syms, parallelStats, pool);
+
+         assertEquals(sequential.facts(), parallel.facts());
+         assertEquals(sequentialStats.iterations, parallelStats.iterations);
+         assertEquals(sequentialStats.combinatorCandidates, parallelStats.combinatorCandidates);
+         assertEquals(16, parallelStats.rules().size());
+
+         // limits are checked after merging the results of each iteration
+         final World limited = new World(w);
+         assertThrows(Error.TooManyFacts.class,
+                 () -> limited.run(new RunLimits(50, 100, java.time.Duration.ofSeconds(10)), syms, null, pool));
+
+         // rule errors are reported
+         final World invalid = new World(w);
+         invalid.add_rule(0L, scope, new Rule(new Predicate(edge, Arrays.asList(y, z)),
+                 Arrays.asList(new Predicate(edge, Arrays.asList(x, y))), new ArrayList<>()));
+         assertThrows(Error.InternalError.class, () -> new World(invalid).run(limits, syms, null, null));
+         assertThrows(Error.InternalError.class, () -> invalid.run(limits, syms, null, pool));
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   @Test
+   public void testDeadline() throws Error {
+      Deadline expired = Deadline.after(java.time.Duration.ZERO);
+      assertTrue(expired.expired());
+      assertTrue(expired.fork().expired());
+      Deadline later = Deadline.after(java.time.Duration.ofDays(365 * 1000));
+      for (int i = 0; i < 2 * Deadline.CHECK_INTERVAL; i++) {
+         assertFalse(later.expired());
+      }
+
+      // a join over a large cross product that produces nothing
+      final SymbolTable syms = new SymbolTable();
+      final long a = syms.insert("a");
+      final long b = syms.insert("b");
+      final Term.Variable x = new Term.Variable(syms.insert("x"));
+      final Term.Variable y = new Term.Variable(syms.insert("y"));
+      final World w = new World();
+      for (int i = 0; i < 3000; i++) {
+         w.add_fact(new Origin(0), new Fact(new Predicate(a, Arrays.asList(new Term.Integer(i)))));
+         w.add_fact(new Origin(0), new Fact(new Predicate(b, Arrays.asList(new Term.Integer(i)))));
+      }
+      final Rule join = new Rule(new Predicate(syms.insert("c"), Arrays.asList(x, y)),
+              Arrays.asList(new Predicate(a, Arrays.asList(x)), new Predicate(b, Arrays.asList(y))),
+              Arrays.asList(new Expression(new ArrayList<>(Arrays.asList(
+                      new Op.Value(x), new Op.Value(new Term.Integer(-1)), new Op.Binary(Op.BinaryOp.Equal))))));
+      w.add_rule(0L, new TrustedOrigins(0), join);
+
+      final long start = System.nanoTime();
+      assertThrows(Error.Timeout.class,
+              () -> w.run(new RunLimits(1000, 100, java.time.Duration.ofMillis(5)), syms));
+      assertTrue(System.nanoTime() - start < java.time.Duration.ofSeconds(1).toNanos());
+      assertThrows(Error.Timeout.class, () -> w.query_match(join, 0L, new TrustedOrigins(0), syms, null,
+              Deadline.after(java.time.Duration.ofMillis(5))));
+   }
 }
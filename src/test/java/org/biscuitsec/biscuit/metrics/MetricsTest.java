@@ -0,0 +1,112 @@
+package org.biscuitsec.biscuit.metrics;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.Authorizer;
+import org.biscuitsec.biscuit.token.Biscuit;
+import org.biscuitsec.biscuit.token.format.SerializedBiscuit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+    @AfterEach
+    public void removeListener() {
+        Metrics.set_listener(null);
+    }
+
+    @Test
+    public void testCountingListener() throws Exception {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+        KeyPair other = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        CountingMetricsListener metrics = new CountingMetricsListener();
+        Metrics.set_listener(metrics);
+
+        Biscuit token = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build();
+        Biscuit attenuated = token.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                token.create_block().add_check("check if operation(\"read\")"));
+        assertEquals(1, metrics.attenuate.successes());
+        assertTrue(metrics.blockBytes.sum() > 0);
+
+        byte[] data = attenuated.serialize();
+        Biscuit parsed = Biscuit.from_bytes(data, root.public_key());
+        assertEquals(1, metrics.parse.successes());
+        assertEquals(data.length, metrics.tokenBytes.sum());
+        assertEquals(2, metrics.tokenBlocks.sum());
+        assertEquals(1, metrics.verifyNanos.count());
+
+        assertThrows(Error.FormatError.Signature.InvalidSignature.class, () -> Biscuit.from_bytes(data, other.public_key()));
+        assertEquals(1, metrics.parse.failures());
+        assertEquals(Map.of("InvalidSignature", 1L), metrics.parse.errors());
+
+        RunLimits limits = new RunLimits(1000, 100, Duration.ofSeconds(10));
+        Authorizer authorizer = parsed.authorizer();
+        authorizer.add_fact("operation(\"read\")");
+        authorizer.allow();
+        authorizer.authorize(limits);
+
+        Authorizer denied = parsed.authorizer();
+        denied.add_fact("operation(\"write\")");
+        denied.allow();
+        assertThrows(Error.FailedLogic.class, () -> denied.authorize(limits));
+
+        assertEquals(1, metrics.authorize.successes());
+        assertEquals(1, metrics.authorize.failures());
+        assertEquals(Map.of("FailedLogic", 1L), metrics.authorize.errors());
+        assertEquals(2, metrics.datalogNanos.count());
+
+        Authorizer rejected = parsed.authorizer();
+        rejected.add_fact("operation(\"read\")");
+        rejected.allow();
+        rejected.set_check_executor(r -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        assertThrows(RejectedExecutionException.class, () -> rejected.authorize(limits));
+        assertEquals(2, metrics.authorize.failures());
+        assertEquals(Map.of("FailedLogic", 1L, "RejectedExecutionException", 1L), metrics.authorize.errors());
+
+        SerializedBiscuit serialized = SerializedBiscuit.from_bytes(data, root.public_key());
+        assertTrue(serialized.seal().isRight());
+        assertTrue(serialized.seal().isLeft());
+        assertEquals(1, metrics.seal.successes());
+        assertEquals(Map.of("Sealed", 1L), metrics.seal.errors());
+
+        Metrics.set_listener(null);
+        Biscuit.from_bytes(data, root.public_key());
+        assertEquals(2, metrics.parse.successes());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        assertEquals(0, h.percentile(0.5));
+
+        for (long i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+        h.record(0);
+
+        assertEquals(101, h.count());
+        assertEquals(5050, h.sum());
+        assertEquals(100, h.max());
+        assertEquals(1, h.buckets()[0]);
+        assertEquals(1, h.buckets()[1]);
+        assertEquals(2, h.buckets()[2]);
+        // 50th value is in [32, 64)
+        assertEquals(63, h.percentile(0.5));
+        assertEquals(100, h.percentile(1));
+    }
+}
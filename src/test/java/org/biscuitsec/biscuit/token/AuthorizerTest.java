@@ -2,20 +2,40 @@ package org.biscuitsec.biscuit.token;
 
 import biscuit.format.schema.Schema;
 import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.datalog.FactSet;
+import org.biscuitsec.biscuit.datalog.Origin;
+import org.biscuitsec.biscuit.datalog.RunLimits;
 import org.biscuitsec.biscuit.error.Error;
 import org.biscuitsec.biscuit.error.Error.Parser;
+import org.biscuitsec.biscuit.error.FailedCheck;
+import org.biscuitsec.biscuit.error.LogicError;
 import org.biscuitsec.biscuit.token.builder.Expression;
 import org.biscuitsec.biscuit.token.builder.Term;
+import org.biscuitsec.biscuit.token.builder.Utils;
+import org.biscuitsec.biscuit.token.builder.parser.ParserCache;
+import io.vavr.control.Option;
 import org.junit.jupiter.api.Test;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.biscuitsec.biscuit.token.builder.Utils.constrained_rule;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AuthorizerTest {
 
@@ -74,10 +94,382 @@ public class AuthorizerTest {
         );
     }
 
+    @Test
+    public void testExecutionReport() throws Exception {
+        Authorizer authorizer = new Authorizer();
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_fact("user(\"alice\")");
+        authorizer.add_rule("right($r) <- resource($r), user(\"alice\")");
+        authorizer.add_check("check if right($r), $r.matches(\"file[0-9]\")");
+        authorizer.add_check("check if user(\"bob\")");
+        authorizer.allow();
+
+        Authorizer reported = authorizer.clone().enable_execution_report();
+        RunLimits limits = new RunLimits(1000, 100, Duration.ofSeconds(10));
+
+        assertThrows(Error.FailedLogic.class, () -> authorizer.authorize(limits));
+        assertTrue(authorizer.execution_report().isEmpty());
+
+        assertThrows(Error.FailedLogic.class, () -> reported.authorize(limits));
+        ExecutionReport report = reported.execution_report().get();
+        assertEquals(2, report.iterations);
+        assertEquals(1, report.regexEvaluations);
+        assertTrue(report.combinatorCandidates > 0);
+        assertEquals(3, report.factsPerOrigin.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, report.rules.size());
+        assertEquals("right($r) <- resource($r), user(\"alice\")", report.rules.get(0).rule);
+        assertEquals(1, report.rules.get(0).facts);
+        assertEquals(2, report.checks.size());
+        assertTrue(report.checks.get(0).success);
+        assertFalse(report.checks.get(1).success);
+        assertTrue(report.checks.get(1).check.startsWith("Authorizer[1]: "));
+        assertEquals(1, report.policies.size());
+        assertTrue(report.policies.get(0).success);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        SecureRandom rng = new SecureRandom();
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit token = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .add_authority_fact("right(\"file2\", \"read\")")
+                .add_authority_rule("readable($f) <- right($f, \"read\")")
+                .build();
+        token = token.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                token.create_block()
+                        .add_check("check if resource($f), readable($f)")
+                        .set_context("attenuation"));
+
+        RunLimits limits = new RunLimits(1000, 100, Duration.ofSeconds(10));
+        Authorizer authorizer = token.authorizer().set_limits(limits);
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_rule("allowed($f) <- resource($f), readable($f)");
+        authorizer.add_check("check if allowed(\"file1\")");
+        authorizer.add_policy("allow if resource($f), $f.starts_with(\"file\")");
+        assertEquals(0, authorizer.authorize());
+
+        byte[] data = authorizer.serialize_snapshot();
+        long iterations = authorizer.snapshot().getWorld().getIterations();
+        assertTrue(iterations > 0);
+        Authorizer restored = Authorizer.from_snapshot(data);
+        assertEquals(iterations, restored.snapshot().getWorld().getIterations());
+
+        assertEquals(authorizer.facts(), restored.facts());
+        assertEquals(authorizer.rules().stream().map(r -> authorizer.symbols.print_rule(r)).collect(Collectors.toSet()),
+                restored.rules().stream().map(r -> restored.symbols.print_rule(r)).collect(Collectors.toSet()));
+        assertEquals(authorizer.checks().toString(), restored.checks().toString());
+        assertEquals(limits.maxTime, restored.limits().maxTime);
+        assertEquals(Set.of("allowed(\"file1\")"), restored.query("data($f) <- allowed($f)").stream()
+                .map(f -> "allowed(" + f.terms().get(0) + ")").collect(Collectors.toSet()));
+        assertEquals(0, restored.authorize());
+        assertEquals(restored.facts(), Authorizer.from_snapshot(restored.serialize_snapshot()).facts());
+
+        Authorizer denied = Authorizer.from_snapshot(data);
+        denied.add_fact("resource(\"file3\")");
+        denied.add_check("check if resource(\"file3\"), readable(\"file3\")");
+        Error e = assertThrows(Error.FailedLogic.class, () -> denied.authorize(limits));
+        assertTrue(e.toString().contains("Authorizer"), e.toString());
+        assertThrows(Error.FormatError.DeserializationError.class, () -> Authorizer.from_snapshot(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    public void testParallelChecks() throws Exception {
+        SecureRandom rng = new SecureRandom();
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit token = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .add_authority_check("check if resource(\"file1\")")
+                .add_authority_check("check if resource(\"file2\")")
+                .build();
+        org.biscuitsec.biscuit.token.builder.Block block = token.create_block();
+        for (int i = 0; i < 10; i++) {
+            block.add_check("check if operation(\"op" + (i % 3) + "\")");
+        }
+        token = token.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng), block);
+
+        RunLimits limits = new RunLimits(1000, 100, Duration.ofSeconds(10));
+        Authorizer authorizer = token.authorizer().set_limits(limits);
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_fact("operation(\"op1\")");
+        authorizer.add_check("check if right(\"file1\", \"write\")");
+        authorizer.add_check("check if right(\"file1\", \"read\")");
+        authorizer.add_policy("deny if resource(\"file3\")");
+        authorizer.add_policy("allow if resource($f), right($f, \"read\")");
+        authorizer.add_policy("deny if resource(\"file1\")");
+        authorizer.add_policy("allow if true");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Error sequential = assertThrows(Error.FailedLogic.class, () -> authorizer.clone().authorize());
+            for (int i = 0; i < 10; i++) {
+                Authorizer parallel = authorizer.clone().set_check_executor(executor);
+                Error e = assertThrows(Error.FailedLogic.class, parallel::authorize);
+                assertEquals(sequential, e);
+                assertEquals(sequential.toString(), e.toString());
+            }
+            assertTrue(sequential.toString().contains("Allow(1)"), sequential.toString());
+
+            Authorizer reported = authorizer.clone().set_check_executor(executor).enable_execution_report();
+            assertThrows(Error.FailedLogic.class, reported::authorize);
+            ExecutionReport report = reported.execution_report().get();
+            assertEquals(14, report.checks.size());
+            assertEquals(2, report.policies.size());
+            assertTrue(report.policies.get(1).success);
+
+            Authorizer timeout = authorizer.clone().set_check_executor(executor)
+                    .set_limits(new RunLimits(1000, 100, Duration.ZERO));
+            assertThrows(Error.Timeout.class, timeout::authorize);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFactsAfterAuthorize() throws Exception {
+        Authorizer authorizer = new Authorizer().set_limits(new RunLimits(1000, 100, Duration.ofSeconds(10)));
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_rule("readable($f) <- resource($f)");
+        authorizer.allow();
+        assertEquals(0, authorizer.authorize());
+
+        // the returned facts are a copy, new facts go through add_fact to be evaluated
+        FactSet facts = authorizer.facts();
+        facts.add(Origin.authorizer(), Utils.fact("resource", List.of(Utils.string("file2"))).convert(authorizer.symbols));
+        assertEquals(2, authorizer.facts().size());
+        authorizer.add_fact("resource(\"file2\")");
+        assertEquals(2, authorizer.query("data($f) <- readable($f)").size());
+    }
+
+    @Test
+    public void testParallelPoliciesAfterMatch() throws Exception {
+        Authorizer authorizer = new Authorizer().set_limits(new RunLimits(1000, 100, Duration.ofSeconds(10)));
+        authorizer.add_fact("n(0)");
+        authorizer.add_policy("allow if n($x), $x == 0");
+        authorizer.add_policy("deny if n($x), 1 / $x == 1");
+        assertEquals(0, authorizer.authorize());
+
+        // the matching policy finishes last, after the following one failed
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = task -> {
+            boolean first = submitted.getAndIncrement() == 0;
+            new Thread(() -> {
+                if (first) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                task.run();
+            }).start();
+        };
+        assertEquals(0, authorizer.clone().set_check_executor(executor).authorize());
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        RunLimits limits = new RunLimits(1000, 100, Duration.ofSeconds(10));
+        Authorizer authorizer = new Authorizer().set_limits(limits).set_fail_fast(true).enable_execution_report();
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_check("check if resource(\"file1\")");
+        authorizer.add_check("check if resource(\"file2\")");
+        authorizer.add_check("check if resource(\"file3\")");
+        authorizer.allow();
+
+        Error.FailedLogic e = assertThrows(Error.FailedLogic.class, authorizer::authorize);
+        assertEquals(new LogicError.Rejected(Option.none()), e.error);
+        assertEquals(2, authorizer.execution_report().get().checks.size());
+        assertTrue(authorizer.execution_report().get().policies.isEmpty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Error.FailedLogic parallel = assertThrows(Error.FailedLogic.class,
+                    () -> authorizer.clone().set_check_executor(executor).authorize());
+            assertEquals(e.error, parallel.error);
+        } finally {
+            executor.shutdown();
+        }
+
+        Error.FailedLogic verbose = assertThrows(Error.FailedLogic.class,
+                () -> authorizer.set_fail_fast(false).authorize());
+        assertEquals(2, verbose.error.failed_checks().get().size());
+
+        Authorizer denied = new Authorizer().set_limits(limits).set_fail_fast(true);
+        denied.add_fact("resource(\"file1\")");
+        denied.add_policy("deny if resource(\"file1\")");
+        denied.allow();
+        e = assertThrows(Error.FailedLogic.class, denied::authorize);
+        assertEquals(new LogicError.Rejected(Option.some(new LogicError.MatchedPolicy.Deny(0))), e.error);
+
+        Authorizer allowed = new Authorizer().set_limits(limits).set_fail_fast(true);
+        allowed.add_fact("resource(\"file1\")");
+        allowed.allow();
+        allowed.add_policy("deny if resource(\"file1\")");
+        assertEquals(0, allowed.authorize());
+    }
+
+    @Test
+    public void testLazyFailedCheck() throws Exception {
+        AtomicInteger printed = new AtomicInteger();
+        FailedCheck.FailedBlock failed = new FailedCheck.FailedBlock(1, 0, () -> {
+            printed.incrementAndGet();
+            return "check if true";
+        });
+        assertEquals(0, printed.get());
+        assertEquals(new FailedCheck.FailedBlock(1, 0, "check if true"), failed);
+        assertTrue(failed.toJson().toString().contains("check if true"));
+        assertEquals(1, printed.get());
+
+        Authorizer authorizer = new Authorizer().set_limits(new RunLimits(1000, 100, Duration.ofSeconds(10)));
+        authorizer.add_check("check if resource(\"file1\")");
+        authorizer.allow();
+        Error.FailedLogic e = assertThrows(Error.FailedLogic.class, authorizer::authorize);
+        assertEquals(List.of(new FailedCheck.FailedAuthorizer(0, "check if resource(\"file1\")")),
+                e.error.failed_checks().get());
+    }
+
     private static Term queryFirstResult(Authorizer authorizer, String query) throws Error {
         return authorizer.query(query)
                 .iterator()
                 .next()
                 .terms().get(0);
     }
+
+    @Test
+    public void testParserCacheAndParameters() throws Exception {
+        String check = "check if resource($r), operation($op), $r.starts_with(\"/folder/\")";
+        String policy = "allow if user($u), $u == $expected";
+
+        ParserCache.CHECKS.set_capacity(16);
+        ParserCache.POLICIES.set_capacity(16);
+        try {
+            for (String user : List.of("alice", "bob")) {
+                Authorizer authorizer = new Authorizer();
+                authorizer.add_fact("resource(\"/folder/file1\")");
+                authorizer.add_fact("operation(\"read\")");
+                authorizer.add_fact(Utils.fact("user", List.of(Utils.string(user))));
+                authorizer.add_check(check, Map.of("op", Utils.string("read")));
+                authorizer.add_policy(policy, Map.of("expected", Utils.string("alice")));
+
+                if (user.equals("alice")) {
+                    assertEquals(0, authorizer.authorize());
+                } else {
+                    assertThrows(Error.FailedLogic.class, authorizer::authorize);
+                }
+
+                Set<org.biscuitsec.biscuit.token.builder.Fact> res =
+                        authorizer.query("data($r) <- resource($r), operation($op)", Map.of("op", Utils.string("read")));
+                assertEquals(Set.of(Utils.fact("data", List.of(Utils.string("/folder/file1")))), res);
+            }
+
+            // the cache returns copies, not modified by the parameters
+            assertNotSame(ParserCache.CHECKS.get(check).get(), ParserCache.CHECKS.get(check).get());
+            assertEquals(check, ParserCache.CHECKS.get(check).get().toString());
+            assertEquals("allow if user($u), $u == $expected", ParserCache.POLICIES.get(policy).get().toString());
+
+            // modifying a policy added from a string does not change the next authorizers
+            Authorizer first = new Authorizer();
+            first.add_policy(policy);
+            first.policies().get(0).kind = Policy.Kind.Deny;
+            first.policies().get(0).queries.get(0).set("expected", Utils.string("bob"));
+            assertEquals("allow if user($u), $u == $expected", ParserCache.POLICIES.get(policy).get().toString());
+            Authorizer second = new Authorizer();
+            second.add_fact(Utils.fact("user", List.of(Utils.string("alice"))));
+            second.add_policy(policy, Map.of("expected", Utils.string("alice")));
+            assertEquals(0, second.authorize());
+
+            assertThrows(Error.Language.class, () -> new Authorizer().add_check(check, Map.of("unknown", Utils.integer(1))));
+            assertThrows(Error.Parser.class, () -> new Authorizer().add_check("check if resource("));
+        } finally {
+            ParserCache.CHECKS.set_capacity(0);
+            ParserCache.POLICIES.set_capacity(0);
+        }
+    }
+
+    @Test
+    public void testPreparedStatements() throws Exception {
+        SecureRandom rng = new SecureRandom();
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        // the token's symbols are not in the prepared statements' symbol table
+        Biscuit token = Biscuit.builder(rng, root)
+                .add_authority_fact("owner(\"alice\", \"file1\")")
+                .add_authority_fact("member(\"alice\", \"team_a\")")
+                .build();
+
+        PreparedStatement check = PreparedStatement.check("check if owner($user, $file), member($user, $team)");
+        PreparedStatement policy = PreparedStatement.policy("allow if resource($file), operation($op), [\"read\", \"write\"].contains($op)");
+        PreparedStatement query = PreparedStatement.query("data($user) <- owner($user, $file)");
+        assertEquals(List.of("file", "team", "user"), check.parameters());
+
+        for (String file : List.of("file1", "file2")) {
+            Authorizer authorizer = token.authorizer();
+            authorizer.add_fact(Utils.fact("resource", List.of(Utils.string(file))));
+            authorizer.add_fact("operation(\"read\")");
+            authorizer.add_check(check.bind().set("file", file).set("team", "team_a"));
+            authorizer.add_policy(policy.bind().set("op", "read"));
+
+            if (file.equals("file1")) {
+                assertEquals(0, authorizer.authorize());
+            } else {
+                Error e = assertThrows(Error.FailedLogic.class, authorizer::authorize);
+                assertEquals(new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Allow(0), List.of(
+                        new FailedCheck.FailedAuthorizer(0, "check if owner($user, \"file2\"), member($user, \"team_a\")")
+                ))), e);
+            }
+
+            assertEquals(Set.of(Utils.fact("data", List.of(Utils.string("alice")))),
+                    authorizer.query(query.bind().set("file", "file1")));
+            assertEquals(Set.of(), authorizer.query(query.bind().set("file", file).set("user", "bob")));
+        }
+
+        // the values are copied when added, and the builder objects are created when they are needed
+        PreparedStatement.Bindings bindings = check.bind().set("file", "file1");
+        Authorizer prepared = token.authorizer();
+        prepared.add_fact("resource(\"file1\")");
+        prepared.add_fact("operation(\"write\")");
+        prepared.add_check(bindings);
+        prepared.add_policy(policy.bind().set("op", "write"));
+        bindings.set("file", "file2");
+        assertEquals(0, prepared.authorize());
+        Authorizer cloned = prepared.clone();
+        assertTrue(cloned.print_world().contains("check if owner($user, \"file1\"), member($user, $team)"));
+        assertEquals("check if owner($user, \"file1\"), member($user, $team)", prepared.checks().get(0)._2.get(0).toString());
+        assertEquals("allow if resource($file), operation(\"write\"), [\"read\", \"write\"].contains(\"write\")",
+                prepared.policies().get(0).toString());
+        assertEquals(prepared.checks().get(0)._2.toString(), Authorizer.from_snapshot(cloned.snapshot()).checks().get(0)._2.toString());
+
+        assertThrows(Error.Language.class, () -> check.bind().set("unknown", 1));
+        assertThrows(IllegalArgumentException.class, () -> new Authorizer().add_policy(check.bind()));
+    }
+
+    @Test
+    public void testAddFacts() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            rows.add(new Object[]{"user" + (i % 100), "file" + i, i % 2 == 0 ? "read" : "write", (long) i});
+        }
+
+        RunLimits limits = new RunLimits(100000, 100, Duration.ofSeconds(10));
+        Authorizer authorizer = new Authorizer().set_limits(limits);
+        authorizer.add_facts("permission", rows);
+        authorizer.add_facts("flags", List.<Object[]>of(new Object[]{true, new byte[]{1, 2}, Set.of(1, "a"), new Date(1000L * 1575294593)}));
+        authorizer.add_fact("resource(\"file42\")");
+        authorizer.add_fact("operation(\"read\")");
+        authorizer.add_policy("allow if resource($f), operation($op), permission(\"user42\", $f, $op, 42)");
+        assertEquals(0, authorizer.authorize());
+
+        assertEquals(10000, authorizer.query("data($f) <- permission($u, $f, \"read\", $i)", limits).size());
+        assertEquals(Set.of(Utils.fact("data", List.of(Utils.string("file1")))),
+                authorizer.query("data($f) <- permission(\"user1\", $f, $op, $i), $i < 100", limits));
+        assertEquals(Set.of(Utils.fact("data", List.of(new Term.Bytes(new byte[]{1, 2})))),
+                authorizer.query("data($b) <- flags(true, $b, [1, \"a\"], 2019-12-02T13:49:53Z)", limits));
+
+        assertThrows(IllegalArgumentException.class, () -> new Authorizer().add_facts("f", List.<Object[]>of(new Object[]{1.5})));
+        assertThrows(IllegalArgumentException.class, () -> new Authorizer().add_facts("f",
+                List.<Object[]>of(new Object[]{Set.of(1L, Set.of(2L))})));
+    }
 }
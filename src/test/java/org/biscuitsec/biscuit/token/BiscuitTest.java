@@ -11,12 +11,14 @@ import org.biscuitsec.biscuit.error.FailedCheck;
 import org.biscuitsec.biscuit.error.LogicError;
 import org.biscuitsec.biscuit.token.builder.Block;
 
+import com.google.protobuf.ByteString;
 import io.vavr.control.Option;
 import io.vavr.control.Try;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -709,4 +711,160 @@ public class BiscuitTest {
 
         authorizer2.authorize(new RunLimits(500, 100, Duration.ofMillis(500)));
     }
+
+    @Test
+    public void testFromByteBuffer() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit biscuit = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build()
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"));
+        byte[] data = biscuit.serialize();
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 3);
+        direct.put(new byte[]{1, 2, 3});
+        direct.put(data);
+        direct.flip();
+        direct.position(3);
+
+        Biscuit deser = Biscuit.from_bytes(direct, root.public_key());
+        assertEquals(3, direct.position());
+        assertArrayEquals(data, deser.serialize());
+        assertEquals(biscuit.print(), deser.print());
+
+        Biscuit deser2 = Biscuit.from_bytes(ByteString.copyFrom(data), root.public_key());
+        assertArrayEquals(data, deser2.serialize());
+
+        UnverifiedBiscuit unverified = UnverifiedBiscuit.from_bytes(ByteBuffer.wrap(data));
+        assertEquals(2, unverified.revocation_identifiers().size());
+
+        Authorizer authorizer = deser.authorizer();
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_policy("allow if right(\"file1\", \"read\")");
+        authorizer.authorize(new RunLimits(500, 100, Duration.ofMillis(500)));
+
+        data[data.length - 1] ^= 1;
+        assertThrows(Error.class, () -> Biscuit.from_bytes(ByteBuffer.wrap(data), root.public_key()));
+    }
+
+    @Test
+    public void testB64UrlStreaming() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit biscuit = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build()
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"));
+        byte[] data = biscuit.serialize();
+
+        String b64 = biscuit.serialize_b64url();
+        assertEquals(Base64.getUrlEncoder().encodeToString(data), b64);
+
+        StringBuilder header = new StringBuilder("Bearer ");
+        biscuit.serializedBiscuit.serialize_b64url(header);
+        assertEquals("Bearer " + b64, header.toString());
+
+        Biscuit deser = Biscuit.from_b64url(header.subSequence(7, header.length()), root.public_key());
+        assertArrayEquals(data, deser.serialize());
+        assertEquals(biscuit.print(), deser.print());
+
+        ByteBuffer ascii = ByteBuffer.wrap(("Bearer " + b64).getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        ascii.position(7);
+        Biscuit deser2 = Biscuit.from_b64url(ascii, root.public_key());
+        assertEquals(7, ascii.position());
+        assertArrayEquals(data, deser2.serialize());
+
+        UnverifiedBiscuit unverified = UnverifiedBiscuit.from_b64url(b64.replace("=", ""));
+        assertEquals(2, unverified.revocation_identifiers().size());
+
+        assertThrows(Error.FormatError.DeserializationError.class,
+                () -> Biscuit.from_b64url(b64.replace('-', '+').replace('_', '/') + "+", root.public_key()));
+    }
+
+    @Test
+    public void testSerializeIntoBuffer() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit biscuit = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build()
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"));
+        byte[] data = biscuit.serialize();
+        assertEquals(data.length, biscuit.serialized_size());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 5);
+        direct.position(5);
+        assertEquals(data.length, biscuit.serialize(direct));
+        assertEquals(data.length + 5, direct.position());
+        direct.position(5);
+        byte[] written = new byte[data.length];
+        direct.get(written);
+        assertArrayEquals(data, written);
+
+        byte[] array = new byte[data.length + 2];
+        assertEquals(data.length, biscuit.serialize(array, 2));
+        assertArrayEquals(data, Arrays.copyOfRange(array, 2, array.length));
+
+        assertThrows(Error.FormatError.SerializationError.class, () -> biscuit.serialize(ByteBuffer.allocate(data.length - 1)));
+
+        ByteBuffer heap = ByteBuffer.allocate(biscuit.serialized_size());
+        biscuit.serialize(heap);
+        heap.flip();
+        assertArrayEquals(data, Biscuit.from_bytes(heap, root.public_key()).serialize());
+
+        ByteBuffer allocated = biscuit.serialize_buffer(true);
+        assertTrue(allocated.isDirect());
+        assertEquals(data.length, allocated.remaining());
+        assertArrayEquals(data, Biscuit.from_bytes(allocated, root.public_key()).serialize());
+    }
+
+    @Test
+    public void testIncrementalAttenuation() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit biscuit = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .build();
+        String parentPrint = biscuit.print();
+
+        Biscuit attenuated = biscuit
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"))
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_fact("request(\"req1\")").add_check("check if operation(\"read\")"));
+
+        // the parent token is not modified and the decoded blocks are shared
+        assertEquals(parentPrint, biscuit.print());
+        assertSame(biscuit.authority, attenuated.authority);
+
+        Biscuit reparsed = Biscuit.from_bytes(attenuated.serialize(), root.public_key());
+        assertEquals(reparsed.print(), attenuated.print());
+        assertEquals(reparsed.symbols.symbols, attenuated.symbols.symbols);
+        assertEquals(reparsed.revocation_identifiers().stream().map(RevocationIdentifier::serialize_b64url).collect(java.util.stream.Collectors.toList()),
+                attenuated.revocation_identifiers().stream().map(RevocationIdentifier::serialize_b64url).collect(java.util.stream.Collectors.toList()));
+
+        UnverifiedBiscuit unverified = UnverifiedBiscuit.from_bytes(biscuit.serialize())
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"));
+        UnverifiedBiscuit unverifiedReparsed = UnverifiedBiscuit.from_bytes(unverified.serialize());
+        assertEquals(unverifiedReparsed.print(), unverified.print());
+        assertEquals(3, attenuated.revocation_identifiers().size());
+        assertEquals(2, unverified.revocation_identifiers().size());
+    }
 }
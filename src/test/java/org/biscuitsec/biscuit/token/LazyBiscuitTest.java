@@ -0,0 +1,67 @@
+package org.biscuitsec.biscuit.token;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.builder.Block;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyBiscuitTest {
+
+    @Test
+    public void testLazyDecoding() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit biscuit = Biscuit.builder(rng, root)
+                .add_authority_fact("right(\"file1\", \"read\")")
+                .set_context("authority context")
+                .build()
+                .attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng),
+                        new Block().add_check("check if resource(\"file1\")"));
+        byte[] data = biscuit.serialize();
+
+        LazyBiscuit lazy = LazyBiscuit.from_bytes(data, root.public_key());
+        assertEquals(2, lazy.block_count());
+        assertEquals(biscuit.root_key_id(), lazy.root_key_id());
+        assertEquals(List.of(Option.some("authority context"), Option.none()), lazy.context());
+        assertEquals(biscuit.context(), lazy.context());
+
+        List<RevocationIdentifier> expected = biscuit.revocation_identifiers();
+        List<RevocationIdentifier> ids = lazy.revocation_identifiers();
+        assertEquals(expected.size(), ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(expected.get(i).toHex(), ids.get(i).toHex());
+        }
+
+        assertNull(lazy.decodedBlocks[0]);
+        assertNull(lazy.decodedBlocks[1]);
+        assertEquals(1, lazy.block(1).checks.size());
+        assertNull(lazy.decodedBlocks[0]);
+        assertSame(lazy.block(1), lazy.block(1));
+
+        Biscuit full = lazy.to_biscuit();
+        assertEquals(biscuit.print(), full.print());
+
+        Authorizer authorizer = lazy.authorizer();
+        authorizer.add_fact("resource(\"file1\")");
+        authorizer.add_policy("allow if right(\"file1\", \"read\")");
+        authorizer.authorize(new RunLimits(500, 100, Duration.ofMillis(500)));
+
+        KeyPair other = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+        assertThrows(Error.FormatError.Signature.InvalidSignature.class, () -> LazyBiscuit.from_bytes(data, other.public_key()));
+    }
+}
@@ -0,0 +1,138 @@
+package org.biscuitsec.biscuit.token;
+
+import biscuit.format.schema.Schema;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.token.builder.Block;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevocationIndexTest {
+    @Test
+    public void testIndex() {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        List<byte[]> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            byte[] id = new byte[64];
+            rng.nextBytes(id);
+            ids.add(id);
+        }
+
+        for (RevocationIndex index : List.of(new RevocationIndex(), new RevocationIndex(0.01))) {
+            assertEquals(0, index.size());
+            assertFalse(index.contains(ids.get(0)));
+
+            index.reload(ids.subList(0, 5000));
+            assertEquals(5000, index.size());
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(index.contains(ids.get(i)));
+            }
+            for (int i = 5000; i < 10000; i++) {
+                assertFalse(index.contains(ids.get(i)));
+            }
+            assertFalse(index.contains(new byte[0]));
+            assertFalse(index.contains(new byte[]{ids.get(0)[0]}));
+
+            // duplicates are stored once
+            index.add_all(ids.subList(4000, 6000));
+            assertEquals(6000, index.size());
+            assertTrue(index.contains(ids.get(5999)));
+            assertEquals(1, index.first_revoked(List.of(ids.get(9000), ids.get(5500), ids.get(0))));
+            assertEquals(-1, index.first_revoked(List.of(ids.get(9000))));
+        }
+    }
+
+    @Test
+    public void testReloadFile() throws IOException {
+        RevocationIndex index = new RevocationIndex(0.001);
+        index.add_all(List.of(new byte[]{1, 2, 3}));
+
+        Path file = Files.createTempFile("revoked", ".txt");
+        try {
+            Files.write(file, List.of("# revoked tokens", "", "0a0b0c", "  FFEE00 "), StandardCharsets.US_ASCII);
+            index.reload(file);
+            assertEquals(2, index.size());
+            assertTrue(index.contains(new byte[]{0x0a, 0x0b, 0x0c}));
+            assertTrue(index.contains(new byte[]{(byte) 0xff, (byte) 0xee, 0x00}));
+            assertFalse(index.contains(new byte[]{1, 2, 3}));
+
+            Files.write(file, List.of("0a0b0c", "0a0b0"), StandardCharsets.US_ASCII);
+            IOException e = assertThrows(IOException.class, () -> index.reload(file));
+            assertEquals("invalid revocation identifier at line 2", e.getMessage());
+            assertEquals(2, index.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFromBytes() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Block authority = new Block();
+        authority.add_fact("right(\"file1\", \"read\")");
+        Biscuit b1 = Biscuit.make(rng, root, authority.build());
+        Biscuit b2 = b1.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng), new Block());
+        byte[] data = b2.serialize();
+
+        RevocationIndex index = new RevocationIndex(0.01);
+        Biscuit token = Biscuit.from_bytes(data, root.public_key(), index);
+        assertEquals(b2.print(), token.print());
+        assertFalse(index.is_revoked(token));
+
+        index.add_all(List.of(b2.revocation_identifiers().get(1).getBytes()));
+        assertTrue(index.is_revoked(token));
+        assertFalse(index.is_revoked(b1));
+        assertEquals(new Error.Revoked(1), assertThrows(Error.Revoked.class, () -> Biscuit.from_bytes(data, root.public_key(), index)));
+
+        index.add_all(List.of(b1.revocation_identifiers().get(0).getBytes()));
+        assertTrue(index.contains(b1.revocation_identifiers().get(0)));
+        assertEquals(new Error.Revoked(0), assertThrows(Error.Revoked.class, () -> Biscuit.from_bytes(data, root.public_key(), index)));
+    }
+
+    @Test
+    public void testRevokedBeforeVerification() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+        KeyPair other = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Biscuit b1 = Biscuit.make(rng, root, new Block().build());
+        Biscuit b2 = b1.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng), new Block());
+        byte[] data = b2.serialize();
+
+        List<String> tested = new ArrayList<>();
+        Biscuit token = Biscuit.from_bytes(data, root.public_key(), id -> {
+            tested.add(new RevocationIdentifier(id).toHex());
+            return false;
+        });
+        assertEquals(b2.print(), token.print());
+        assertEquals(List.of(b2.revocation_identifiers().get(0).toHex(), b2.revocation_identifiers().get(1).toHex()), tested);
+
+        byte[] revokedId = b2.revocation_identifiers().get(1).getBytes();
+        assertEquals(new Error.Revoked(1), assertThrows(Error.Revoked.class,
+                () -> Biscuit.from_bytes(data, root.public_key(), id -> Arrays.equals(id, revokedId))));
+        assertEquals(new Error.Revoked(1), assertThrows(Error.Revoked.class,
+                () -> Biscuit.from_b64url(b2.serialize_b64url(), key_id -> Option.some(root.public_key()), id -> Arrays.equals(id, revokedId))));
+
+        // the signatures are not verified for a revoked token, so the wrong root key is not detected
+        assertEquals(new Error.Revoked(1), assertThrows(Error.Revoked.class,
+                () -> Biscuit.from_bytes(data, other.public_key(), id -> Arrays.equals(id, revokedId))));
+        assertThrows(Error.FormatError.Signature.InvalidSignature.class,
+                () -> Biscuit.from_bytes(data, other.public_key(), id -> false));
+    }
+}
@@ -219,5 +219,63 @@ public class ThirdPartyTest {
                     e);
         }
     }
-}
 
+    @Test
+    public void testPreloadedAuthorizer() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, Error {
+        byte[] seed = {0, 0, 0, 0};
+        SecureRandom rng = new SecureRandom(seed);
+
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+        KeyPair external = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Block authority_builder = new Block();
+        authority_builder.add_fact("user(\"alice\")");
+        authority_builder.add_rule("member($u, \"team\") <- user($u)");
+        authority_builder.add_check("check if group(\"admin\") trusting ed25519/" + external.public_key().toHex());
+        Biscuit b1 = Biscuit.make(rng, root, authority_builder.build());
+
+        Block block_builder = new Block();
+        block_builder.add_check("check if resource($r), $r.starts_with(\"/team/\")");
+        Biscuit b2 = b1.attenuate(rng, KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng), block_builder);
+
+        ThirdPartyBlockRequest request = b2.thirdPartyRequest();
+        Block builder = new Block();
+        builder.add_fact("group(\"admin\")");
+        builder.add_rule("external($u) <- user($u)");
+        builder.add_check("check if operation(\"read\")");
+        ThirdPartyBlockContents blockResponse = request.createBlock(external, builder).get();
+        Biscuit token = Biscuit.from_bytes(b2.appendThirdPartyBlock(external.public_key(), blockResponse).serialize(), root.public_key());
+
+        // the authorizer's symbols do not start with the token's symbols, so every block is translated
+        Authorizer preloaded = new Authorizer();
+        preloaded.add_fact("operation(\"read\")");
+        preloaded.add_fact("resource(\"/team/file1\")");
+        preloaded.add_token(token);
+        preloaded.add_policy("allow if member(\"alice\", \"team\")");
+
+        Authorizer authorizer = token.authorizer();
+        authorizer.add_fact("operation(\"read\")");
+        authorizer.add_fact("resource(\"/team/file1\")");
+        authorizer.add_policy("allow if member(\"alice\", \"team\")");
+
+        RunLimits limits = new RunLimits(500, 100, Duration.ofMillis(500));
+        for (Authorizer a : Arrays.asList(preloaded, authorizer)) {
+            assertEquals(0, a.authorize(limits));
+            assertEquals(1, a.query("data($u) <- member($u, \"team\")", limits).size());
+            assertEquals(0, a.query("data($u) <- external($u)", limits).size());
+            assertEquals(1, a.query("data($u) <- external($u) trusting authority, ed25519/" + external.public_key().toHex(), limits).size());
+        }
+
+        Authorizer denied = new Authorizer();
+        denied.add_fact("resource(\"/other/file1\")");
+        denied.add_token(token);
+        denied.add_policy("allow if true");
+        Error e = assertThrows(Error.class, () -> denied.authorize(limits));
+        assertEquals(
+                new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Allow(0), Arrays.asList(
+                        new FailedCheck.FailedBlock(1, 0, "check if resource($r), $r.starts_with(\"/team/\")"),
+                        new FailedCheck.FailedBlock(2, 0, "check if operation(\"read\")")
+                ))),
+                e);
+    }
+}
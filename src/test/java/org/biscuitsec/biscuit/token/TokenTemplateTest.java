@@ -0,0 +1,109 @@
+package org.biscuitsec.biscuit.token;
+
+import biscuit.format.schema.Schema;
+import io.vavr.control.Option;
+import org.biscuitsec.biscuit.crypto.KeyPair;
+import org.biscuitsec.biscuit.datalog.RunLimits;
+import org.biscuitsec.biscuit.error.Error;
+import org.biscuitsec.biscuit.error.FailedCheck;
+import org.biscuitsec.biscuit.error.LogicError;
+import org.biscuitsec.biscuit.token.builder.Block;
+import org.biscuitsec.biscuit.token.builder.Fact;
+import org.biscuitsec.biscuit.token.builder.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenTemplateTest {
+    @Test
+    public void testMint() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Block block = new Block();
+        block.add_fact("service(\"files\")");
+        block.add_rule("can_read($user, $file) <- user($user), owner($user, $file)");
+        block.add_check("check if time($time), expiration($exp), $time <= $exp");
+        TokenTemplate template = new TokenTemplate(root, block);
+
+        Biscuit token = template.mint(rng, List.of(
+                Utils.fact("user", List.of(Utils.string("alice"))),
+                Utils.fact("expiration", List.of(Utils.date(new java.util.Date(2_000_000_000_000L)))),
+                Utils.fact("service", List.of(Utils.string("files")))));
+
+        List<String> facts = new ArrayList<>();
+        for (org.biscuitsec.biscuit.datalog.Fact f : token.authority.facts) {
+            facts.add(token.symbols.print_fact(f));
+        }
+        assertEquals(List.of("service(\"files\")", "user(\"alice\")", "expiration(2033-05-18T03:33:20Z)", "service(\"files\")"), facts);
+        assertEquals(List.of("files", "can_read", "file", "expiration", "exp", "alice"), token.authority.symbols.symbols);
+
+        Biscuit deser = Biscuit.from_bytes(token.serialize(), root.public_key());
+        assertEquals(token.print(), deser.print());
+
+        Authorizer authorizer = deser.authorizer();
+        authorizer.add_fact("owner(\"alice\", \"file1\")");
+        authorizer.add_fact("time(2030-01-01T00:00:00Z)");
+        authorizer.add_policy("allow if can_read(\"alice\", \"file1\")");
+        authorizer.authorize(new RunLimits(500, 100, Duration.ofMillis(500)));
+
+        Authorizer expired = deser.authorizer();
+        expired.add_fact("time(2040-01-01T00:00:00Z)");
+        expired.add_policy("allow if true");
+        Error e = assertThrows(Error.class, () -> expired.authorize(new RunLimits(500, 100, Duration.ofMillis(500))));
+        assertEquals(new Error.FailedLogic(new LogicError.Unauthorized(new LogicError.MatchedPolicy.Allow(0), Arrays.asList(
+                new FailedCheck.FailedBlock(0, 0, "check if time($time), expiration($exp), $time <= $exp")
+        ))), e);
+
+        assertThrows(Error.Language.class, () -> template.mint(rng, List.of(Utils.fact("user", List.of(Utils.var("user"))))));
+    }
+
+    @Test
+    public void testMintAll() throws Error, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        SecureRandom rng = new SecureRandom(new byte[]{0, 0, 0, 0});
+        KeyPair root = KeyPair.generate(Schema.PublicKey.Algorithm.Ed25519, rng);
+
+        Block block = new Block();
+        block.add_check("check if operation(\"read\")");
+        TokenTemplate template = new TokenTemplate(root, Option.some(3), block);
+
+        List<List<Fact>> facts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            facts.add(List.of(Utils.fact("user", List.of(Utils.string("user" + i)))));
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Biscuit> tokens;
+        try {
+            tokens = template.mint_all(rng, facts, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, tokens.size());
+        Set<String> revocationIds = new HashSet<>();
+        Set<String> nextKeys = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Biscuit token = Biscuit.from_bytes(tokens.get(i).serialize(), root.public_key());
+            assertEquals(Option.some(3), token.root_key_id());
+            assertEquals("user(\"user" + i + "\")", token.authority.symbols.print_fact(token.authority.facts.get(0)));
+            revocationIds.add(token.revocation_identifiers().get(0).toHex());
+            nextKeys.add(token.serializedBiscuit.authority.key.toHex());
+        }
+        assertEquals(200, revocationIds.size());
+        assertEquals(200, nextKeys.size());
+    }
+}
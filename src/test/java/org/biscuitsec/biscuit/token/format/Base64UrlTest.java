@@ -0,0 +1,78 @@
+package org.biscuitsec.biscuit.token.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Base64UrlTest {
+
+    @Test
+    public void testMatchesJdkEncoding() throws IOException {
+        Random rng = new Random(0);
+        for (int length = 0; length < 70; length++) {
+            byte[] data = new byte[length];
+            rng.nextBytes(data);
+            String expected = Base64.getUrlEncoder().encodeToString(data);
+
+            StringBuilder sb = new StringBuilder();
+            Base64UrlOutputStream out = new Base64UrlOutputStream(sb);
+            // mix single byte and bulk writes
+            int i = 0;
+            while (i < length) {
+                if (i % 2 == 0) {
+                    out.write(data[i]);
+                    i++;
+                } else {
+                    int n = Math.min(length - i, 1 + i % 5);
+                    out.write(data, i, n);
+                    i += n;
+                }
+            }
+            out.close();
+            assertEquals(expected, sb.toString());
+            assertEquals(expected.length(), Base64UrlOutputStream.encodedLength(length));
+
+            assertArrayEquals(data, readAll(new Base64UrlInputStream(expected), 1 + length % 7));
+            assertArrayEquals(data, readAll(new Base64UrlInputStream(expected.replace("=", "")), 4096));
+            assertArrayEquals(data, readAll(new Base64UrlInputStream(
+                    ByteBuffer.wrap(expected.getBytes(StandardCharsets.US_ASCII))), 2));
+
+            InputStream in = new Base64UrlInputStream(expected);
+            for (byte b : data) {
+                assertEquals(b & 0xff, in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testInvalidInput() throws IOException {
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("ab+/"), 16));
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("abcde"), 16));
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("ab=c"), 16));
+        // padding must complete a group of 4 characters
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("abc=="), 16));
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("ab="), 16));
+        assertThrows(IOException.class, () -> readAll(new Base64UrlInputStream("abcd=="), 16));
+        assertArrayEquals(Base64.getUrlDecoder().decode("abc="), readAll(new Base64UrlInputStream("abc="), 16));
+        assertArrayEquals(Base64.getUrlDecoder().decode("ab=="), readAll(new Base64UrlInputStream("ab=="), 16));
+    }
+
+    private static byte[] readAll(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[chunk];
+        int n;
+        while ((n = in.read(buf, 0, chunk)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}